@@ -27,6 +27,7 @@ Rectangle {
     property string startAnchorTime: Qt.formatTime(new Date(), "HH:mm")
     property int intervalMinutes
     property int durationSound
+    property int coalesceSeconds: 0   // darf so viel früher auslösen, um mit anderen zusammenzufallen
 
     property bool soundEnabled
     property string sound
@@ -66,6 +67,7 @@ Rectangle {
     signal endTimeEdited(string v)
     signal startAnchorTimeEdited(string v)
     signal intervalMinutesEdited(int v)
+    signal coalesceSecondsEdited(int v)
     signal soundEdited(string v)
     signal soundEnabledEdited(bool v)
     signal volumeEdited(real v)
@@ -1296,6 +1298,25 @@ Rectangle {
                             }
                         }
 
+                        // Toleranz: fällt ein anderer Alarm so knapp davor, geht diese Action mit ihm
+                        // zusammen los (ein Wecken statt zwei; nur im Ein-Alarm-Modus wirksam)
+                        InlineNumberField {
+                            label: "Toleranz"
+                            value: root.coalesceSeconds
+                            displaySuffix: " Sekunden"
+                            minValue: 0
+                            maxValue: 600
+                            labelWidth: 62
+                            minInputWidth: 88
+                            preferredInputWidth: 96
+                            Layout.preferredWidth: 164
+                            Layout.fillWidth: false
+                            onValueEdited: function(v) {
+                                root.coalesceSeconds = v
+                                root.coalesceSecondsEdited(v)
+                            }
+                        }
+
                         // ---- SOUND ----
                         SectionHeader { title: "Ton" }
 
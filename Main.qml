@@ -91,17 +91,18 @@ ApplicationWindow {
     function detectRunningActionsOnStartup() {
         if (!SoundTaskManager) return
 
-        let any = false
-        for (let i = 0; i < actionModel.count; i++) {
-            const id = actionModel.get(i).alarmId   // oder wie bei dir die ID heißt
-            dbg("[checkAlarmId =", id)
+        // ein Aufruf für alle ids statt isScheduled() pro Action
+        const ids = []
+        for (let i = 0; i < actionModel.count; i++)
+            ids.push(actionModel.get(i).alarmId)
+        dbg("[checkAlarmIds =", ids)
 
-            if (SoundTaskManager.isScheduled(id)) {
-                any = true
-                break
-            }
+        const scheduled = SoundTaskManager.isScheduledAll(ids)
+        for (let k = 0; k < scheduled.length; k++) {
+            if (scheduled[k])
+                return true
         }
-        return any
+        return false
     }
 
     function updateUiPaused() {
@@ -175,8 +176,13 @@ ApplicationWindow {
     }
 
     function cancelAllSoundTaskManagers() {
-        for (let i = 0; i < actionModel.count; i++)
-            cancelTaskManagerForIndex(i)
+        SoundTaskManager.beginBatch()
+        try {
+            for (let i = 0; i < actionModel.count; i++)
+                cancelTaskManagerForIndex(i)
+        } finally {
+            SoundTaskManager.commitBatch()
+        }
     }
 
     function _hhmmToTodayMs(nowMs, hhmm) {
@@ -191,40 +197,39 @@ ApplicationWindow {
     }
 
 
-    function scheduleTaskManagerForIndex(idx, nowMs) {
-        if (idx < 0 || idx >= actionModel.count) return
+    // Gewünschter Alarm-Zustand einer Action für SoundTaskManager.reconcile()
+    // (enabled=false => Alarm wird entfernt)
+    function alarmSpecForIndex(idx, nowMs) {
         const o = actionModel.get(idx)
+        const id = (typeof o.alarmId === "number") ? o.alarmId : parseInt(o.alarmId || 0)
+        const spec = { "requestId": (id > 0) ? id : 0, "enabled": false }
 
-        // Falls schon ein Alarm existiert: erst weg damit (sonst doppelt)
-        cancelTaskManagerForIndex(idx)
-
-        // disabled / volume=0 => bleibt gecancelt
+        // disabled / volume=0 => kein Alarm
         const enabled = (o.soundEnabled === undefined) ? true : !!o.soundEnabled
         const baseVol = (typeof o.volume === "number" && !isNaN(o.volume)) ? o.volume : 1.0
         const effectiveVol = (!app.allSoundsDisabled && enabled) ? Math.max(0.0, Math.min(1.0, baseVol)) : 0.0
         if (!enabled || effectiveVol <= 0.0) {
             dbg("[SoundTaskManager] skip schedule (disabled/vol=0) idx=", idx, " enabled=", enabled, " vol=", effectiveVol)
-            return
+            return spec
         }
-        const durationSound = (typeof o.durationSound === "number")
+
+        spec.rawSound = soundRawForName(o.sound)
+        spec.text = (typeof o.text === "string" && o.text.length > 0) ? o.text : "Reminder"
+        spec.volume01 = effectiveVol
+        spec.durationSound = (typeof o.durationSound === "number")
                 ? o.durationSound
                 : parseInt(o.durationSound || 0)
-
-        const rawSound = soundRawForName(o.sound)
-        const txt = (typeof o.text === "string" && o.text.length > 0) ? o.text : "Reminder"
+        // Multiplexer: darf bis zu so viele Sekunden früher auslösen (0 = exakt)
+        spec.coalesceSeconds = _coalesceSecondsOf(o)
 
         if ((o.mode || "fixed") === "fixed") {
             const fireMs = (typeof o.nextFireMs === "number") ? o.nextFireMs : 0
-            if (!fireMs || fireMs <= 0) return
-
-            dbg("[SoundTaskManager] startFixed idx=", idx, " fire=", new Date(fireMs).toISOString(), " vol=", effectiveVol)
-            const newId = SoundTaskManager.startFixedSoundTask(rawSound, txt, fireMs, effectiveVol, durationSound)
-            dbg("[SoundTaskManager] startFixed -> id=", newId)
-            if (newId > 0) {
-                actionModel.setProperty(idx, "alarmId", newId)
-                 saveNow()
-            }
-            return
+            if (!fireMs || fireMs <= 0) return spec
+
+            spec.mode = "fixed"
+            spec.fixedTimeMs = fireMs
+            spec.enabled = true
+            return spec
         }
 
         // interval
@@ -232,26 +237,56 @@ ApplicationWindow {
                 ? o.intervalMinutes
                 : parseInt(o.intervalMinutes || 0)
         const intervalSecs = (intervalMinutes > 0) ? intervalMinutes * 60 : 0
-        if (intervalSecs <= 0) return
+        if (intervalSecs <= 0) return spec
 
-        const startMs = _hhmmToTodayMs(nowMs, o.startTime || "")
-        const endMs   = _hhmmToTodayMs(nowMs, o.endTime || "")
-        const anchorMs = (typeof o.startAnchorMs === "number" && o.startAnchorMs > 0)
+        spec.mode = "interval"
+        spec.intervalSecs = intervalSecs
+        spec.startTimeMs = _hhmmToTodayMs(nowMs, o.startTime || "")
+        spec.endTimeMs = _hhmmToTodayMs(nowMs, o.endTime || "")
+        spec.startAnchorTimeMs = (typeof o.startAnchorMs === "number" && o.startAnchorMs > 0)
                 ? o.startAnchorMs
                 : _hhmmToTodayMs(nowMs, o.startAnchorTime || Qt.formatTime(new Date(nowMs), "HH:mm"))
+        spec.enabled = true
+        return spec
+    }
 
-        dbg("[SoundTaskManager] startInterval idx=", idx, " startMs=", startMs, " endMs=", endMs, " anchorMs=", anchorMs, " intervalSecs=", intervalSecs, " vol=", effectiveVol)
-        const newId2 = SoundTaskManager.startIntervalSoundTask(rawSound, txt, startMs, endMs, anchorMs, intervalSecs, effectiveVol, durationSound)
-        dbg("[SoundTaskManager] startInterval -> id=", newId2)
-        if (newId2 > 0) {
-            actionModel.setProperty(idx, "alarmId", newId2)
-            saveNow()
+    // Nur die Differenz geht raus: alarmId bleibt stabil, unveränderte Actions kosten nichts,
+    // reine Inhaltsänderungen (Sound, Text, Lautstärke) behalten Phase und nächsten Fire
+    function reconcileAlarms(indices, nowMs) {
+        const desired = []
+        for (let k = 0; k < indices.length; k++)
+            desired.push(alarmSpecForIndex(indices[k], nowMs))
+        if (desired.length === 0) return
+
+        const ids = SoundTaskManager.reconcile(desired)
+        let changed = false
+        for (let k = 0; k < indices.length && k < ids.length; k++) {
+            const o = actionModel.get(indices[k])
+            const newId = ids[k] > 0 ? ids[k] : 0
+            if (o.alarmId !== newId) {
+                dbg("[SoundTaskManager] reconcile idx=", indices[k], " alarmId ", o.alarmId, " -> ", newId)
+                actionModel.setProperty(indices[k], "alarmId", newId)
+                changed = true
+            }
         }
+        if (changed)
+            saveNow()
+    }
+
+    function scheduleTaskManagerForIndex(idx, nowMs) {
+        if (idx < 0 || idx >= actionModel.count) return
+        reconcileAlarms([idx], nowMs)
     }
 
     // -------------------------
     // Persistence
     // -------------------------
+    // Toleranz pro Action in Sekunden; fehlt in alten Speicherständen -> 0 (exakt)
+    function _coalesceSecondsOf(o) {
+        const v = (typeof o.coalesceSeconds === "number") ? o.coalesceSeconds : parseInt(o.coalesceSeconds || 0)
+        return (isNaN(v) || v < 0) ? 0 : v
+    }
+
     function serializeModel() {
         const arr = []
         for (let i = 0; i < actionModel.count; i++) {
@@ -272,6 +307,7 @@ ApplicationWindow {
                 intervalStartsInSeconds: -1,
                 intervalMinutes: intervalMinutes,
                 durationSound: (typeof o.durationSound === "number" && !isNaN(o.durationSound)) ? o.durationSound : 1,
+                coalesceSeconds: _coalesceSecondsOf(o),
                 sound: (o.sound ?? "Bell"),
                 soundEnabled: (o.soundEnabled ?? true),
                 volume: (typeof o.volume === "number") ? o.volume : 1.0
@@ -354,6 +390,7 @@ ApplicationWindow {
                     intervalStartsInSeconds: -1,
                     intervalMinutes: intervalMinutes,
                     durationSound: durationSound,
+                    coalesceSeconds: _coalesceSecondsOf(o),
                     sound: (typeof o.sound === "string" && o.sound.trim().length > 0) ? o.sound : "Bell",
                     soundEnabled: (typeof o.soundEnabled === "boolean") ? o.soundEnabled : true,
                     volume: (typeof o.volume === "number") ? o.volume : parseFloat(o.volume || 1.0),
@@ -368,70 +405,6 @@ ApplicationWindow {
         }
     }
 
-    function rescheduleExistingForIndexKeepNextAt(idx) {
-        if (idx < 0 || idx >= actionModel.count) return false;
-
-        const o = actionModel.get(idx);
-        const id = (typeof o.alarmId === "number") ? o.alarmId : 0;
-        if (id <= 0) return false;
-
-        const nextAt = SoundTaskManager.getNextAtMs(id);
-        if (!nextAt || nextAt <= 0) return false;   // wichtig
-
-        const enabled = (o.soundEnabled === undefined) ? true : !!o.soundEnabled;
-        const baseVol = (typeof o.volume === "number" && !isNaN(o.volume)) ? o.volume : 1.0;
-        const effectiveVol = (!app.allSoundsDisabled && enabled)
-                ? Math.max(0.0, Math.min(1.0, baseVol))
-                : 0.0;   // disable => stumm, aber Timer bleibt
-
-        const rawSound = soundRawForName(o.sound);
-        const txt = (typeof o.text === "string" && o.text.length > 0) ? o.text : "Reminder";
-        const mode = (o.mode || "fixed");
-        const durationSound = (typeof o.durationSound === "number")
-                ? o.durationSound
-                : parseInt(o.durationSound || 0)
-
-        if (mode === "fixed") {
-            SoundTaskManager.scheduleWithParams(
-                nextAt, rawSound, id,
-                "DailyActions", txt,
-                "fixedTime",
-                o.fixedTime || "",
-                "", "",
-                "",
-                0,
-                effectiveVol,
-                durationSound
-            );
-            return true;
-        }
-
-        if (mode === "interval") {
-            const intervalMinutes = (typeof o.intervalMinutes === "number")
-                    ? o.intervalMinutes
-                    : parseInt(o.intervalMinutes || 0, 10);
-            const intervalSec = (intervalMinutes > 0) ? intervalMinutes * 60 : 0;
-            if (intervalSec <= 0) return false;
-
-            SoundTaskManager.scheduleWithParams(
-                nextAt, rawSound, id,
-                "DailyActions", txt,
-                "interval",
-                "",
-                o.startTime || "",
-                o.endTime || "",
-                o.startAnchorTime || "",
-                intervalSec,
-                effectiveVol,
-                durationSound
-            );
-            syncUiFromAndroidNextAtOnStartup()
-            return true;
-        }
-
-        return false;
-    }
-
     function loadDefaults() {
         actionModel.clear()
         actionModel.append({
@@ -447,6 +420,7 @@ ApplicationWindow {
             "intervalStartsInSeconds": -1,
             "intervalMinutes": 60,
             "durationSound": 1,
+            "coalesceSeconds": 0,
             "sound": "Bell",
             "soundEnabled": true,
             "volume": 1.0,
@@ -465,6 +439,7 @@ ApplicationWindow {
             "intervalStartsInSeconds": -1,
             "intervalMinutes": 60,
             "durationSound": 1,
+            "coalesceSeconds": 0,
             "sound": "Bell",
             "soundEnabled": true,
             "volume": 1.0,
@@ -497,7 +472,7 @@ ApplicationWindow {
                 role === "fixedTime"
             )) {
 
-            cancelTaskManagerForIndex(idx)
+            // alarmId bleibt; reconcile plant nur neu, weil sich das Timing geändert hat
             actionModel.setProperty(idx, "nextFireMs", 0)
             actionModel.setProperty(idx, "lastFiredMs", 0)
 
@@ -505,29 +480,15 @@ ApplicationWindow {
             scheduleForIndex(idx, nowMs)
             scheduleTaskManagerForIndex(idx, nowMs)
         }
-        if (actionsRunning && (role === "sound" || role === "soundEnabled" || role === "volume")) {
+        if (actionsRunning && (role === "sound" || role === "soundEnabled" || role === "volume" || role === "coalesceSeconds")) {
             dbg("[main] sound changed", "role=", role)
             Qt.callLater(function() {
-                dbg("[main] sound changed start callLater")
-                // 1) Wenn ein Alarm schon läuft: nur Extras updaten, Phase behalten
-
-                if (rescheduleExistingForIndexKeepNextAt(idx)) {
-                    dbg("[main] sound changed -> rescheduled keep phase")
-                    return
-                }
-
-                // 2) Fallback: wenn kein laufender Alarm (oder kein nextAt verfügbar) => normal neu planen
-                dbg("[main] sound changed -> fallback full reschedule")
-                cancelTaskManagerForIndex(idx)
-
+                // nur Inhalt geändert: reconcile behält Phase und nächsten Fire,
+                // disabled/vol=0 entfernt den Alarm, wieder aktiviert plant neu
                 const nowMs = Date.now()
-                scheduleForIndex(idx, nowMs)
-
                 const o = actionModel.get(idx)
-                const enabled = (o.soundEnabled === undefined) ? true : (o.soundEnabled !== false)
-                const vol = Number(o.volume) || 0
-                if (!enabled || vol <= 0) return
-
+                if (!(typeof o.nextFireMs === "number" && o.nextFireMs > nowMs))
+                    scheduleForIndex(idx, nowMs)
                 scheduleTaskManagerForIndex(idx, nowMs)
             })
         }
@@ -547,6 +508,7 @@ ApplicationWindow {
             "intervalStartsInSeconds": -1,
             "intervalMinutes": 60,
             "durationSound": 1,
+            "coalesceSeconds": 0,
             "sound": "Bell",
             "soundEnabled": true,
             "volume": 0.5,
@@ -806,8 +768,11 @@ ApplicationWindow {
     }
 
     function scheduleAllAlarms(nowMs) {
+        // alle Actions in EINEM Aufruf abgleichen (Android alarm scheduling)
+        const indices = []
         for (let i = 0; i < actionModel.count; i++)
-            scheduleTaskManagerForIndex(i, nowMs) // Android alarm scheduling
+            indices.push(i)
+        reconcileAlarms(indices, nowMs)
     }
 
     function actionIdentity(o, fallbackIndex) {
@@ -831,6 +796,7 @@ ApplicationWindow {
             intervalStartsInSeconds: (typeof o.intervalStartsInSeconds === "number") ? o.intervalStartsInSeconds : -1,
             intervalMinutes: (typeof o.intervalMinutes === "number") ? o.intervalMinutes : parseInt(o.intervalMinutes || 0),
             durationSound: (typeof o.durationSound === "number" && !isNaN(o.durationSound)) ? o.durationSound : 1,
+            coalesceSeconds: _coalesceSecondsOf(o),
             sound: (o.sound ?? "Bell"),
             soundEnabled: (typeof o.soundEnabled === "boolean") ? o.soundEnabled : true,
             volume: (typeof o.volume === "number") ? o.volume : parseFloat(o.volume || 1.0),
@@ -1141,14 +1107,23 @@ ApplicationWindow {
     function syncUiFromAndroidNextAtOnStartup() {
         const nowMs = Date.now()
 
+        // je ein Aufruf für alle Actions (positionsgleich zu ids)
+        const ids = []
+        for (let i = 0; i < actionModel.count; i++) {
+            const o = actionModel.get(i)
+            ids.push((typeof o.alarmId === "number") ? o.alarmId : 0)
+        }
+        const scheduled = SoundTaskManager.isScheduledAll(ids)
+        const nextAts = SoundTaskManager.getNextAtMsAll(ids)
+
         for (let i = 0; i < actionModel.count; i++) {
             const o = actionModel.get(i)
-            const id = (typeof o.alarmId === "number") ? o.alarmId : 0
+            const id = ids[i]
             if (id <= 0) continue
 
-            if (!SoundTaskManager.isScheduled(id)) continue
+            if (!scheduled[i]) continue
 
-            const nextAt = SoundTaskManager.getNextAtMs(id)
+            const nextAt = nextAts[i]
             if (!nextAt || nextAt <= 0) continue
 
             actionModel.setProperty(i, "nextFireMs", nextAt)
@@ -1504,6 +1479,7 @@ ApplicationWindow {
                 endTime: model.endTime
                 startAnchorTime: model.startAnchorTime || Qt.formatTime(new Date(), "HH:mm")
                 intervalMinutes: model.intervalMinutes
+                coalesceSeconds: (typeof model.coalesceSeconds === "number") ? model.coalesceSeconds : 0
 
                 nextInMinutes: (app.actionsRunning && typeof model.nextInMinutes === "number") ? model.nextInMinutes : -1
                 nextInSeconds: (app.actionsRunning && typeof model.nextInSeconds === "number") ? model.nextInSeconds : -1
@@ -1543,6 +1519,7 @@ ApplicationWindow {
                 onEndTimeEdited: function(v) { app.setRole(index, "endTime", v) }
                 onStartAnchorTimeEdited: function(v) { app.setRole(index, "startAnchorTime", v) }
                 onIntervalMinutesEdited: function(v) { app.setRole(index, "intervalMinutes", v) }
+                onCoalesceSecondsEdited: function(v) { app.setRole(index, "coalesceSeconds", v) }
                 onSoundEdited: function(v) {
                     app.setRole(index, "sound", v)
                 }
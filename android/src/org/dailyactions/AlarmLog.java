@@ -0,0 +1,350 @@
+package org.dailyactions;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * AlarmLog
+ * - Structured log for the hot paths (schedule, fire, playback): an event is an event id,
+ *   a requestId and up to three long fields - no string is built when the event is recorded
+ * - Disabled levels cost one branch; enabled events go into a preallocated ring buffer
+ * - A background thread formats and flushes them every FLUSH_DELAY_MS to logcat and to the
+ *   same qml.log the Qt message handler writes (AppDataLocation = getFilesDir() on Android)
+ *
+ * Line format (grep by component/event/field):
+ *   [HH:mm:ss.SSS] WRN: AlarmReceiver fire id=777001 planned=2026-10-17T07:30:00.000 lateMs=12 duration=5
+ *
+ * If the ring overflows before a flush, the oldest events are overwritten and the next flush
+ * writes a "dropped=N" line.
+ */
+final class AlarmLog {
+
+    private static final String TAG = "AlarmLog";
+
+    // same values as android.util.Log priorities
+    static final int DEBUG = 3;
+    static final int INFO = 4;
+    static final int WARN = 5;
+    static final int ERROR = 6;
+
+    // --------------------------------------------------------------------------------------------
+    // Events: "<component> <event>|<field>|<field>|<field>"
+    //   field suffix '@' = wall clock ms (printed as local time), '#' = ScheduleSpec.Mode ordinal
+    // --------------------------------------------------------------------------------------------
+    static final int EV_SCHEDULE = 0;
+    static final int EV_SCHEDULED = 1;
+    static final int EV_RESCHEDULE = 2;
+    static final int EV_FIRE = 3;
+    static final int EV_NOTIFY = 4;
+    static final int EV_PLAY_ENGINE = 5;
+    static final int EV_PLAY_DONE = 6;
+    static final int EV_PLAY_MUTED = 7;
+    static final int EV_PLAY_MEDIAPLAYER = 8;
+    static final int EV_PLAY_COMPLETED = 9;
+    static final int EV_PLAY_HARD_STOP = 10;
+    static final int EV_PLAY_STOP = 11;
+    static final int EV_ENGINE_PLAY = 12;
+    static final int EV_WAKELOCK = 13;
+    static final int EV_CATCHUP = 14;
+    static final int EV_CATCHUP_SKIP = 15;
+    static final int EV_RESTORE = 16;
+    static final int EV_RECONCILE = 17;
+    static final int EV_PRE_ROLL = 18;
+    static final int EV_WAKELOCK_EXPIRED = 19;
+    static final int EV_NOTIFY_POST = 20;
+    static final int EV_MUX_PUT = 21;
+    static final int EV_MUX_UPDATE = 22;
+    static final int EV_MUX_REMOVE = 23;
+    static final int EV_MUX_DISPATCH = 24;
+    static final int EV_MUX_REARM = 25;
+    static final int EV_IS_SCHEDULED = 26;
+
+    private static final String[] EVENTS = {
+            /* EV_SCHEDULE         */ "AlarmScheduler schedule|at@|inMs|mode#",
+            /* EV_SCHEDULED        */ "AlarmScheduler scheduled|at@|multiplexed",
+            /* EV_RESCHEDULE       */ "AlarmScheduler reschedule|lastPlanned@|next@|mode#",
+            /* EV_FIRE             */ "AlarmReceiver fire|planned@|lateMs|duration",
+            /* EV_NOTIFY           */ "AlarmReceiver notify|interactive",
+            /* EV_PLAY_ENGINE      */ "AlarmReceiver play|resId|stopAfterMs|mixed",
+            /* EV_PLAY_DONE        */ "AlarmReceiver playDone",
+            /* EV_PLAY_MUTED       */ "AlarmReceiver playMuted",
+            /* EV_PLAY_MEDIAPLAYER */ "AlarmReceiver playMediaPlayer|resId|stopAfterMs|loop",
+            /* EV_PLAY_COMPLETED   */ "AlarmReceiver playCompleted",
+            /* EV_PLAY_HARD_STOP   */ "AlarmReceiver playHardStop|afterMs",
+            /* EV_PLAY_STOP        */ "AlarmReceiver stop|droppedQueued|stoppedCurrent",
+            /* EV_ENGINE_PLAY      */ "AudioEngine play|resId|loop|endAfterMs",
+            /* EV_WAKELOCK         */ "WakeLockManager hold|acquired|ms|holds",
+            /* EV_CATCHUP          */ "AlarmScheduler catchUp|missed@|next@|policy",
+            /* EV_CATCHUP_SKIP     */ "AlarmReceiver skipLate|planned@|lateMs",
+            /* EV_RESTORE          */ "RestoreReceiver restore|actions|ms|clockChanged",
+            /* EV_RECONCILE        */ "AlarmScheduler reconcile|change#|next@",
+            /* EV_PRE_ROLL         */ "AlarmReceiver preRoll|planned@|waitMs|wakeDelayMs",
+            /* EV_WAKELOCK_EXPIRED */ "WakeLockManager expired|heldMs|holds",
+            /* EV_NOTIFY_POST      */ "ReminderNotifier post|fires|shown",
+            /* EV_MUX_PUT          */ "AlarmMultiplexer put|at@|toleranceMs",
+            /* EV_MUX_UPDATE       */ "AlarmMultiplexer updateSpec|toleranceMs",
+            /* EV_MUX_REMOVE       */ "AlarmMultiplexer remove",
+            /* EV_MUX_DISPATCH     */ "AlarmMultiplexer dispatch|now@|due|coalesced",
+            /* EV_MUX_REARM        */ "AlarmMultiplexer rearm|head@|wake@",
+            /* EV_IS_SCHEDULED     */ "AlarmScheduler isScheduled|pending|multiplexed",
+    };
+
+    private static final int MAX_FIELDS = 3;
+    private static final String[] EV_PREFIX = new String[EVENTS.length];
+    private static final String[][] EV_FIELDS = new String[EVENTS.length][];
+    private static final char[][] EV_KINDS = new char[EVENTS.length][];
+
+    static {
+        for (int e = 0; e < EVENTS.length; e++) {
+            final String[] parts = EVENTS[e].split("\\|");
+            EV_PREFIX[e] = parts[0];
+            EV_FIELDS[e] = new String[parts.length - 1];
+            EV_KINDS[e] = new char[parts.length - 1];
+            for (int f = 1; f < parts.length; f++) {
+                final String p = parts[f];
+                final char last = p.charAt(p.length() - 1);
+                final boolean typed = (last == '@' || last == '#');
+                EV_FIELDS[e][f - 1] = typed ? p.substring(0, p.length() - 1) : p;
+                EV_KINDS[e][f - 1] = typed ? last : 'n';
+            }
+        }
+    }
+
+    private static final int CAPACITY = 512; // power of two
+    private static final int FLUSH_DELAY_MS = 500;
+
+    private static volatile int s_minLevel = INFO;
+
+    private static final Object LOCK = new Object();
+    // ring (LOCK)
+    private static final long[] R_TIME = new long[CAPACITY];
+    private static final int[] R_LEVEL = new int[CAPACITY];
+    private static final int[] R_EVENT = new int[CAPACITY];
+    private static final int[] R_ID = new int[CAPACITY];
+    private static final long[] R_A = new long[CAPACITY];
+    private static final long[] R_B = new long[CAPACITY];
+    private static final long[] R_C = new long[CAPACITY];
+    private static int s_head = 0;   // next write
+    private static int s_count = 0;
+    private static int s_dropped = 0;
+    private static boolean s_flushPending = false;
+    private static volatile Handler s_handler = null;
+    private static File s_file = null;
+    private static Context s_app = null; // until s_file is set (locked after boot, see DirectBoot)
+
+    // flush copy (log thread only)
+    private static final long[] F_TIME = new long[CAPACITY];
+    private static final int[] F_LEVEL = new int[CAPACITY];
+    private static final int[] F_EVENT = new int[CAPACITY];
+    private static final int[] F_ID = new int[CAPACITY];
+    private static final long[] F_A = new long[CAPACITY];
+    private static final long[] F_B = new long[CAPACITY];
+    private static final long[] F_C = new long[CAPACITY];
+    private static final StringBuilder F_LINE = new StringBuilder(256);
+    private static final StringBuilder F_OUT = new StringBuilder(CAPACITY * 96);
+    private static final Calendar F_CAL = Calendar.getInstance();
+
+    private AlarmLog() {}
+
+    /** Sets the log file (qml.log in getFilesDir) and starts the flush thread; idempotent. */
+    static void attach(Context ctx) {
+        if (s_handler != null || ctx == null) return;
+        synchronized (LOCK) {
+            if (s_handler != null) return;
+            // qml.log is in credential storage: before the first unlock logcat only
+            s_app = ctx.getApplicationContext();
+            if (DirectBoot.isUserUnlocked(s_app)) s_file = new File(s_app.getFilesDir(), "qml.log");
+            final HandlerThread t = new HandlerThread("DailyActionsLog", Process.THREAD_PRIORITY_BACKGROUND);
+            t.start();
+            s_handler = new Handler(t.getLooper());
+            scheduleFlushLocked();
+        }
+    }
+
+    static void setMinLevel(int level) {
+        s_minLevel = level;
+    }
+
+    static boolean isEnabled(int level) {
+        return level >= s_minLevel;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Recording (any thread)
+    // --------------------------------------------------------------------------------------------
+
+    static void d(int event, int id, long a, long b, long c) {
+        if (DEBUG < s_minLevel) return;
+        put(DEBUG, event, id, a, b, c);
+    }
+
+    static void i(int event, int id, long a, long b, long c) {
+        if (INFO < s_minLevel) return;
+        put(INFO, event, id, a, b, c);
+    }
+
+    static void w(int event, int id, long a, long b, long c) {
+        if (WARN < s_minLevel) return;
+        put(WARN, event, id, a, b, c);
+    }
+
+    private static void put(int level, int event, int id, long a, long b, long c) {
+        final long now = System.currentTimeMillis();
+        synchronized (LOCK) {
+            final int i = s_head;
+            R_TIME[i] = now;
+            R_LEVEL[i] = level;
+            R_EVENT[i] = event;
+            R_ID[i] = id;
+            R_A[i] = a;
+            R_B[i] = b;
+            R_C[i] = c;
+            s_head = (i + 1) & (CAPACITY - 1);
+            if (s_count < CAPACITY) s_count++;
+            else s_dropped++;
+            if (!s_flushPending) scheduleFlushLocked();
+        }
+    }
+
+    // LOCK held
+    private static void scheduleFlushLocked() {
+        if (s_handler == null || s_count == 0) return;
+        s_flushPending = true;
+        s_handler.postDelayed(AlarmLog::flush, FLUSH_DELAY_MS);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Flush (log thread)
+    // --------------------------------------------------------------------------------------------
+
+    private static void flush() {
+        final int n;
+        final int dropped;
+        File file;
+        synchronized (LOCK) {
+            n = s_count;
+            dropped = s_dropped;
+            file = s_file;
+            int src = (s_head - n) & (CAPACITY - 1);
+            for (int k = 0; k < n; k++) {
+                F_TIME[k] = R_TIME[src];
+                F_LEVEL[k] = R_LEVEL[src];
+                F_EVENT[k] = R_EVENT[src];
+                F_ID[k] = R_ID[src];
+                F_A[k] = R_A[src];
+                F_B[k] = R_B[src];
+                F_C[k] = R_C[src];
+                src = (src + 1) & (CAPACITY - 1);
+            }
+            s_count = 0;
+            s_dropped = 0;
+            s_flushPending = false;
+        }
+
+        F_CAL.setTimeZone(TimeZone.getDefault());
+        F_OUT.setLength(0);
+        if (dropped > 0) {
+            appendTime(F_OUT.append('['), System.currentTimeMillis(), false)
+                    .append("] WRN: AlarmLog dropped=").append(dropped).append('\n');
+            Log.w(TAG, "ring overflow, dropped=" + dropped);
+        }
+        for (int k = 0; k < n; k++) {
+            format(k);
+            Log.println(F_LEVEL[k], "DailyActions", F_LINE.toString());
+            appendTime(F_OUT.append('['), F_TIME[k], false).append("] ")
+                    .append(levelName(F_LEVEL[k])).append(": ").append(F_LINE).append('\n');
+        }
+
+        if (F_OUT.length() == 0) return;
+        if (file == null) {
+            file = unlockedFile();
+            if (file == null) return;
+        }
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            // ein write() im Append-Modus: Zeilen der C++-Seite werden nicht zerschnitten
+            out.write(F_OUT.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (Throwable t) {
+            Log.w(TAG, "flush to " + file + " failed: " + t);
+        }
+    }
+
+    // log thread; qml.log once the user has unlocked (null before)
+    private static File unlockedFile() {
+        final Context app;
+        synchronized (LOCK) {
+            if (s_file != null) return s_file;
+            app = s_app;
+        }
+        if (app == null || !DirectBoot.isUserUnlocked(app)) return null;
+        final File f = new File(app.getFilesDir(), "qml.log");
+        synchronized (LOCK) {
+            s_file = f;
+        }
+        return f;
+    }
+
+    private static void format(int k) {
+        final int ev = F_EVENT[k];
+        final StringBuilder sb = F_LINE;
+        sb.setLength(0);
+        if (ev < 0 || ev >= EVENTS.length) {
+            sb.append("AlarmLog event=").append(ev).append(" id=").append(F_ID[k]);
+            return;
+        }
+        sb.append(EV_PREFIX[ev]).append(" id=").append(F_ID[k]);
+        final String[] names = EV_FIELDS[ev];
+        final char[] kinds = EV_KINDS[ev];
+        for (int f = 0; f < names.length && f < MAX_FIELDS; f++) {
+            final long v = (f == 0) ? F_A[k] : (f == 1) ? F_B[k] : F_C[k];
+            sb.append(' ').append(names[f]).append('=');
+            if (kinds[f] == '@') {
+                if (v > 0) appendTime(sb, v, true);
+                else sb.append(v);
+            } else if (kinds[f] == '#') {
+                final ScheduleSpec.Mode[] modes = ScheduleSpec.Mode.values();
+                sb.append((v >= 0 && v < modes.length) ? modes[(int) v].name() : String.valueOf(v));
+            } else {
+                sb.append(v);
+            }
+        }
+    }
+
+    // HH:mm:ss.SSS, with date (yyyy-MM-ddT...) if withDate
+    private static StringBuilder appendTime(StringBuilder sb, long ms, boolean withDate) {
+        final Calendar c = F_CAL;
+        c.setTimeInMillis(ms);
+        if (withDate) {
+            sb.append(c.get(Calendar.YEAR)).append('-');
+            pad(sb, c.get(Calendar.MONTH) + 1, 2).append('-');
+            pad(sb, c.get(Calendar.DAY_OF_MONTH), 2).append('T');
+        }
+        pad(sb, c.get(Calendar.HOUR_OF_DAY), 2).append(':');
+        pad(sb, c.get(Calendar.MINUTE), 2).append(':');
+        pad(sb, c.get(Calendar.SECOND), 2).append('.');
+        return pad(sb, c.get(Calendar.MILLISECOND), 3);
+    }
+
+    private static StringBuilder pad(StringBuilder sb, int v, int width) {
+        for (int p = (width == 3 ? 100 : 10); p > 1 && v < p; p /= 10) sb.append('0');
+        return sb.append(v);
+    }
+
+    // same tags as the Qt message handler in main.cpp
+    private static String levelName(int level) {
+        switch (level) {
+            case DEBUG: return "DBG";
+            case INFO:  return "INF";
+            case WARN:  return "WRN";
+            default:    return "CRT";
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package org.dailyactions;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * AlarmMetrics
+ * - Latency histograms of the alarm pipeline (trigger -> notification -> reschedule -> audio)
+ *   and a few counters (fires, drops, 'bell' fallbacks, exact alarm denials)
+ * - Fixed 1-2-5 buckets from 100us to 500s (+ overflow); values are kept in microseconds
+ * - Recording is allocation-free: a few putLong() into a memory-mapped file, so the numbers
+ *   survive process restarts (same scheme as ScheduleStore, heap buffer if mmap fails)
+ * - snapshotJson() is the single read path (AlarmScheduler.getMetricsJson -> JNI -> C++)
+ *
+ * The Context is only needed to open the file; once it is open, ctx may be null (e.g. from
+ * AlarmReceiver.stopPlaying). Negative values (a coalesced action dispatched before its
+ * planned time) land in the first bucket; min/max/sum are kept as recorded.
+ */
+final class AlarmMetrics {
+
+    private static final String TAG = "AlarmMetrics";
+
+    static final String FILE_NAME = "dailyactions_metrics.bin";
+
+    // histograms
+    static final int H_LATENESS = 0;         // planned trigger -> onReceive / dispatch
+    static final int H_RECEIVER = 1;         // onReceive -> PendingResult.finish() (goAsync)
+    static final int H_RESCHEDULE = 2;       // AlarmScheduler.rescheduleNext
+    static final int H_SOUND_PREPARE = 3;    // decode + track setup (AudioEngine) or MediaPlayer.prepare
+    static final int H_QUEUE_WAIT = 4;       // enqueue -> start of playback in PLAY_Q
+    static final int H_PLAYBACK = 5;         // start -> end of a sound
+    static final int H_TRIGGER_TO_AUDIO = 6; // planned trigger -> play() of the sound
+    static final int H_RECEIVER_DISPATCH = 7; // onReceive -> start on the receiver worker
+    static final int H_NOTIFICATION = 8;     // ReminderNotifier.flush (children + summary of one batch)
+    static final int H_RESTORE = 9;          // RestoreReceiver: re-arm of all actions (boot / time change)
+    static final int H_WAKE_DELAY = 10;      // time the system alarm was set for -> receiver worker (pre-roll lead)
+    static final int H_WAKELOCK_HOLD = 11;   // one WakeLockManager.Hold: acquire -> release / expiry
+    static final int HISTOGRAM_COUNT = 12;
+
+    private static final String[] HISTOGRAM_NAMES = {
+            "lateness", "receiver", "reschedule", "soundPrepare", "queueWait", "playback", "triggerToAudio",
+            "receiverDispatch", "notification", "restore", "wakeDelay", "wakeLockHold"
+    };
+
+    // counters
+    static final int C_FIRES = 0;
+    static final int C_DROPS = 1;                 // sound of a fire not played (cancelled in queue, no sound, error, spec lost)
+    static final int C_BELL_FALLBACKS = 2;
+    static final int C_EXACT_DENIED = 3;          // canScheduleExactAlarms()=false or SecurityException
+    static final int C_MEDIAPLAYER_FALLBACKS = 4; // AudioEngine could not play the sound
+    static final int C_CATCHUP_RESYNCS = 5;       // late delivery: jumped over missed slots (CatchUpPolicy)
+    static final int C_CATCHUP_SKIPS = 6;         // late fire dropped (CatchUpPolicy.SKIP)
+    static final int C_AWAKE_MS = 7;              // ms the CPU was kept awake by WakeLockManager (overlaps once)
+    static final int C_WAKELOCK_EXPIRED = 8;      // Holds closed by their safety timeout, not by the work
+    static final int C_NOTIFY_COALESCED = 9;      // notifications saved by ReminderNotifier (same action fired twice in one flush)
+    static final int COUNTER_COUNT = 10;
+
+    private static final String[] COUNTER_NAMES = {
+            "fires", "drops", "bellFallbacks", "exactAlarmDenied", "mediaPlayerFallbacks",
+            "catchUpResyncs", "catchUpSkips", "awakeMs", "wakeLockExpired", "notifyCoalesced"
+    };
+
+    // upper bounds (inclusive) in us; last bucket = overflow
+    private static final long[] BOUNDS_US = {
+            100L, 200L, 500L,
+            1_000L, 2_000L, 5_000L,
+            10_000L, 20_000L, 50_000L,
+            100_000L, 200_000L, 500_000L,
+            1_000_000L, 2_000_000L, 5_000_000L,
+            10_000_000L, 20_000_000L, 50_000_000L,
+            100_000_000L, 200_000_000L, 500_000_000L
+    };
+    static final int BUCKET_COUNT = BOUNDS_US.length + 1;
+
+    private static final int MAGIC = 0x44414D54; // "DAMT"
+    private static final int VERSION = 1;
+
+    // header
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_HISTOGRAMS = 8;
+    private static final int H_BUCKETS = 12;
+    private static final int H_COUNTERS = 16;
+    private static final int H_SINCE = 24;   // long, wall clock of the first/last reset
+
+    // histogram block: count, sum, min, max, buckets[]
+    private static final int HB_COUNT = 0;
+    private static final int HB_SUM = 8;
+    private static final int HB_MIN = 16;
+    private static final int HB_MAX = 24;
+    private static final int HB_BUCKETS = 32;
+    private static final int HB_SIZE = HB_BUCKETS + BUCKET_COUNT * 8;
+
+    private static final int COUNTERS_OFFSET = HEADER_SIZE;
+    private static final int HISTOGRAMS_OFFSET = COUNTERS_OFFSET + COUNTER_COUNT * 8;
+    private static final int FILE_SIZE = HISTOGRAMS_OFFSET + HISTOGRAM_COUNT * HB_SIZE;
+
+    private static final Object LOCK = new Object();
+    private static ByteBuffer s_buf = null;
+
+    private AlarmMetrics() {}
+
+    // --------------------------------------------------------------------------------------------
+    // Recording (any thread)
+    // --------------------------------------------------------------------------------------------
+
+    static void count(Context ctx, int counter) {
+        add(ctx, counter, 1L);
+    }
+
+    static void add(Context ctx, int counter, long delta) {
+        try {
+            synchronized (LOCK) {
+                final ByteBuffer b = buf(ctx);
+                if (b == null) return;
+                final int off = COUNTERS_OFFSET + counter * 8;
+                b.putLong(off, b.getLong(off) + delta);
+            }
+        } catch (Throwable t) {
+            Log.w(TAG, "add failed: " + t);
+        }
+    }
+
+    static void recordMs(Context ctx, int histogram, long ms) {
+        recordUs(ctx, histogram, ms * 1000L);
+    }
+
+    static void recordSinceNanos(Context ctx, int histogram, long startNanos) {
+        recordUs(ctx, histogram, (System.nanoTime() - startNanos) / 1000L);
+    }
+
+    static void recordUs(Context ctx, int histogram, long us) {
+        try {
+            synchronized (LOCK) {
+                final ByteBuffer b = buf(ctx);
+                if (b == null) return;
+                final int base = HISTOGRAMS_OFFSET + histogram * HB_SIZE;
+                final long n = b.getLong(base + HB_COUNT);
+                b.putLong(base + HB_COUNT, n + 1);
+                b.putLong(base + HB_SUM, b.getLong(base + HB_SUM) + us);
+                if (n == 0 || us < b.getLong(base + HB_MIN)) b.putLong(base + HB_MIN, us);
+                if (n == 0 || us > b.getLong(base + HB_MAX)) b.putLong(base + HB_MAX, us);
+                final int off = base + HB_BUCKETS + bucketOf(us) * 8;
+                b.putLong(off, b.getLong(off) + 1);
+            }
+        } catch (Throwable t) {
+            Log.w(TAG, "record failed: " + t);
+        }
+    }
+
+    static int bucketOf(long us) {
+        // binary search for the first bound >= us
+        int lo = 0;
+        int hi = BOUNDS_US.length;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (BOUNDS_US[mid] < us) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Read / reset
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * {"sinceMs":..,"counters":{"fires":..,..},
+     *  "histograms":{"lateness":{"count","sumUs","minUs","maxUs","meanUs","p50Us","p90Us","p99Us","counts":[..]},..},
+     *  "boundsUs":[..]}
+     * Percentiles are bucket upper bounds (max for the overflow bucket).
+     */
+    static String snapshotJson(Context ctx) {
+        return snapshotJson(ctx, null);
+    }
+
+    /** As above, plus "awakeMsByAction":{..} (WakeLockManager.awakeByActionJson) if given. */
+    static String snapshotJson(Context ctx, String awakeMsByAction) {
+        final StringBuilder sb = new StringBuilder(4096);
+        synchronized (LOCK) {
+            final ByteBuffer b = buf(ctx);
+            if (b == null) return "{}";
+
+            sb.append("{\"sinceMs\":").append(b.getLong(H_SINCE));
+
+            sb.append(",\"counters\":{");
+            for (int c = 0; c < COUNTER_COUNT; c++) {
+                if (c > 0) sb.append(',');
+                sb.append('"').append(COUNTER_NAMES[c]).append("\":").append(b.getLong(COUNTERS_OFFSET + c * 8));
+            }
+            sb.append('}');
+
+            sb.append(",\"histograms\":{");
+            for (int h = 0; h < HISTOGRAM_COUNT; h++) {
+                final int base = HISTOGRAMS_OFFSET + h * HB_SIZE;
+                final long n = b.getLong(base + HB_COUNT);
+                final long sum = b.getLong(base + HB_SUM);
+                final long max = b.getLong(base + HB_MAX);
+                if (h > 0) sb.append(',');
+                sb.append('"').append(HISTOGRAM_NAMES[h]).append("\":{")
+                        .append("\"count\":").append(n)
+                        .append(",\"sumUs\":").append(sum)
+                        .append(",\"minUs\":").append(b.getLong(base + HB_MIN))
+                        .append(",\"maxUs\":").append(max)
+                        .append(",\"meanUs\":").append(n > 0 ? sum / n : 0L)
+                        .append(",\"p50Us\":").append(percentile(b, base, n, max, 50))
+                        .append(",\"p90Us\":").append(percentile(b, base, n, max, 90))
+                        .append(",\"p99Us\":").append(percentile(b, base, n, max, 99))
+                        .append(",\"counts\":[");
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(b.getLong(base + HB_BUCKETS + i * 8));
+                }
+                sb.append("]}");
+            }
+            sb.append('}');
+        }
+
+        if (awakeMsByAction != null) sb.append(",\"awakeMsByAction\":").append(awakeMsByAction);
+
+        sb.append(",\"boundsUs\":[");
+        for (int i = 0; i < BOUNDS_US.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(BOUNDS_US[i]);
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /** Percentile (bucket upper bound, us) of a histogram; -1 with fewer than minCount samples. */
+    static long percentileUs(Context ctx, int histogram, int pct, long minCount) {
+        synchronized (LOCK) {
+            final ByteBuffer b = buf(ctx);
+            if (b == null) return -1L;
+            final int base = HISTOGRAMS_OFFSET + histogram * HB_SIZE;
+            final long n = b.getLong(base + HB_COUNT);
+            if (n < Math.max(1L, minCount)) return -1L;
+            return percentile(b, base, n, b.getLong(base + HB_MAX), pct);
+        }
+    }
+
+    static void reset(Context ctx) {
+        synchronized (LOCK) {
+            final ByteBuffer b = buf(ctx);
+            if (b == null) return;
+            clear(b);
+        }
+        Log.i(TAG, "reset");
+    }
+
+    private static long percentile(ByteBuffer b, int base, long n, long max, int pct) {
+        if (n <= 0) return 0L;
+        final long rank = (n * pct + 99) / 100; // ceil
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += b.getLong(base + HB_BUCKETS + i * 8);
+            if (seen >= rank) return (i < BOUNDS_US.length) ? Math.min(BOUNDS_US[i], max) : max;
+        }
+        return max;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // File
+    // --------------------------------------------------------------------------------------------
+
+    // LOCK held
+    private static ByteBuffer buf(Context ctx) {
+        if (s_buf != null) return s_buf;
+        if (ctx == null) return null;
+
+        final File file = new File(DirectBoot.storage(ctx).getFilesDir(), FILE_NAME);
+        ByteBuffer b;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel ch = raf.getChannel()) {
+            b = ch.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (Throwable t) {
+            Log.e(TAG, "mmap failed -> in-memory only", t);
+            b = ByteBuffer.allocate(FILE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (b.getInt(H_MAGIC) != MAGIC
+                || b.getInt(H_VERSION) != VERSION
+                || b.getInt(H_HISTOGRAMS) != HISTOGRAM_COUNT
+                || b.getInt(H_BUCKETS) != BUCKET_COUNT
+                || b.getInt(H_COUNTERS) != COUNTER_COUNT) {
+            clear(b);
+        }
+        s_buf = b;
+        return b;
+    }
+
+    private static void clear(ByteBuffer b) {
+        for (int i = 0; i < FILE_SIZE; i += 8) b.putLong(i, 0L);
+        b.putInt(H_MAGIC, MAGIC);
+        b.putInt(H_VERSION, VERSION);
+        b.putInt(H_HISTOGRAMS, HISTOGRAM_COUNT);
+        b.putInt(H_BUCKETS, BUCKET_COUNT);
+        b.putInt(H_COUNTERS, COUNTER_COUNT);
+        b.putLong(H_SINCE, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,316 @@
+package org.dailyactions;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AlarmMultiplexer
+ * - Keeps the next fire time of every action in one priority queue (WakeupQueue)
+ * - Holds exactly ONE system alarm (setAlarmClock) for the earliest entry
+ * - On wakeup hands every due action back to AlarmReceiver and re-arms for the new head
+ * - Coalescing: an action whose fire time is within its own tolerance (EXTRA_COALESCE_SECONDS)
+ *   after the wakeup is dispatched early with it, instead of waking the device again a few
+ *   seconds later. Its planned time (EXTRA_TRIGGER_AT_MILLIS) stays unchanged.
+ * - Pre-roll (AlarmScheduler.setPreRoll): the system alarm is set the learned lead before the
+ *   head; AlarmReceiver prepares the due sounds and dispatches at the head's planned time
+ *
+ * The queue itself lives in memory; nextAt and the spec of every action are persisted in the
+ * ScheduleStore (record flagged F_MULTIPLEXED), so a cold process (woken by the alarm) can
+ * rebuild it.
+ */
+final class AlarmMultiplexer {
+
+    private static final String TAG = "AlarmMultiplexer";
+
+    static final String ACTION_MUX = "org.dailyactions.ALARM_MUX";
+
+    // requestIds from C++ start at 777001, 0 is never used by an action
+    private static final int MUX_REQUEST_ID = 0;
+
+    /** One due action handed to AlarmReceiver: its spec and the planned fire time. */
+    static final class Due {
+        final ScheduleSpec spec;
+        final long atMs;
+        Due(ScheduleSpec spec, long atMs) {
+            this.spec = spec;
+            this.atMs = atMs;
+        }
+    }
+
+    private static final Object LOCK = new Object();
+    private static final WakeupQueue QUEUE = new WakeupQueue();
+
+    private static boolean s_loaded = false;
+    // -1 => unknown in this process, next rearm() always registers the system alarm
+    private static long s_armedAtMs = -1L;
+    // > 0 while a dispatch or batch is open on this thread (re-arm once at its end); per thread,
+    // so a UI-thread change during a receiver dispatch re-arms right away
+    private static final ThreadLocal<int[]> HOLD = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private AlarmMultiplexer() {}
+
+    // --------------------------------------------------------------------------------------------
+    // Queue maintenance
+    // --------------------------------------------------------------------------------------------
+    private static void ensureLoadedLocked(Context app) {
+        if (s_loaded) return;
+        s_loaded = true;
+
+        try {
+            final ScheduleStore store = ScheduleStore.get(app);
+            for (int id : store.ids()) {
+                if (!store.isMultiplexed(id)) continue;
+                final long atMs = store.getNextAtMs(id);
+                if (atMs <= 0L) continue;
+
+                // only the tolerance is needed here; the full spec is compiled on dispatch
+                QUEUE.put(id, atMs, store.coalesceSeconds(id) * 1000L);
+            }
+            Log.i(TAG, "loaded queue size=" + QUEUE.size());
+        } catch (Throwable t) {
+            Log.e(TAG, "ensureLoaded failed", t);
+        }
+    }
+
+    /**
+     * Stores/updates the spec of one action and moves it to atMs in the queue.
+     * The spec is persisted so a cold process can dispatch the action.
+     */
+    static void put(Context ctx, long atMs, ScheduleSpec spec) {
+        if (ctx == null || spec == null || spec.requestId <= 0) return;
+        final Context app = ctx.getApplicationContext();
+        final int requestId = spec.requestId;
+
+        ScheduleStore.get(app).putSpec(spec, true);
+
+        synchronized (LOCK) {
+            ensureLoadedLocked(app);
+
+            QUEUE.put(requestId, atMs, spec.coalesceSeconds * 1000L);
+        }
+        AlarmLog.i(AlarmLog.EV_MUX_PUT, requestId, atMs, spec.coalesceSeconds * 1000L, 0L);
+
+        rearm(app);
+    }
+
+    /**
+     * Replaces the spec of a queued action without moving it (AlarmScheduler.reconcile, only the
+     * content changed): the fire time and therefore the system alarm stay as they are.
+     */
+    static void updateSpec(Context ctx, ScheduleSpec spec) {
+        if (ctx == null || spec == null || spec.requestId <= 0) return;
+        final Context app = ctx.getApplicationContext();
+
+        ScheduleStore.get(app).putSpec(spec, true);
+        synchronized (LOCK) {
+            ensureLoadedLocked(app);
+            QUEUE.setTolerance(spec.requestId, spec.coalesceSeconds * 1000L);
+        }
+        AlarmLog.d(AlarmLog.EV_MUX_UPDATE, spec.requestId, spec.coalesceSeconds * 1000L, 0L, 0L);
+    }
+
+    /** Planned fire time of the queue head, 0 if the queue is empty. */
+    static long headAtMs(Context ctx) {
+        if (ctx == null) return 0L;
+        synchronized (LOCK) {
+            ensureLoadedLocked(ctx.getApplicationContext());
+            return QUEUE.peekAt();
+        }
+    }
+
+    /** Pre-roll: prepares the sounds of everything due at atMs before it is dispatched. */
+    static void preloadDue(Context ctx, long atMs) {
+        final Context app = ctx.getApplicationContext();
+        final int[] ids;
+        synchronized (LOCK) {
+            ensureLoadedLocked(app);
+            ids = QUEUE.idsDueBy(atMs);
+        }
+        for (int id : ids) {
+            final ScheduleSpec spec = ScheduleSpec.load(app, id);
+            if (spec != null) AudioEngine.preload(app, spec.soundResId);
+        }
+    }
+
+    static boolean contains(Context ctx, int requestId) {
+        if (ctx == null || requestId <= 0) return false;
+        synchronized (LOCK) {
+            ensureLoadedLocked(ctx.getApplicationContext());
+            return QUEUE.contains(requestId);
+        }
+    }
+
+    // true while the action is known to the multiplexer (also during its own dispatch)
+    static boolean hasSpec(Context ctx, int requestId) {
+        if (ctx == null || requestId <= 0) return false;
+        return ScheduleStore.get(ctx).isMultiplexed(requestId);
+    }
+
+    static void remove(Context ctx, int requestId) {
+        if (ctx == null || requestId <= 0) return;
+        final Context app = ctx.getApplicationContext();
+
+        final boolean removed;
+        synchronized (LOCK) {
+            ensureLoadedLocked(app);
+            removed = QUEUE.remove(requestId);
+        }
+        ScheduleStore.get(app).clearSpec(requestId);
+
+        if (removed) {
+            AlarmLog.i(AlarmLog.EV_MUX_REMOVE, requestId, 0L, 0L, 0L);
+            rearm(app);
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Dispatch (called from AlarmReceiver on ACTION_MUX)
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * Pops every action due at nowMs (or within its coalescing tolerance after it) and returns
+     * them in fire-time order, each with its compiled spec and planned time.
+     * Re-arming is deferred until {@link #endDispatch(Context)}.
+     */
+    static List<Due> beginDispatch(Context ctx, long nowMs) {
+        final Context app = ctx.getApplicationContext();
+        final ArrayList<WakeupQueue.Entry> due;
+        final int[] early = new int[1];
+
+        synchronized (LOCK) {
+            ensureLoadedLocked(app);
+            HOLD.get()[0]++;
+            // the system alarm that woke us is gone now
+            s_armedAtMs = -1L;
+
+            // Coalescing: mitnehmen, was innerhalb seiner eigenen Toleranz ohnehin gleich dran wäre.
+            due = QUEUE.popDue(nowMs, early);
+        }
+
+        final ArrayList<Due> out = new ArrayList<>(due.size());
+        for (WakeupQueue.Entry e : due) {
+            final ScheduleSpec spec = ScheduleSpec.load(app, e.requestId);
+            if (spec == null) {
+                // sonst bleibt der Record multiplexed und kommt bei jedem Kaltstart wieder in die Queue
+                Log.w(TAG, "dispatch: missing spec id=" + e.requestId);
+                ScheduleStore.get(app).clearSpec(e.requestId);
+                AlarmMetrics.count(app, AlarmMetrics.C_DROPS);
+                continue;
+            }
+            out.add(new Due(spec, e.atMs));
+        }
+
+        AlarmLog.i(AlarmLog.EV_MUX_DISPATCH, 0, nowMs, out.size(), early[0]);
+        return out;
+    }
+
+    static void endDispatch(Context ctx) {
+        release(ctx);
+    }
+
+    // System alarms are gone after a reboot: the next rearm() registers again even if the head
+    // is unchanged (RestoreReceiver)
+    static void forgetArmed() {
+        synchronized (LOCK) {
+            s_armedAtMs = -1L;
+        }
+    }
+
+    // Defers re-arming on the calling thread (AlarmScheduler.beginBatch/commit); calls must be
+    // paired on the same thread
+    static void hold() {
+        HOLD.get()[0]++;
+    }
+
+    static void release(Context ctx) {
+        final int[] depth = HOLD.get();
+        if (depth[0] > 0) depth[0]--;
+        rearm(ctx.getApplicationContext());
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // System alarm (exactly one)
+    // --------------------------------------------------------------------------------------------
+    static void rearm(Context app) {
+        final long headAt;
+        final long wakeAt;
+        if (HOLD.get()[0] > 0) return;
+        synchronized (LOCK) {
+            ensureLoadedLocked(app);
+
+            headAt = QUEUE.peekAt();
+            // pre-roll: the system alarm goes off the learned lead before the head
+            wakeAt = (headAt > 0L) ? AlarmScheduler.wakeAtFor(app, headAt, SchedulerClock.now()) : 0L;
+            if (wakeAt == s_armedAtMs) return; // unchanged -> no binder call
+            s_armedAtMs = wakeAt;
+        }
+
+        try {
+            AlarmManager am = (AlarmManager) app.getSystemService(Context.ALARM_SERVICE);
+            if (am == null) {
+                Log.w(TAG, "AlarmManager == null");
+                return;
+            }
+
+            if (headAt <= 0L) {
+                PendingIntent pi = PendingIntent.getBroadcast(app, MUX_REQUEST_ID, buildMuxIntent(app, 0L), noCreateFlags());
+                if (pi != null) {
+                    am.cancel(pi);
+                    pi.cancel();
+                }
+                AlarmLog.i(AlarmLog.EV_MUX_REARM, 0, 0L, 0L, 0L); // queue empty -> system alarm cancelled
+                return;
+            }
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !am.canScheduleExactAlarms()) {
+                Log.w(TAG, "No permission to schedule exact alarms (canScheduleExactAlarms=false)");
+                AlarmMetrics.count(app, AlarmMetrics.C_EXACT_DENIED);
+                synchronized (LOCK) { s_armedAtMs = -1L; }
+                return;
+            }
+
+            PendingIntent pi = PendingIntent.getBroadcast(app, MUX_REQUEST_ID, buildMuxIntent(app, wakeAt), updateFlags());
+
+            Intent show = new Intent(app, org.qtproject.qt.android.bindings.QtActivity.class);
+            show.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+            PendingIntent showPi = PendingIntent.getActivity(app, MUX_REQUEST_ID, show, updateFlags());
+
+            am.setAlarmClock(new AlarmManager.AlarmClockInfo(wakeAt, showPi), pi);
+            AlarmLog.i(AlarmLog.EV_MUX_REARM, 0, headAt, wakeAt, 0L);
+        } catch (Throwable t) {
+            synchronized (LOCK) { s_armedAtMs = -1L; }
+            Log.e(TAG, "rearm failed", t);
+        }
+    }
+
+    private static Intent buildMuxIntent(Context app, long wakeAt) {
+        Intent i = new Intent(app, AlarmReceiver.class);
+        i.setAction(ACTION_MUX);
+        if (wakeAt > 0L) i.putExtra(AlarmScheduler.EXTRA_WAKE_AT, wakeAt);
+        return i;
+    }
+
+    private static int updateFlags() {
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) flags |= PendingIntent.FLAG_IMMUTABLE;
+        return flags;
+    }
+
+    private static int noCreateFlags() {
+        int flags = PendingIntent.FLAG_NO_CREATE;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) flags |= PendingIntent.FLAG_IMMUTABLE;
+        return flags;
+    }
+}
@@ -0,0 +1,171 @@
+package org.dailyactions;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AlarmPrefs
+ * - The ONE preference file of the scheduler (flags; per-action state is in ScheduleStore)
+ * - Migrates the former "dailyactions_alarm" file (phase_*) into it on first use
+ * - Batch: all writes between begin() and commit() end up in a single apply()
+ *
+ * A batch belongs to the thread that opened it: a UI-thread write while the receiver worker has
+ * a batch open goes out at once instead of waiting for the worker's commit. Within its thread a
+ * batch is read-your-writes, so code that saves a value and reads it back a few lines later
+ * behaves as without batching.
+ */
+final class AlarmPrefs {
+
+    private static final String TAG = "AlarmPrefs";
+
+    static final String NAME = "dailyactions_prefs";
+    static final String LEGACY_ALARM_NAME = "dailyactions_alarm";
+
+    // marker for "removed in the open batch"
+    private static final Object REMOVED = new Object();
+
+    private static final Object LOCK = new Object();
+
+    private static final class Batch {
+        int depth = 0;
+        final HashMap<String, Object> pending = new HashMap<>();
+    }
+
+    private static final ThreadLocal<Batch> BATCH = new ThreadLocal<Batch>() {
+        @Override
+        protected Batch initialValue() {
+            return new Batch();
+        }
+    };
+
+    private static volatile boolean s_migrated = false;
+
+    private AlarmPrefs() {}
+
+    static SharedPreferences get(Context ctx) {
+        // device-protected storage (DirectBoot): readable before the first unlock
+        final Context app = DirectBoot.storage(ctx);
+        final SharedPreferences sp = app.getSharedPreferences(NAME, Context.MODE_PRIVATE);
+        if (!s_migrated) migrate(app, sp);
+        return sp;
+    }
+
+    private static void migrate(Context app, SharedPreferences sp) {
+        synchronized (LOCK) {
+            if (s_migrated) return;
+            try {
+                final SharedPreferences legacy = app.getSharedPreferences(LEGACY_ALARM_NAME, Context.MODE_PRIVATE);
+                final Map<String, ?> all = legacy.getAll();
+                if (all != null && !all.isEmpty()) {
+                    final SharedPreferences.Editor ed = sp.edit();
+                    for (Map.Entry<String, ?> kv : all.entrySet()) {
+                        final Object v = kv.getValue();
+                        if (v instanceof Long) ed.putLong(kv.getKey(), (Long) v);
+                    }
+                    ed.apply();
+                    legacy.edit().clear().apply();
+                    Log.i(TAG, "migrated " + all.size() + " keys from " + LEGACY_ALARM_NAME);
+                }
+            } catch (Throwable t) {
+                Log.e(TAG, "migrate failed", t);
+            }
+            s_migrated = true;
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Batch
+    // --------------------------------------------------------------------------------------------
+    static void begin() {
+        BATCH.get().depth++;
+    }
+
+    static void commit(Context ctx) {
+        final Batch b = BATCH.get();
+        if (b.depth == 0) return;
+        if (--b.depth > 0) return;
+        if (b.pending.isEmpty()) return;
+        final HashMap<String, Object> ops = new HashMap<>(b.pending);
+        b.pending.clear();
+
+        try {
+            final SharedPreferences.Editor ed = get(ctx).edit();
+            for (Map.Entry<String, Object> kv : ops.entrySet()) {
+                put(ed, kv.getKey(), kv.getValue());
+            }
+            ed.apply();
+        } catch (Throwable t) {
+            Log.e(TAG, "commit failed", t);
+        }
+    }
+
+    private static void put(SharedPreferences.Editor ed, String key, Object v) {
+        if (v == REMOVED) ed.remove(key);
+        else if (v instanceof Long) ed.putLong(key, (Long) v);
+        else if (v instanceof Boolean) ed.putBoolean(key, (Boolean) v);
+        else if (v instanceof String) ed.putString(key, (String) v);
+    }
+
+    private static void write(Context ctx, String key, Object v) {
+        final Batch b = BATCH.get();
+        if (b.depth > 0) {
+            b.pending.put(key, v);
+            return;
+        }
+        final SharedPreferences.Editor ed = get(ctx).edit();
+        put(ed, key, v);
+        ed.apply();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Typed access
+    // --------------------------------------------------------------------------------------------
+    static void putLong(Context ctx, String key, long v) { write(ctx, key, v); }
+    static void putBoolean(Context ctx, String key, boolean v) { write(ctx, key, v); }
+    static void putString(Context ctx, String key, String v) { write(ctx, key, v); }
+    static void remove(Context ctx, String key) { write(ctx, key, REMOVED); }
+
+    static long getLong(Context ctx, String key, long def) {
+        final Object v = BATCH.get().pending.get(key);
+        if (v == REMOVED) return def;
+        if (v instanceof Long) return (Long) v;
+        return get(ctx).getLong(key, def);
+    }
+
+    static boolean getBoolean(Context ctx, String key, boolean def) {
+        final Object v = BATCH.get().pending.get(key);
+        if (v == REMOVED) return def;
+        if (v instanceof Boolean) return (Boolean) v;
+        return get(ctx).getBoolean(key, def);
+    }
+
+    static String getString(Context ctx, String key, String def) {
+        final Object v = BATCH.get().pending.get(key);
+        if (v == REMOVED) return def;
+        if (v instanceof String) return (String) v;
+        return get(ctx).getString(key, def);
+    }
+
+    static boolean contains(Context ctx, String key) {
+        final Object v = BATCH.get().pending.get(key);
+        if (v == REMOVED) return false;
+        if (v != null) return true;
+        return get(ctx).contains(key);
+    }
+
+    // Keys of the store including this thread's open batch (used to rebuild in-memory state)
+    static Set<String> keys(Context ctx) {
+        final HashSet<String> out = new HashSet<>(get(ctx).getAll().keySet());
+        for (Map.Entry<String, Object> kv : BATCH.get().pending.entrySet()) {
+            if (kv.getValue() == REMOVED) out.remove(kv.getKey());
+            else out.add(kv.getKey());
+        }
+        return out;
+    }
+}
@@ -1,34 +1,43 @@
 package org.dailyactions;
 
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.res.AssetFileDescriptor;
 import android.media.AudioAttributes;
 import android.media.AudioManager;
 import android.media.MediaPlayer;
 import android.os.Build;
 import android.os.Handler;
-import android.os.Looper;
+import android.os.HandlerThread;
 import android.os.PowerManager;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.NotificationManagerCompat;
-
-import org.json.JSONObject;
-
 import org.json.JSONObject;
 
 /**
  * AlarmReceiver
  * - Receives AlarmManager triggers (interval / fixed time)
- * - Shows a silent notification (channel is silent)
+ * - onReceive only calls goAsync(); the work runs on one worker thread: sound first,
+ *   then notification + reschedule while it plays, then PendingResult.finish()
+ * - Multiplexed trigger (AlarmMultiplexer.ACTION_MUX): handles every due action, then re-arms once
+ * - Shows a silent notification (channel is silent) through ReminderNotifier, which
+ *   coalesces close fires into one grouped summary
  * - Reschedules interval alarms via AlarmScheduler
- * - Plays a short beep immediately (NO internal queue)
+ * - Plays a short beep immediately via AudioEngine (preloaded static AudioTracks,
+ *   MediaPlayer only as fallback)
+ * - Sounds of one wakeup go through PLAY_Q (PlayQueue: O(1) drop per requestId, one pump);
+ *   the playing sound is one immutable Playing swapped by CAS, so cancel / end / hard stop
+ *   can race without a double finish
+ * - Mix mode (AlarmScheduler.setMixPlayback): every sound starts at once through AudioMixer,
+ *   one Playing per requestId in MIXING; what the mixer cannot play falls back to PLAY_Q
+ * - Pre-roll (AlarmScheduler.setPreRoll): an alarm that arrives before its planned time
+ *   prepares the sound(s) and runs the fire via postAtTime at the planned millisecond;
+ *   the goAsync result (and the receive Hold) stays open until then
+ * - CPU awake via WakeLockManager: one Hold from onReceive to PendingResult.finish, one per
+ *   sound from start to its end (timeout from stopAfterMs); released with the last of them
  *
  * IMPORTANT:
  * If you want strictly sequential playback for multiple actions, de-conflict/stagger at scheduling time.
@@ -38,42 +47,58 @@ public class AlarmReceiver extends BroadcastReceiver {
 
     private static final String TAG = "AlarmReceiver";
 
-    // Notification
-    // IMPORTANT:
-    // - Android NotificationChannel settings are sticky once created.
-    // - We bump the channel id so existing installs immediately get a SILENT channel.
-    private static final String CH_ID   = "dailyactions_reminder_silent_v2";
-    private static final String CH_NAME = "DailyActions";
-    private static final String CH_DESC = "Aktionen/Erinnerungen";
-
     // Hard stop so the beep stays short
     private static final int BEEP_MAX_MS = 1000; // 1.2s
-    private static final int WAKELOCK_MS = 10; // keep CPU awake briefly
+    // WakeLockManager Hold of one receive (goAsync budget; covers a pre-roll wait too)
+    private static final long RECEIVER_HOLD_MS = 10_000L;
 
     // --- PLAYBACK STATE (global) ---
-    private static final Object PLAY_LOCK = new Object();
-    // Currently playing sound (so cancel(id) can stop it immediately)
-    private static int s_playingRequestId = -1;
-    private static MediaPlayer s_playingMp = null;
-    private static PowerManager.WakeLock s_playingWl = null;
-    private static Handler s_playingHandler = null;
-    private static Runnable s_playingHardStop = null;
-    private static Runnable s_playingFinish = null;
-
-    // je nach deiner Implementierung: MediaPlayer oder SoundPool-StreamId
-    private static android.media.MediaPlayer s_mp = null;
+    // The sound that is playing right now as ONE immutable object, swapped via CAS.
+    // Whoever moves it away from a Playing (engine end, completion, hard stop, cancel) releases
+    // its resources and runs its finish - exactly once, whatever races.
+    private static final class Playing {
+        final int requestId;
+        final MediaPlayer mp;             // null => AudioEngine
+        final WakeLockManager.Hold hold;  // CPU awake until the sound ends
+        final Handler handler;            // MediaPlayer hard stop only
+        final Runnable hardStop;
+        final Runnable finish;            // continues PLAY_Q
+
+        Playing(int requestId, MediaPlayer mp, WakeLockManager.Hold hold,
+                Handler handler, Runnable hardStop, Runnable finish) {
+            this.requestId = requestId;
+            this.mp = mp;
+            this.hold = hold;
+            this.handler = handler;
+            this.hardStop = hardStop;
+            this.finish = finish;
+        }
+    }
+
+    private static final Playing IDLE = new Playing(-1, null, null, null, null, null);
+    private static final java.util.concurrent.atomic.AtomicReference<Playing> s_playing =
+            new java.util.concurrent.atomic.AtomicReference<>(IDLE);
 
     private static final class QueueItem {
         final SoundEvent e;
         final int intervalCapMs; // -1 => no cap
-        QueueItem(SoundEvent e, int intervalCapMs) {
+        final long plannedAtMs;  // -1 => unknown (metrics only)
+        final long queuedAtNanos;
+        QueueItem(SoundEvent e, int intervalCapMs, long plannedAtMs) {
             this.e = e;
             this.intervalCapMs = intervalCapMs;
+            this.plannedAtMs = plannedAtMs;
+            this.queuedAtNanos = System.nanoTime();
         }
     }
 
-    private static final java.util.ArrayDeque<QueueItem> PLAY_Q = new java.util.ArrayDeque<>();
-    private static boolean PLAYING = false;
+    // pending sounds (indexed by requestId) + the pump token, see PlayQueue
+    private static final PlayQueue<QueueItem> PLAY_Q = new PlayQueue<>();
+
+    // mix mode: sounds playing in AudioMixer, per requestId. Whoever removes a Playing
+    // (end, stop, failure) releases it - remove(id, p) decides the race like the CAS above.
+    private static final java.util.concurrent.ConcurrentHashMap<Integer, Playing> MIXING =
+            new java.util.concurrent.ConcurrentHashMap<>();
 
     // Immutable-ish data object (copy on read).
     // Inside ExpectedActions
@@ -81,6 +106,7 @@ public class AlarmReceiver extends BroadcastReceiver {
     private static final class SoundEvent {
         final int requestId;
         final String soundName;
+        final int soundResId; // 0 => resolve by name
         final float  volume01;
         final int duration;
 
@@ -89,8 +115,17 @@ public class AlarmReceiver extends BroadcastReceiver {
                String soundName,
                final float volume01,
                int    duration) {
+            this(requestId, soundName, 0, volume01, duration);
+        }
+
+        SoundEvent(int requestId,
+               String soundName,
+               int    soundResId,
+               final float volume01,
+               int    duration) {
             this.requestId  = requestId;
             this.soundName = soundName;
+            this.soundResId = soundResId;
             this.volume01 = volume01;
             this.duration = duration;
         }
@@ -100,6 +135,7 @@ public class AlarmReceiver extends BroadcastReceiver {
             return new SoundEvent(
                     requestId,
                     soundName,
+                    soundResId,
                     volume01,
                     duration
             );
@@ -138,192 +174,351 @@ public class AlarmReceiver extends BroadcastReceiver {
     public static void stopSoundForRequestId(Context ctx, int requestId) {
         if (ctx == null) return;
         if (requestId <= 0) return;
+        stopRequest(ctx.getApplicationContext(), requestId, "stopSoundForRequestId");
+    }
 
-        final Context app = ctx.getApplicationContext();
-
-        MediaPlayer mpToStop = null;
-
-        synchronized (PLAY_LOCK) {
-            // 1) queued items dieser requestId entfernen (PLAY_Q enthält QueueItem, NICHT SoundEvent)
-            if (!PLAY_Q.isEmpty()) {
-                final java.util.ArrayDeque<QueueItem> kept = new java.util.ArrayDeque<>();
-                while (!PLAY_Q.isEmpty()) {
-                    QueueItem qi = PLAY_Q.pollFirst();
-                    if (qi == null) continue;
-
-                    final SoundEvent e = qi.e;
-                    if (e != null && e.requestId == requestId) {
-                        Log.w(TAG, "stopSoundForRequestId: drop queued id=" + requestId);
-                    } else {
-                        kept.addLast(qi);
-                    }
-                }
-                PLAY_Q.addAll(kept);
-            }
+    /**
+     * Called from AlarmScheduler.cancel(...) where no Context is available.
+     * Stops the currently playing sound for the given requestId and removes queued items.
+     * The queue continues through the finish of the stopped sound (no Context needed).
+     */
+    public static void stopPlaying(int requestId) {
+        if (requestId <= 0) return;
+        stopRequest(null, requestId, "stopPlaying");
+    }
 
-            // 2) aktuell spielenden Ton stoppen, wenn es derselbe requestId ist
-            if (s_playingRequestId == requestId) {
-                Log.w(TAG, "stopSoundForRequestId: stopping CURRENT id=" + requestId);
+    private static void stopRequest(Context app, int requestId, String who) {
+        // queued items dieser requestId: nur deren Knoten aushängen
+        final int dropped = PLAY_Q.removeId(requestId);
+        if (dropped > 0) AlarmMetrics.add(app, AlarmMetrics.C_DROPS, dropped);
+
+        // aktuell spielenden Ton stoppen, wenn es derselbe requestId ist
+        final Playing p = s_playing.get();
+        boolean stopped = p.requestId == requestId && endPlaying(p, true);
+
+        // mix mode: Stimme dieser requestId aus dem Mixer nehmen
+        final Playing m = MIXING.get(requestId);
+        if (m != null && MIXING.remove(requestId, m)) {
+            try { AudioEngine.stop(requestId); } catch (Throwable ignored) {}
+            WakeLockManager.release(m.hold);
+            stopped = true;
+        }
+        if (dropped > 0 || stopped) AlarmLog.w(AlarmLog.EV_PLAY_STOP, requestId, dropped, stopped ? 1 : 0, 0L);
+    }
 
-                mpToStop = s_mp;
+    // Ends p if it is still the current sound. Only the caller whose CAS wins releases the
+    // resources and runs finish; every other (late) caller gets false and does nothing.
+    // finish (= start of the next sound) runs before the Hold goes, so the CPU stays awake
+    // across the whole queue.
+    private static boolean endPlaying(Playing p, boolean stopEngine) {
+        if (p == IDLE || !s_playing.compareAndSet(p, IDLE)) return false;
 
-                // refs löschen
-                s_mp = null;
-                s_playingRequestId = -1;
+        if (p.handler != null && p.hardStop != null) {
+            try { p.handler.removeCallbacks(p.hardStop); } catch (Throwable ignored) {}
+        }
+        if (stopEngine && p.mp == null) {
+            try { AudioEngine.stop(p.requestId); } catch (Throwable ignored) {}
+        }
+        try { safeStopRelease(p.mp); } catch (Throwable ignored) {}
+        try { if (p.finish != null) p.finish.run(); } catch (Throwable t) { Log.w(TAG, "finish failed: " + t); }
+        WakeLockManager.release(p.hold);
+        return true;
+    }
 
-                // Queue darf weiterlaufen
-                PLAYING = false;
+    // --- RECEIVER WORKER ---
+    // onReceive only calls goAsync() and hands over; everything else (spec lookup, sound start,
+    // notification, AlarmManager/store writes, MediaPlayer fallback) runs on this one thread.
+    private static final Object WORKER_LOCK = new Object();
+    private static Handler s_worker = null;
+
+    static Handler worker() {
+        synchronized (WORKER_LOCK) {
+            if (s_worker == null) {
+                final HandlerThread t = new HandlerThread("DailyActionsReceiver", Process.THREAD_PRIORITY_FOREGROUND);
+                t.start();
+                s_worker = new Handler(t.getLooper());
             }
+            return s_worker;
         }
-
-        // außerhalb des Locks stoppen
-        try { safeStopRelease(mpToStop); } catch (Throwable ignored) {}
-
-        // Queue fortsetzen (falls noch etwas drin ist)
-        try { playNextLocked(app); } catch (Throwable ignored) {}
     }
 
-    /**
-     * Called from AlarmScheduler.cancel(...) where no Context is available.
-     * Stops the currently playing sound for the given requestId and removes queued items.
-     * (It cannot continue the queue because it has no Context.)
-     */
-    public static void stopPlaying(int requestId) {
-        if (requestId <= 0) return;
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        final long t0 = System.nanoTime();
+        if (context == null || intent == null) {
+            Log.e(TAG, "onReceive: context or intent is NULL");
+            return;
+        }
 
-        MediaPlayer mpToStop = null;
-        PowerManager.WakeLock wlToRelease = null;
-        Handler hToCancel = null;
-        Runnable hardStopToCancel = null;
-        Runnable finishToRun = null;
-
-        synchronized (PLAY_LOCK) {
-            // queued items entfernen
-            if (!PLAY_Q.isEmpty()) {
-                final java.util.ArrayDeque<QueueItem> kept = new java.util.ArrayDeque<>();
-                while (!PLAY_Q.isEmpty()) {
-                    QueueItem qi = PLAY_Q.pollFirst();
-                    if (qi == null) continue;
-                    final SoundEvent e = qi.e; // wichtig: e
-                    if (e != null && e.requestId == requestId) {
-                        Log.w(TAG, "stopPlaying: drop queued id=" + requestId);
-                    } else {
-                        kept.addLast(qi);
+        final Context appCtx = context.getApplicationContext();
+        AlarmLog.attach(appCtx);
+        // CPU awake from here to PendingResult.finish (the sound takes its own Hold)
+        final boolean mux = AlarmMultiplexer.ACTION_MUX.equals(intent.getAction());
+        final WakeLockManager.Hold hold = WakeLockManager.acquire(
+                appCtx, mux ? 0 : ScheduleSpec.requestIdOf(intent), RECEIVER_HOLD_MS);
+        final PendingResult pr = goAsync();
+        try {
+            worker().post(() -> {
+                AlarmMetrics.recordSinceNanos(appCtx, AlarmMetrics.H_RECEIVER_DISPATCH, t0);
+                long fireAt = 0L;
+                try {
+                    fireAt = preRoll(appCtx, intent);
+                } catch (Throwable t) {
+                    Log.e(TAG, "preRoll failed", t);
+                }
+                final long waitMs = (fireAt > 0L) ? fireAt - SchedulerClock.now() : 0L;
+                final long dispatchAt = fireAt;
+
+                final Runnable work = () -> {
+                    try {
+                        handleOnWorker(appCtx, intent, dispatchAt);
+                    } catch (Throwable t) {
+                        Log.e(TAG, "onReceive (worker) failed", t);
+                    } finally {
+                        AlarmMetrics.recordSinceNanos(appCtx, AlarmMetrics.H_RECEIVER, t0);
+                        if (pr != null) pr.finish();
+                        WakeLockManager.release(hold);
                     }
+                };
+                if (waitMs <= 0L || !worker().postAtTime(work, SystemClock.uptimeMillis() + waitMs)) {
+                    work.run();
                 }
-                PLAY_Q.addAll(kept);
-            }
+            });
+        } catch (Throwable t) {
+            Log.e(TAG, "onReceive: worker post failed", t);
+            if (pr != null) pr.finish();
+            WakeLockManager.release(hold);
+        }
+    }
 
-            // aktuell spielenden Ton stoppen
-            if (s_playingRequestId == requestId) {
-                Log.w(TAG, "stopPlaying: stopping CURRENT id=" + requestId);
+    // Pre-roll: records the wake delay (EXTRA_WAKE_AT) and, if the alarm came before its planned
+    // time, prepares the sound(s) and returns that time; 0 = fire now (also without pre-roll)
+    private static long preRoll(Context appCtx, Intent intent) {
+        final long now = SchedulerClock.now();
+        final long wakeAt = intent.getLongExtra(AlarmScheduler.EXTRA_WAKE_AT, 0L);
+        if (wakeAt > 0L) AlarmMetrics.recordMs(appCtx, AlarmMetrics.H_WAKE_DELAY, now - wakeAt);
+
+        final boolean mux = AlarmMultiplexer.ACTION_MUX.equals(intent.getAction());
+        final long plannedAt = mux ? AlarmMultiplexer.headAtMs(appCtx) : ScheduleSpec.plannedAtOf(intent);
+        final long waitMs = plannedAt - now;
+        // nothing ahead, or further ahead than any lead (head moved, clock changed) -> as before
+        if (plannedAt <= 0L || waitMs <= 0L || waitMs > AlarmScheduler.PRE_ROLL_MAX_MS) return 0L;
+
+        if (mux) {
+            AlarmMultiplexer.preloadDue(appCtx, plannedAt);
+        } else {
+            final ScheduleSpec spec = ScheduleSpec.forIntent(appCtx, intent);
+            if (spec != null) AudioEngine.preload(appCtx, spec.soundResId);
+        }
+        AlarmLog.i(AlarmLog.EV_PRE_ROLL, 0, plannedAt, waitMs, (wakeAt > 0L) ? now - wakeAt : 0L);
+        return plannedAt;
+    }
 
-                mpToStop = s_playingMp;
-                wlToRelease = s_playingWl;
-                hToCancel = s_playingHandler;
-                hardStopToCancel = s_playingHardStop;
-                finishToRun = s_playingFinish;
+    // dispatchAt > 0: pre-rolled fire, runs at (or a few ms after) that planned time
+    private static void handleOnWorker(Context appCtx, Intent intent, long dispatchAt) {
+        if (AlarmMultiplexer.ACTION_MUX.equals(intent.getAction())) {
+            onMultiplexAlarm(appCtx, Math.max(SchedulerClock.now(), dispatchAt));
+            return;
+        }
 
-                s_playingMp = null;
-                s_playingWl = null;
-                s_playingHandler = null;
-                s_playingHardStop = null;
-                s_playingFinish = null;
-                s_playingRequestId = -1;
+        // Einzel-Alarm: Spec aus dem SpecPayload (bzw. Cache), sonst Store / Extras älterer Versionen
+        final ScheduleSpec spec = ScheduleSpec.forIntent(appCtx, intent);
+        if (spec == null) {
+            Log.e(TAG, "onReceive: no requestId in intent");
+            return;
+        }
 
-                PLAYING = false;
-            }
+        final long plannedAtMs = ScheduleSpec.plannedAtOf(intent);
+        if (skipLate(appCtx, spec, plannedAtMs)) {
+            AlarmScheduler.rescheduleNext(appCtx, spec, plannedAtMs);
+            return;
         }
+        // Ton zuerst (läuft auf dem Audio-Thread), dann Notification + Reschedule
+        enqueueAndPlay(appCtx, java.util.Collections.singletonList(fire(appCtx, spec, plannedAtMs)));
+        if (AlarmLog.isEnabled(AlarmLog.DEBUG)) logAudioState(appCtx);
+        notifyAndReschedule(appCtx, spec, plannedAtMs);
+    }
 
-        // außerhalb des Locks stoppen
+    // One system alarm for all actions: dispatch everything that is due (incl. coalesced early
+    // ones), then re-arm once. All sounds of the wakeup go to PLAY_Q first; the notifications
+    // and reschedules follow while they play. The batch coalesces the store/alarm writes of all
+    // reschedules into one commit.
+    private static void onMultiplexAlarm(Context appCtx, long nowMs) {
+        AlarmScheduler.beginBatch(appCtx);
+        final java.util.List<AlarmMultiplexer.Due> due = AlarmMultiplexer.beginDispatch(appCtx, nowMs);
         try {
-            if (hToCancel != null && hardStopToCancel != null) {
-                try { hToCancel.removeCallbacks(hardStopToCancel); } catch (Throwable ignored) {}
+            final java.util.ArrayList<QueueItem> sounds = new java.util.ArrayList<>(due.size());
+            final java.util.ArrayList<AlarmMultiplexer.Due> fired = new java.util.ArrayList<>(due.size());
+            for (AlarmMultiplexer.Due d : due) {
+                try {
+                    if (skipLate(appCtx, d.spec, d.atMs)) {
+                        AlarmScheduler.rescheduleNext(appCtx, d.spec, d.atMs);
+                        continue;
+                    }
+                    fired.add(d);
+                    sounds.add(fire(appCtx, d.spec, d.atMs));
+                } catch (Throwable t) {
+                    Log.e(TAG, "onMultiplexAlarm: sound failed", t);
+                    AlarmMetrics.count(appCtx, AlarmMetrics.C_DROPS);
+                }
             }
-        } catch (Throwable ignored) {}
+            enqueueAndPlay(appCtx, sounds);
+            if (AlarmLog.isEnabled(AlarmLog.DEBUG)) logAudioState(appCtx);
+
+            for (AlarmMultiplexer.Due d : fired) {
+                try {
+                    notifyAndReschedule(appCtx, d.spec, d.atMs);
+                } catch (Throwable t) {
+                    Log.e(TAG, "onMultiplexAlarm: action failed", t);
+                }
+            }
+            // the whole batch is known: one notification transaction now, no coalescing delay
+            ReminderNotifier.flush(appCtx);
+        } finally {
+            AlarmMultiplexer.endDispatch(appCtx);
+            AlarmScheduler.commit(appCtx);
+        }
+    }
 
-        try { safeStopRelease(mpToStop); } catch (Throwable ignored) {}
-        try { releaseWakelock(wlToRelease); } catch (Throwable ignored) {}
-        try { if (finishToRun != null) finishToRun.run(); } catch (Throwable ignored) {}
+    // CatchUpPolicy.SKIP: a fire delivered later than the tolerance is dropped (no sound, no
+    // notification); the caller only reschedules it (to the next future slot)
+    private static boolean skipLate(Context appCtx, ScheduleSpec spec, long plannedAtMs) {
+        if (plannedAtMs <= 0) return false;
+        final long lateByMs = SchedulerClock.now() - plannedAtMs;
+        if (lateByMs <= CatchUpPolicy.LATE_TOLERANCE_MS) return false;
+        if (ScheduleStore.get(appCtx).getCatchUpPolicy(spec.requestId) != CatchUpPolicy.SKIP) return false;
+
+        AlarmMetrics.count(appCtx, AlarmMetrics.C_CATCHUP_SKIPS);
+        AlarmMetrics.recordMs(appCtx, AlarmMetrics.H_LATENESS, lateByMs);
+        AlarmLog.w(AlarmLog.EV_CATCHUP_SKIP, spec.requestId, plannedAtMs, lateByMs, 0L);
+        return true;
     }
 
-    @Override
-    public void onReceive(Context context, Intent intent) {
-        try {
-            final Context appCtx = context.getApplicationContext();
+    // Counts the fire and returns its sound for PLAY_Q (no binder calls)
+    private static QueueItem fire(Context appCtx, ScheduleSpec spec, long plannedAtMs) {
+        final int requestId = spec.requestId;
+        // decodes/prepares the sound on the audio thread (no-op if already loaded)
+        AudioEngine.preload(appCtx, spec.soundResId);
 
-            if (context == null || intent == null) {
-                Log.e(TAG, "onReceive: context or intent is NULL");
-                return;
-            }
+        final long lateByMs = SchedulerClock.now() - plannedAtMs;
+        AlarmMetrics.count(appCtx, AlarmMetrics.C_FIRES);
+        if (plannedAtMs > 0) AlarmMetrics.recordMs(appCtx, AlarmMetrics.H_LATENESS, lateByMs);
 
-            final int requestId = intent.getIntExtra(
-                    AlarmScheduler.EXTRA_REQUEST_ID,
-                    intent.getIntExtra(AlarmScheduler.EXTRA_NOTIF_ID, -1)
-            );
+        AlarmLog.w(AlarmLog.EV_FIRE, requestId, plannedAtMs, lateByMs, spec.durationSound);
+
+        SoundEvent e = new SoundEvent(
+                requestId,
+                spec.soundName,
+                spec.soundResId,
+                spec.volume01,
+                spec.durationSound
+        );
+
+        // intervalCapMs nur bei mode=interval, sonst -1
+        return new QueueItem(e, spec.intervalCapMs(), plannedAtMs);
+    }
+
+    // Notification + reschedule for one action (worker thread, while the sound plays)
+    private static void notifyAndReschedule(Context appCtx, ScheduleSpec spec, long plannedAtMs) {
+        final int requestId = spec.requestId;
+        if (AlarmLog.isEnabled(AlarmLog.DEBUG)) {
             PowerManager pm = (PowerManager) appCtx.getSystemService(Context.POWER_SERVICE);
             boolean interactive = pm != null && pm.isInteractive();
-            Log.w(TAG, "ONRECEIVE id=" + requestId + " interactive=" + interactive + " now=" + new java.util.Date());
-
-            Log.w(TAG, "ONRECEIVE id=" + requestId +
-                  " duration=" + intent.getIntExtra(AlarmScheduler.EXTRA_DURATION_SOUND, 0) +
-                  " volume=" + intent.getFloatExtra(AlarmScheduler.EXTRA_VOLUME01, 1f) +
-                  " trig=" + intent.getLongExtra(AlarmScheduler.EXTRA_TRIGGER_AT_MILLIS, -1) +
-                  " lateBy=" + (System.currentTimeMillis() - intent.getLongExtra(AlarmScheduler.EXTRA_TRIGGER_AT_MILLIS, -1)) + "ms");
-            logAudioState(appCtx);
-            showNotification(appCtx, intent, requestId);
-            Log.w(TAG, "ExpectedActionsXX: execut id=" + requestId);
-
-            // Interval reschedule (does nothing for fixed-time)
-            Log.w(TAG, "ExpectedActionsXX: rescheduleNextFromIntent id=" + requestId);
-            AlarmScheduler.rescheduleNextFromIntent(appCtx, intent);
-
-            SoundEvent e = new SoundEvent(
-                    requestId,
-                    intent.getStringExtra(AlarmScheduler.EXTRA_SOUND_NAME),
-                    intent.getFloatExtra(AlarmScheduler.EXTRA_VOLUME01, 1.0f),
-                    intent.getIntExtra(AlarmScheduler.EXTRA_DURATION_SOUND, 0)
-            );
+            AlarmLog.d(AlarmLog.EV_NOTIFY, requestId, interactive ? 1 : 0, 0L, 0L);
+        }
 
-            // intervalCapMs nur bei mode=interval, sonst -1
-            final String mode = intent.getStringExtra(AlarmScheduler.EXTRA_MODE);
-            final int intervalCapMs;
-            if ("interval".equals(mode)) {
-                final int intervalSec = intent.getIntExtra(AlarmScheduler.EXTRA_INTERVAL_SECONDS, 0);
-                intervalCapMs = (intervalSec > 0) ? (intervalSec * 1000) : -1;
-            } else {
-                intervalCapMs = -1;
-            }
+        // collected; posted by ReminderNotifier.flush (H_NOTIFICATION is recorded there)
+        ReminderNotifier.post(appCtx, spec);
 
-            enqueueAndPlay(appCtx, e, intervalCapMs);        } catch (Throwable t) {
-            Log.e(TAG, "onReceive failed", t);
-        }
+        // Interval reschedule (does nothing for fixed-time)
+        final long tReschedule = System.nanoTime();
+        AlarmScheduler.rescheduleNext(appCtx, spec, plannedAtMs);
+        AlarmMetrics.recordSinceNanos(appCtx, AlarmMetrics.H_RESCHEDULE, tReschedule);
     }
 
-    private static void enqueueAndPlay(Context ctx, SoundEvent e, int intervalCapMs) {
-        if (ctx == null || e == null) return;
-        synchronized (PLAY_LOCK) {
-            PLAY_Q.addLast(new QueueItem(e, intervalCapMs));
-            if (PLAYING) return;
-            PLAYING = true;
+    private static void enqueueAndPlay(Context ctx, java.util.List<QueueItem> items) {
+        if (ctx == null || items == null || items.isEmpty()) return;
+        final Context app = ctx.getApplicationContext();
+        if (AlarmScheduler.isMixPlayback(app)) {
+            for (QueueItem qi : items) mixNow(app, qi);
+            return;
         }
-        playNextLocked(ctx.getApplicationContext());
+        for (QueueItem qi : items) PLAY_Q.add(qi.e.requestId, qi);
+        // nur wer den Pump-Token bekommt, startet; sonst läuft die Queue schon
+        if (PLAY_Q.acquire()) playNext(app);
     }
 
-    private static void playNextLocked(Context appCtx) {
-        final QueueItem qi;
-        synchronized (PLAY_LOCK) {
-            qi = PLAY_Q.pollFirst();
-            if (qi == null) {
-                PLAYING = false;
+    // Mix mode: starts the sound right away in AudioMixer (no waiting for the one before).
+    // Not mixable (no PCM WAV, no output stream) -> sequential path through PLAY_Q.
+    private static void mixNow(Context app, QueueItem qi) {
+        final SoundEvent e = qi.e;
+        final int requestId = e.requestId;
+        AlarmMetrics.recordSinceNanos(app, AlarmMetrics.H_QUEUE_WAIT, qi.queuedAtNanos);
+        try {
+            final float volume01 = clamp01(e.volume01);
+            if (volume01 <= 0.0f) {
+                AlarmLog.i(AlarmLog.EV_PLAY_MUTED, requestId, 0L, 0L, 0L);
+                return;
+            }
+            final int resId = resolveResId(app, e.soundName, e.soundResId);
+            if (resId == 0) {
+                AlarmMetrics.count(app, AlarmMetrics.C_DROPS);
                 return;
             }
+            final int stopAfterMs = stopAfterMsOf(qi);
+
+            final WakeLockManager.Hold hold = WakeLockManager.acquire(app, requestId, WakeLockManager.timeoutFor(stopAfterMs));
+            // before MIXING.put: a stopRequest from then on also drops the still queued mix()
+            final int gen = AudioEngine.generation(requestId);
+            final Playing p = new Playing(requestId, null, hold, null, null, null);
+            final Playing prev = MIXING.put(requestId, p);
+            // the mixer replaces the older voice of this requestId (without its onDone)
+            if (prev != null) WakeLockManager.release(prev.hold);
+
+            final long startNanos = System.nanoTime();
+            final Runnable done = () -> {
+                if (MIXING.remove(requestId, p)) {
+                    WakeLockManager.release(hold);
+                    AlarmLog.d(AlarmLog.EV_PLAY_DONE, requestId, 0L, 0L, 0L);
+                    AlarmMetrics.recordSinceNanos(app, AlarmMetrics.H_PLAYBACK, startNanos);
+                }
+            };
+            final Runnable failed = () -> {
+                // inzwischen per stopPlaying() abgebrochen -> nichts mehr abspielen
+                if (!MIXING.remove(requestId, p)) return;
+                worker().post(() -> {
+                    PLAY_Q.add(requestId, qi);
+                    if (PLAY_Q.acquire()) playNext(app);
+                    WakeLockManager.release(hold);
+                });
+            };
+
+            AlarmLog.i(AlarmLog.EV_PLAY_ENGINE, requestId, resId, stopAfterMs, 1L);
+            if (qi.plannedAtMs > 0) {
+                AlarmMetrics.recordMs(app, AlarmMetrics.H_TRIGGER_TO_AUDIO, System.currentTimeMillis() - qi.plannedAtMs);
+            }
+            AudioEngine.mix(app, requestId, gen, resId, volume01, stopAfterMs, done, failed);
+        } catch (Throwable t) {
+            Log.e(TAG, "mixNow failed", t);
+            AlarmMetrics.count(app, AlarmMetrics.C_DROPS);
         }
+    }
+
+    // Pump: runs only while holding the PLAY_Q token (acquire() / finish of the previous sound)
+    private static void playNext(Context appCtx) {
+        final QueueItem qi = PLAY_Q.pollOrRelease();
+        if (qi == null) return;
 
         final SoundEvent next = qi.e;
+        AlarmMetrics.recordSinceNanos(appCtx, AlarmMetrics.H_QUEUE_WAIT, qi.queuedAtNanos);
+
+        playShortBeep(appCtx, next.requestId, next.soundName, next.soundResId, next.volume01, stopAfterMsOf(qi),
+                qi.plannedAtMs, () -> playNext(appCtx));
+    }
 
+    private static int stopAfterMsOf(QueueItem qi) {
         // duration: hundredth-minutes => ms (1/100 min = 600ms)
-        int durMs = (next.duration > 0) ? (next.duration * 600) : 0;
+        int durMs = (qi.e.duration > 0) ? (qi.e.duration * 600) : 0;
 
         // Cap: darf nicht länger als Interval sein (nur wenn intervalCapMs > 0)
         if (qi.intervalCapMs > 0 && durMs > 0) {
@@ -331,70 +526,131 @@ public class AlarmReceiver extends BroadcastReceiver {
         }
 
         // Fallback: wenn duration nicht gesetzt -> bisheriges Verhalten
-        final int stopAfterMs = (durMs > 0) ? durMs : BEEP_MAX_MS;
-
-        playShortBeep(appCtx, next.requestId, next.soundName, next.volume01, stopAfterMs, () -> playNextLocked(appCtx));
-    }    // Overload with completion callback (used by sequential queue)
+        return (durMs > 0) ? durMs : BEEP_MAX_MS;
+    }
 
     // Wrapper: "einmal kurz" (ohne erzwungene Dauer)
     private static void playShortBeep(Context ctx,int requestId, String soundName, float volume01) {
-        playShortBeep(ctx,requestId, soundName, volume01, /*stopAfterMs=*/0, /*onDone=*/null);
+        playShortBeep(ctx,requestId, soundName, /*resId=*/0, volume01, /*stopAfterMs=*/0, /*plannedAtMs=*/-1L, /*onDone=*/null);
     }
 
     // Optionaler Wrapper: mit Dauer aber ohne Callback
     private static void playShortBeep(Context ctx, int requestId, String soundName, float volume01, int stopAfterMs) {
-        playShortBeep(ctx, requestId, soundName, volume01, stopAfterMs, /*onDone=*/null);
+        playShortBeep(ctx, requestId, soundName, /*resId=*/0, volume01, stopAfterMs, /*plannedAtMs=*/-1L, /*onDone=*/null);
     }
 
-    // EINZIGE Implementierung
-    private static void playShortBeep(Context ctx, int requestId, String soundName, float volume01, int stopAfterMs, Runnable onDone) {
-        final PowerManager.WakeLock[] wlRef = new PowerManager.WakeLock[1];
-        final MediaPlayer[] mpRef = new MediaPlayer[1];
-        final boolean[] doneOnce = new boolean[]{false};
-
+    // EINZIGE Implementierung (knownResId > 0: schon beim Schedulen aufgelöst, kein Lookup)
+    // plannedAtMs > 0: geplante Auslösezeit, nur für triggerToAudio in AlarmMetrics
+    // onDone läuft genau einmal: direkt (nichts gespielt) oder über endPlaying() des Playing
+    private static void playShortBeep(Context ctx, int requestId, String soundName, int knownResId, float volume01, int stopAfterMs,
+                                      long plannedAtMs, Runnable onDone) {
         final Runnable finish = () -> {
-            if (doneOnce[0]) return;
-            doneOnce[0] = true;
             try { if (onDone != null) onDone.run(); } catch (Throwable ignored) {}
         };
+        WakeLockManager.Hold hold = null;
+        Playing started = null;
 
         try {
-            wlRef[0] = acquireShortWakelock(ctx);
+            // until the end of the sound: stopAfterMs (hard stop), else the unknown-length timeout
+            hold = WakeLockManager.acquire(ctx, requestId, WakeLockManager.timeoutFor(stopAfterMs));
 
             volume01 = clamp01(volume01);
             if (volume01 <= 0.0f) {
-                Log.w(TAG, "playShortBeep: MUTED (vol=0) -> skip soundName=" + soundName);
-                releaseWakelock(wlRef[0]);
+                AlarmLog.i(AlarmLog.EV_PLAY_MUTED, requestId, 0L, 0L, 0L);
                 finish.run();
+                WakeLockManager.release(hold);
                 return;
             }
 
-            int resId = 0;
-            if (soundName != null && !soundName.trim().isEmpty()) {
-                resId = ctx.getResources().getIdentifier(soundName, "raw", ctx.getPackageName());
-                Log.w(TAG, "resolve raw '" + soundName + "' -> resId=" + resId);
-            }
+            final int resId = resolveResId(ctx, soundName, knownResId);
             if (resId == 0) {
-                Log.w(TAG, "raw resource not found for '" + soundName + "', fallback to 'bell'");
-                resId = ctx.getResources().getIdentifier("bell", "raw", ctx.getPackageName());
-                Log.w(TAG, "resolve raw 'bell' -> resId=" + resId);
-            }
-            if (resId == 0) {
-                Log.e(TAG, "No usable raw sound found (soundName=" + soundName + ")");
-                releaseWakelock(wlRef[0]);
+                AlarmMetrics.count(ctx, AlarmMetrics.C_DROPS);
                 finish.run();
+                WakeLockManager.release(hold);
                 return;
             }
 
-            MediaPlayer mp = createAlarmPlayerFromRaw(ctx, resId);
-            mpRef[0] = mp;
+            // Preloaded static AudioTrack auf dem Audio-Thread; MediaPlayer nur noch als Fallback
+            final int playResId = resId;
+            final float playVolume = volume01;
+            final Context app = ctx.getApplicationContext();
+            final Playing p = new Playing(requestId, null, hold, null, null, finish);
+
+            final long[] startNanos = { 0L };
+            final Runnable engineDone = () -> {
+                if (endPlaying(p, false)) {
+                    AlarmLog.d(AlarmLog.EV_PLAY_DONE, requestId, 0L, 0L, 0L);
+                    AlarmMetrics.recordSinceNanos(app, AlarmMetrics.H_PLAYBACK, startNanos[0]);
+                }
+            };
+            final Runnable engineFailed = () -> worker().post(() -> {
+                // inzwischen per stopPlaying() abgebrochen -> nichts mehr abspielen
+                if (s_playing.get() != p) return;
+                AlarmMetrics.count(app, AlarmMetrics.C_MEDIAPLAYER_FALLBACKS);
+                playWithMediaPlayer(app, p, playResId, playVolume, stopAfterMs);
+            });
+
+            // before publishing p: a stopRequest from then on also drops the still queued play()
+            final int gen = AudioEngine.generation(requestId);
+            final Playing prev = s_playing.getAndSet(p);
+            started = p;
+            if (prev != IDLE) Log.w(TAG, "playShortBeep: id=" + prev.requestId + " was still current");
+
+            AlarmLog.i(AlarmLog.EV_PLAY_ENGINE, requestId, resId, stopAfterMs, 0L);
+            if (plannedAtMs > 0) {
+                AlarmMetrics.recordMs(app, AlarmMetrics.H_TRIGGER_TO_AUDIO, System.currentTimeMillis() - plannedAtMs);
+            }
+            startNanos[0] = System.nanoTime();
+            AudioEngine.play(app, requestId, gen, resId, volume01, stopAfterMs, engineDone, engineFailed);
+        } catch (Throwable t) {
+            Log.e(TAG, "playShortBeep failed", t);
+            AlarmMetrics.count(ctx, AlarmMetrics.C_DROPS);
+            if (started != null) {
+                endPlaying(started, true); // no-op if a cancel already ended it
+            } else {
+                finish.run();
+                WakeLockManager.release(hold);
+            }
+        }
+    }
+
+    // knownResId > 0 wins; otherwise catalog, then resource name, then 'bell' (0 = nothing usable)
+    private static int resolveResId(Context ctx, String soundName, int knownResId) {
+        int resId = knownResId;
+        if (resId == 0) resId = SoundCatalog.resIdOf(soundName);
+        if (resId == 0 && soundName != null && !soundName.trim().isEmpty()) {
+            resId = ctx.getResources().getIdentifier(soundName, "raw", ctx.getPackageName());
+            Log.w(TAG, "resolve raw '" + soundName + "' -> resId=" + resId);
+        }
+        if (resId == 0) {
+            Log.w(TAG, "raw resource not found for '" + soundName + "', fallback to 'bell'");
+            AlarmMetrics.count(ctx, AlarmMetrics.C_BELL_FALLBACKS);
+            resId = ctx.getResources().getIdentifier("bell", "raw", ctx.getPackageName());
+            Log.w(TAG, "resolve raw 'bell' -> resId=" + resId);
+        }
+        if (resId == 0) Log.e(TAG, "No usable raw sound found (soundName=" + soundName + ")");
+        return resId;
+    }
+
+    // Fallback (Sound kein PCM-WAV oder AudioTrack nicht verfügbar): MediaPlayer wie bisher.
+    // Replaces the engine Playing by a MediaPlayer one (same Hold/finish) via CAS.
+    private static void playWithMediaPlayer(Context ctx, Playing engine, int resId, float volume01, int stopAfterMs) {
+        final int requestId = engine.requestId;
+        final Playing[] self = { engine };
+        MediaPlayer mp = null;
+        try {
+            final long tPrepare = System.nanoTime();
+            mp = createAlarmPlayerFromRaw(ctx, resId);
+            AlarmMetrics.recordSinceNanos(ctx, AlarmMetrics.H_SOUND_PREPARE, tPrepare);
+            final long[] startNanos = { 0L };
 
             try { mp.setVolume(volume01, volume01); } catch (Throwable ignored) {}
 
-            final Handler h = new Handler(Looper.getMainLooper());
+            // runs on the worker: hard stop + completion callbacks come back on its looper
+            final Handler h = worker();
 
             // ------------------------------------------------------------
-            // PATCH START: durationSound korrekt (mehrfach abspielen)
+            // durationSound korrekt (mehrfach abspielen)
             // - stopAfterMs <= 0  => Sound 1x abspielen, Cleanup bei Completion
             // - stopAfterMs > 0   => Sound loopen + HardStop nach stopAfterMs
             // ------------------------------------------------------------
@@ -402,124 +658,48 @@ public class AlarmReceiver extends BroadcastReceiver {
 
             try { mp.setLooping(useHardStop); } catch (Throwable ignored) {}
 
-            final Runnable clearPlayingState = () -> {
-                synchronized (PLAY_LOCK) {
-                    if (s_playingRequestId == requestId) {
-                        s_playingRequestId = -1;
-                        s_playingMp = null;
-                        s_playingWl = null;
-                        s_playingHandler = null;
-                        s_playingHardStop = null;
-                        s_playingFinish = null;
-                    }
-                    PLAYING = false;
+            final Runnable hardStop = () -> {
+                final Playing cur = self[0];
+                if (endPlaying(cur, false)) {
+                    AlarmLog.d(AlarmLog.EV_PLAY_HARD_STOP, requestId, stopAfterMs, 0L, 0L);
+                    AlarmMetrics.recordSinceNanos(ctx, AlarmMetrics.H_PLAYBACK, startNanos[0]);
                 }
             };
 
-            final Runnable hardStop = () -> {
-                Log.w(TAG, "playShortBeep: HARD STOP after " + stopAfterMs
-                        + "ms. isPlaying=" + safeIsPlaying(mpRef[0]));
-                safeStopRelease(mpRef[0]);
-                releaseWakelock(wlRef[0]);
-                clearPlayingState.run();
-                finish.run();
-            };
+            final Playing mpPlaying = new Playing(requestId, mp, engine.hold, h,
+                    useHardStop ? hardStop : null, engine.finish);
 
             // Bei "einmal abspielen" cleanup über Completion
             try {
                 mp.setOnCompletionListener(m -> {
-                    Log.w(TAG, "playShortBeep: COMPLETED requestId=" + requestId);
-                    safeStopRelease(mpRef[0]);
-                    releaseWakelock(wlRef[0]);
-                    clearPlayingState.run();
-                    finish.run();
+                    if (endPlaying(mpPlaying, false)) {
+                        AlarmLog.d(AlarmLog.EV_PLAY_COMPLETED, requestId, 0L, 0L, 0L);
+                        AlarmMetrics.recordSinceNanos(ctx, AlarmMetrics.H_PLAYBACK, startNanos[0]);
+                    }
                 });
             } catch (Throwable ignored) {}
 
-            synchronized (PLAY_LOCK) {
-                s_playingRequestId = requestId;
-                s_playingMp = mpRef[0];
-                s_playingWl = wlRef[0];
-                s_playingHandler = h;
-                s_playingHardStop = useHardStop ? hardStop : null;
-                s_playingFinish = finish;
+            if (!s_playing.compareAndSet(engine, mpPlaying)) {
+                // inzwischen abgebrochen; finish lief schon über endPlaying()
+                safeStopRelease(mp);
+                return;
             }
+            self[0] = mpPlaying;
 
             if (useHardStop) {
                 h.postDelayed(hardStop, stopAfterMs);
             }
 
-            Log.w(TAG, "playShortBeep: START calling mp.start() stopAfterMs=" + stopAfterMs
-                    + " loop=" + useHardStop);
+            AlarmLog.i(AlarmLog.EV_PLAY_MEDIAPLAYER, requestId, resId, stopAfterMs, useHardStop ? 1 : 0);
+            startNanos[0] = System.nanoTime();
             mp.start();
-            // PATCH END
-        } catch (Throwable t) {
-            Log.e(TAG, "playShortBeep failed", t);
-            safeStopRelease(mpRef[0]);
-            releaseWakelock(wlRef[0]);
-            synchronized (PLAY_LOCK) {
-                if (s_playingRequestId == requestId) {
-                    s_playingRequestId = -1;
-                    s_playingMp = null;
-                    s_playingWl = null;
-                    s_playingHandler = null;
-                    s_playingHardStop = null;
-                    s_playingFinish = null;
-                }
-                PLAYING = false;
-            }
-            finish.run();
-        }
-    }
-    // -------------------- NOTIFICATION --------------------
-    private static void ensureNotificationChannel(Context ctx) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationManager nm = (NotificationManager) ctx.getSystemService(Context.NOTIFICATION_SERVICE);
-            if (nm == null) return;
-
-            NotificationChannel ch = nm.getNotificationChannel(CH_ID);
-            if (ch != null) return;
-
-            NotificationChannel channel = new NotificationChannel(
-                    CH_ID, CH_NAME, NotificationManager.IMPORTANCE_LOW
-            );
-            channel.setDescription(CH_DESC);
-
-            // force silent
-            channel.setSound(null, null);
-            channel.enableVibration(false);
-            channel.enableLights(false);
-
-            nm.createNotificationChannel(channel);
-        }
-    }
-
-    private static void showNotification(Context ctx, Intent intent, int notifId) {
-        try {
-            ensureNotificationChannel(ctx);
-
-            String title = intent.getStringExtra(AlarmScheduler.EXTRA_TITLE);
-            String text  = intent.getStringExtra(AlarmScheduler.EXTRA_TEXT);
-
-            if (title == null || title.trim().isEmpty()) title = "DailyActions";
-            if (text == null) text = "";
-
-            NotificationCompat.Builder b = new NotificationCompat.Builder(ctx, CH_ID)
-                    .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
-                    .setContentTitle(title)
-                    .setContentText(text)
-                    .setPriority(NotificationCompat.PRIORITY_LOW)
-                    .setCategory(NotificationCompat.CATEGORY_REMINDER)
-                    .setAutoCancel(true)
-                    .setSilent(true);
-
-            NotificationManagerCompat.from(ctx).notify(notifId, b.build());
-
         } catch (Throwable t) {
-            Log.w(TAG, "showNotification failed: " + t);
+            Log.e(TAG, "playWithMediaPlayer failed", t);
+            AlarmMetrics.count(ctx, AlarmMetrics.C_DROPS);
+            if (self[0] == engine) safeStopRelease(mp); // not yet owned by a Playing
+            endPlaying(self[0], false);
         }
     }
-
     // -------------------- AUDIO --------------------
     private static float clamp01(float v) {
         if (v < 0f) return 0f;
@@ -527,34 +707,6 @@ public class AlarmReceiver extends BroadcastReceiver {
         return v;
     }
 
-    private static PowerManager.WakeLock acquireShortWakelock(Context ctx) {
-        try {
-            PowerManager pm = (PowerManager) ctx.getSystemService(Context.POWER_SERVICE);
-            if (pm == null) return null;
-
-            PowerManager.WakeLock wl = pm.newWakeLock(
-                    PowerManager.PARTIAL_WAKE_LOCK,
-                    ctx.getPackageName() + ":AlarmReceiver"
-            );
-            wl.setReferenceCounted(false);
-            wl.acquire(WAKELOCK_MS);
-            Log.w(TAG, "WakeLock acquired for " + WAKELOCK_MS + "ms");
-            return wl;
-        } catch (Throwable t) {
-            Log.w(TAG, "WakeLock acquire failed: " + t);
-            return null;
-        }
-    }
-
-    private static void releaseWakelock(PowerManager.WakeLock wl) {
-        try {
-            if (wl != null && wl.isHeld()) {
-                wl.release();
-                Log.w(TAG, "WakeLock released");
-            }
-        } catch (Throwable ignored) {}
-    }
-
     private static MediaPlayer createAlarmPlayerFromRaw(Context ctx, int resId) throws Exception {
         Log.w(TAG, "createAlarmPlayerFromRaw: resId=" + resId);
 
@@ -587,10 +739,6 @@ public class AlarmReceiver extends BroadcastReceiver {
         return mp;
     }
 
-    private static boolean safeIsPlaying(MediaPlayer mp) {
-        try { return mp != null && mp.isPlaying(); } catch (Throwable ignored) { return false; }
-    }
-
     private static void safeStopRelease(MediaPlayer mp) {
         if (mp == null) return;
         try {
@@ -8,7 +8,8 @@ import android.content.Intent;
 import android.os.Build;
 import android.util.Log;
 
-import java.util.Calendar;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
 
 public class AlarmScheduler {
 
@@ -33,6 +34,13 @@ public class AlarmScheduler {
 
     public static final String EXTRA_TRIGGER_AT_MILLIS = "triggerAtMillis";
 
+    // Kompletter Payload (requestId, geplante Zeit, Spec) als EIN versioniertes byte[] (SpecPayload);
+    // die Einzel-Extras oben werden nur noch von Intents älterer Versionen gelesen
+    public static final String EXTRA_SPEC = "spec";
+
+    // Zeit, für die der System-Alarm gestellt wurde (Pre-roll: vor der geplanten Zeit)
+    static final String EXTRA_WAKE_AT = "wakeAt";
+
     // ✅ Legacy: bleibt erhalten (wird als Sekunden interpretiert)
     @Deprecated
     public static final String EXTRA_INTERVAL_MINUTES = "intervalMinutes";
@@ -40,6 +48,11 @@ public class AlarmScheduler {
     public static final String EXTRA_VOLUME01    = "volume01";
     public static final String EXTRA_DURATION_SOUND    = "duration_sound";
 
+    // Koaleszenz-Fenster (Sekunden): der Multiplexer darf diese Action bis zu so viel früher
+    // auslösen, wenn dadurch ein anderer Wakeup mitgenommen wird. 0 => exakt.
+    public static final String EXTRA_COALESCE_SECONDS = "coalesceSeconds";
+    public static final int DEFAULT_COALESCE_SECONDS = 0;
+
     // --------------------------------------------------------------------------------------------
     // Debug helper
     // --------------------------------------------------------------------------------------------
@@ -47,54 +60,154 @@ public class AlarmScheduler {
     private static void logW(String msg) { Log.w(TAG, msg); }
     private static void logE(String msg, Throwable t) { Log.e(TAG, msg, t); }
 
-    private static final String PREFS_NAME = "dailyactions_prefs";
-    private static String keyNextAt(int id) { return "nextAtMs_" + id; }
-
-    private static final String SP = "dailyactions_alarm";
-    private static String keyPhase(int id) { return "phase_" + id; }
-
+    // nextAt/phase/spec pro Action liegen im ScheduleStore (ein Record pro Action, mmap);
+    // AlarmPrefs hält nur noch Flags
     private static void savePhaseMs(Context ctx, int id, long phaseMs) {
-        ctx.getSharedPreferences(SP, 0).edit().putLong(keyPhase(id), phaseMs).apply();
+        ScheduleStore.get(ctx).setPhaseMs(id, phaseMs);
     }
 
     private static long loadPhaseMs(Context ctx, int id) {
-        return ctx.getSharedPreferences(SP, 0).getLong(keyPhase(id), 0L);
+        return ScheduleStore.get(ctx).getPhaseMs(id);
     }
 
     private static void saveNextAtMs(Context ctx, int requestId, long nextAtMs) {
         try {
-            ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
-                    .edit()
-                    .putLong(keyNextAt(requestId), nextAtMs)
-                    .apply();
+            ScheduleStore.get(ctx).setNextAtMs(requestId, nextAtMs);
         } catch (Throwable t) {
             logE("saveNextAtMs failed", t);
         }
     }
 
-    private static void clearNextAtMs(Context ctx, int requestId) {
-        try {
-            ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
-                    .edit()
-                    .remove(keyNextAt(requestId))
-                    .apply();
-        } catch (Throwable t) {
-            logE("clearNextAtMs failed", t);
-        }
+    // --------------------------------------------------------------------------------------------
+    // Batch: alle Prefs-Writes (und das Re-Arm des Multiplexers) zwischen beginBatch() und
+    // commit() werden zu EINEM apply() bzw. EINEM setAlarmClock() zusammengefasst.
+    // Muss immer paarweise auf demselben Thread aufgerufen werden (try/finally); der Batch gilt
+    // nur für diesen Thread, Änderungen anderer Threads gehen sofort raus.
+    // --------------------------------------------------------------------------------------------
+    public static void beginBatch(Context ctx) {
+        AlarmPrefs.begin();
+        AlarmMultiplexer.hold();
+    }
+
+    public static void commit(Context ctx) {
+        if (ctx == null) return;
+        AlarmPrefs.commit(ctx);
+        AlarmMultiplexer.release(ctx);
     }
 
     // QML/C++ liest das beim Startup
     public static long getNextAtMs(Context ctx, int requestId) {
         if (ctx == null || requestId <= 0) return 0L;
         try {
-            return ctx.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
-                    .getLong(keyNextAt(requestId), 0L);
+            return ScheduleStore.get(ctx).getNextAtMs(requestId);
         } catch (Throwable t) {
             logE("getNextAtMs failed", t);
             return 0L;
         }
     }
 
+    // --------------------------------------------------------------------------------------------
+    // Multiplexer mode: one system alarm for all actions (see AlarmMultiplexer)
+    // Opt-in (SoundTaskManager.setMultiplexMode); off = one system alarm per action as before
+    // --------------------------------------------------------------------------------------------
+    private static final String KEY_MULTIPLEX = "multiplexMode";
+    private static final boolean MULTIPLEX_DEFAULT = false;
+
+    public static boolean isMultiplexMode(Context ctx) {
+        if (ctx == null) return MULTIPLEX_DEFAULT;
+        try {
+            return AlarmPrefs.getBoolean(ctx, KEY_MULTIPLEX, MULTIPLEX_DEFAULT);
+        } catch (Throwable t) {
+            logE("isMultiplexMode failed", t);
+            return MULTIPLEX_DEFAULT;
+        }
+    }
+
+    /**
+     * Switches between one system alarm per action (false) and the multiplexer (true).
+     * Already scheduled actions migrate on their next fire/reschedule.
+     */
+    public static void setMultiplexMode(Context ctx, boolean enabled) {
+        if (ctx == null) return;
+        AlarmPrefs.putBoolean(ctx, KEY_MULTIPLEX, enabled);
+        logI("setMultiplexMode enabled=" + enabled);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Mix mode: sounds that fire together play concurrently (see AudioMixer)
+    // --------------------------------------------------------------------------------------------
+    private static final String KEY_MIX_PLAYBACK = "mixPlayback";
+    private static final boolean MIX_PLAYBACK_DEFAULT = false;
+
+    public static boolean isMixPlayback(Context ctx) {
+        if (ctx == null) return MIX_PLAYBACK_DEFAULT;
+        try {
+            return AlarmPrefs.getBoolean(ctx, KEY_MIX_PLAYBACK, MIX_PLAYBACK_DEFAULT);
+        } catch (Throwable t) {
+            logE("isMixPlayback failed", t);
+            return MIX_PLAYBACK_DEFAULT;
+        }
+    }
+
+    /**
+     * Switches between sequential playback through PLAY_Q (false) and the software mixer (true).
+     * Applies from the next fire on; a sound that is playing is not affected.
+     */
+    public static void setMixPlayback(Context ctx, boolean enabled) {
+        if (ctx == null) return;
+        AlarmPrefs.putBoolean(ctx, KEY_MIX_PLAYBACK, enabled);
+        logI("setMixPlayback enabled=" + enabled);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Pre-roll: the system alarm goes off a learned lead time before the planned fire; the receiver
+    // prepares the sound meanwhile and starts it at the planned millisecond (see AlarmReceiver)
+    // --------------------------------------------------------------------------------------------
+    private static final String KEY_PRE_ROLL = "preRoll";
+    private static final boolean PRE_ROLL_DEFAULT = false;
+
+    // lead = p90 of AlarmMetrics.H_WAKE_DELAY + margin, within [MIN, MAX]; DEFAULT until enough samples
+    private static final long PRE_ROLL_DEFAULT_MS = 1000L;
+    private static final long PRE_ROLL_MIN_MS = 100L;
+    static final long PRE_ROLL_MAX_MS = 5000L;
+    private static final long PRE_ROLL_MARGIN_MS = 50L;
+    private static final int PRE_ROLL_MIN_SAMPLES = 20;
+
+    public static boolean isPreRoll(Context ctx) {
+        if (ctx == null) return PRE_ROLL_DEFAULT;
+        try {
+            return AlarmPrefs.getBoolean(ctx, KEY_PRE_ROLL, PRE_ROLL_DEFAULT);
+        } catch (Throwable t) {
+            logE("isPreRoll failed", t);
+            return PRE_ROLL_DEFAULT;
+        }
+    }
+
+    /**
+     * Switches pre-roll on/off. Applies to alarms set from now on; already armed ones fire as
+     * they were set (the receiver handles both).
+     */
+    public static void setPreRoll(Context ctx, boolean enabled) {
+        if (ctx == null) return;
+        AlarmPrefs.putBoolean(ctx, KEY_PRE_ROLL, enabled);
+        logI("setPreRoll enabled=" + enabled + " leadMs=" + preRollLeadMs(ctx));
+    }
+
+    /** Lead of the system alarm before the planned fire, learned from the measured wake delay (0 = off). */
+    static long preRollLeadMs(Context ctx) {
+        if (!isPreRoll(ctx)) return 0L;
+        final long p90Us = AlarmMetrics.percentileUs(ctx, AlarmMetrics.H_WAKE_DELAY, 90, PRE_ROLL_MIN_SAMPLES);
+        if (p90Us < 0L) return PRE_ROLL_DEFAULT_MS;
+        return Math.max(PRE_ROLL_MIN_MS, Math.min(PRE_ROLL_MAX_MS, p90Us / 1000L + PRE_ROLL_MARGIN_MS));
+    }
+
+    /** Time to set the system alarm for a fire at triggerAtMillis (= trigger without pre-roll). */
+    static long wakeAtFor(Context ctx, long triggerAtMillis, long now) {
+        final long lead = preRollLeadMs(ctx);
+        if (lead <= 0L || triggerAtMillis <= 0L) return triggerAtMillis;
+        return Math.max(triggerAtMillis - lead, Math.min(triggerAtMillis, now));
+    }
+
     // ============================================================================================
     // WIRD VON Qt BEIM START AUFGERUFEN – DARF NICHT ENTFERNT WERDEN
     // ============================================================================================
@@ -110,23 +223,14 @@ public class AlarmScheduler {
             logI("isScheduled? ctx =null");
             return false;
         }
+        // polled by the UI: structured event only, no string building / creator lookup per query
+        if (AlarmMultiplexer.contains(ctx, requestId)) {
+            AlarmLog.d(AlarmLog.EV_IS_SCHEDULED, requestId, 1L, 1L, 0L);
+            return true;
+        }
         try {
-            Intent i = buildBaseIntent(ctx, requestId);
-
-            int flags = PendingIntent.FLAG_NO_CREATE;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                flags |= PendingIntent.FLAG_IMMUTABLE;
-            }
-
-            PendingIntent pi = PendingIntent.getBroadcast(ctx, requestId, i, flags);
-            boolean ok = (pi != null);
-
-            logI("isScheduled? id=" + requestId
-                    + " action=" + i.getAction()
-                    + " flags=" + flags
-                    + " pi=" + ok
-                    + (ok ? (" creatorPkg=" + pi.getCreatorPackage()) : "")
-            );
+            final boolean ok = findPendingIntent(ctx, requestId) != null;
+            AlarmLog.d(AlarmLog.EV_IS_SCHEDULED, requestId, ok ? 1L : 0L, 0L, 0L);
             return ok;
         } catch (Throwable t) {
             logE("isScheduled failed", t);
@@ -134,6 +238,17 @@ public class AlarmScheduler {
         }
     }
 
+    // PendingIntent of the legacy per-action alarm (null if none)
+    private static PendingIntent findPendingIntent(Context ctx, int requestId) {
+        Intent i = buildBaseIntent(ctx, requestId);
+
+        int flags = PendingIntent.FLAG_NO_CREATE;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            flags |= PendingIntent.FLAG_IMMUTABLE;
+        }
+        return PendingIntent.getBroadcast(ctx, requestId, i, flags);
+    }
+
 
     @SuppressWarnings("unused")
     public static void ensureNotificationPermission(Context ctx) {
@@ -158,42 +273,88 @@ public class AlarmScheduler {
             int intervalSeconds,
             float volume01,
             int   durationSound
+    ) {
+        scheduleWithParams(ctx, triggerAtMillis, soundName, requestId, title, actionText, mode,
+                fixedTime, startTime, endTime, startAnchorTime, intervalSeconds, volume01,
+                durationSound, DEFAULT_COALESCE_SECONDS);
+    }
+
+    // Wie oben, plus Koaleszenz-Fenster pro Action (nur im Multiplexer-Modus wirksam)
+    public static void scheduleWithParams(
+            Context ctx,
+            long triggerAtMillis,
+            String soundName,
+            int requestId,
+            String title,
+            String actionText,
+            String mode,
+            String fixedTime,
+            String startTime,
+            String endTime,
+            String startAnchorTime,
+            int intervalSeconds,
+            float volume01,
+            int   durationSound,
+            int   coalesceSeconds
     ) {
         if (ctx == null) {
             logW("scheduleWithParams: ctx == null -> abort");
             return;
         }
-        final long now = System.currentTimeMillis();
-        logI("NOW=" + new java.util.Date(now) + " TRIGGER=" + new java.util.Date(triggerAtMillis));
-
-        final float v = clamp01(volume01);
-        final long inMs = triggerAtMillis - now;
-
-        logI("SCHEDULE id=" + requestId
-                + " at=" + triggerAtMillis
-                + " intervalSec=" + intervalSeconds
-                + " durationSound=" + durationSound
-                + " inMs=" + inMs
-                + " mode=" + mode
-                + " sound=" + soundName
-                + " vol=" + v
-                + " fixed=" + fixedTime
-                + " start=" + startTime
-                + " end=" + endTime
-                + " anchor=" + startAnchorTime
-        );
-
-        if ("interval".equalsIgnoreCase(mode)) {
-            long phase = loadPhaseMs(ctx, requestId);
+
+        if (!SoundCatalog.contains(soundName)) {
+            logW("scheduleWithParams: sound '" + soundName + "' not in SoundCatalog -> fallback 'bell'");
+        }
+
+        // einmal kompilieren (Strings -> Minuten, Mode -> enum, Sound -> resId), pro requestId gecacht
+        final ScheduleSpec spec = ScheduleSpec.compile(ctx.getApplicationContext(), requestId, soundName,
+                title, actionText, mode, fixedTime, startTime, endTime, startAnchorTime,
+                intervalSeconds, volume01, durationSound, coalesceSeconds);
+        ScheduleSpec.cache(spec);
+        AudioEngine.preload(ctx, spec.soundResId);
+
+        schedule(ctx, spec, triggerAtMillis);
+    }
+
+    // Gemeinsamer Pfad für QML-Aufrufe und Reschedule (kein erneutes Parsen)
+    static void schedule(Context ctx, ScheduleSpec spec, long triggerAtMillis) {
+        final int requestId = spec.requestId;
+        final long now = SchedulerClock.now();
+        AlarmLog.attach(ctx);
+        AlarmLog.i(AlarmLog.EV_SCHEDULE, requestId, triggerAtMillis, triggerAtMillis - now, spec.mode.ordinal());
+
+        long phase = 0L;
+        if (spec.mode == ScheduleSpec.Mode.INTERVAL) {
+            phase = loadPhaseMs(ctx, requestId);
             if (phase <= 0L) {
-                phase = triggerAtMillis > 0L
-                        ? triggerAtMillis
-                        : phaseFromStartAnchorMs(now, startAnchorTime, startTime, endTime);
+                phase = triggerAtMillis > 0L ? triggerAtMillis : spec.phaseAt(now);
                 savePhaseMs(ctx, requestId, phase);
             }
         }
 
         try {
+            if (isMultiplexMode(ctx)) {
+                // ein System-Alarm für alle Actions; beim Wechsel aus dem Legacy-Modus
+                // den alten Einzel-Alarm aufräumen
+                if (!AlarmMultiplexer.hasSpec(ctx, requestId)) {
+                    cancelPendingIntent(ctx.getApplicationContext(), requestId);
+                }
+                AlarmMultiplexer.put(ctx, triggerAtMillis, spec);
+                AlarmLog.i(AlarmLog.EV_SCHEDULED, requestId, triggerAtMillis, 1L, 0L);
+
+                saveNextAtMs(ctx.getApplicationContext(), requestId, triggerAtMillis);
+                timelineUpdate(requestId, spec.occurrences(triggerAtMillis, phase));
+                return;
+            }
+
+            // Wechsel aus dem Multiplexer-Modus: Action aus dessen Queue nehmen, sonst feuert sie doppelt
+            if (AlarmMultiplexer.hasSpec(ctx, requestId)) {
+                AlarmMultiplexer.remove(ctx.getApplicationContext(), requestId);
+            }
+
+            final long wakeAt = wakeAtFor(ctx, triggerAtMillis, now);
+            Intent i = buildAlarmIntent(ctx, spec, triggerAtMillis, wakeAt);
+
             AlarmManager am = (AlarmManager) ctx.getSystemService(Context.ALARM_SERVICE);
             if (am == null) {
                 logW("AlarmManager == null");
@@ -204,35 +365,12 @@ public class AlarmScheduler {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
                 if (!am.canScheduleExactAlarms()) {
                     logW("No permission to schedule exact alarms (canScheduleExactAlarms=false)");
+                    AlarmMetrics.count(ctx, AlarmMetrics.C_EXACT_DENIED);
                     // -> hier ggf. graceful fallback oder Settings-Intent ACTION_REQUEST_SCHEDULE_EXACT_ALARM
                     return;
                 }
             }
 
-            Intent i = buildBaseIntent(ctx, requestId);
-
-            // Extras
-            i.putExtra(EXTRA_SOUND_NAME, soundName);
-            i.putExtra(EXTRA_NOTIF_ID, requestId);     // legacy
-            i.putExtra(EXTRA_REQUEST_ID, requestId);
-
-            i.putExtra(EXTRA_TITLE, title);
-            i.putExtra(EXTRA_TEXT, actionText);
-
-            i.putExtra(EXTRA_MODE, mode);
-            i.putExtra(EXTRA_FIXED_TIME, fixedTime);
-            i.putExtra(EXTRA_START_TIME, startTime);
-            i.putExtra(EXTRA_END_TIME, endTime);
-            i.putExtra(EXTRA_START_ANCHOR_TIME, startAnchorTime);
-
-            i.putExtra(EXTRA_INTERVAL_SECONDS, intervalSeconds);
-            i.putExtra(EXTRA_VOLUME01, v);
-
-            i.putExtra(EXTRA_VOLUME01, v);
-            i.putExtra(EXTRA_DURATION_SOUND, durationSound);
-
-            i.putExtra(EXTRA_TRIGGER_AT_MILLIS, triggerAtMillis);
-
             PendingIntent pi = PendingIntent.getBroadcast(ctx, requestId, i, pendingIntentFlags());
 
             // "Show intent" für AlarmClock UI (wenn User auf Alarm tippt).
@@ -246,47 +384,235 @@ public class AlarmScheduler {
             PendingIntent showPi = PendingIntent.getActivity(ctx, requestId, show, showFlags);
 
             AlarmManager.AlarmClockInfo ac =
-                    new AlarmManager.AlarmClockInfo(triggerAtMillis, showPi);
+                    new AlarmManager.AlarmClockInfo(wakeAt, showPi);
 
             am.setAlarmClock(ac, pi);
-            logI("Alarm setAlarmClock() scheduled.");
+            AlarmLog.i(AlarmLog.EV_SCHEDULED, requestId, triggerAtMillis, 0L, 0L);
 
+            // Spec liegt im ScheduleStore (Restore/Reconcile); der PendingIntent trägt sie zusätzlich
+            // kompakt als EIN byte[], damit der Receiver sie ohne Store und ohne Extras-Parsing hat.
+            // Erst nach setAlarmClock: ohne Exact-Alarm-Recht darf reconcile() sie nicht für geplant halten
+            ScheduleStore.get(ctx).putSpec(spec, false);
             saveNextAtMs(ctx.getApplicationContext(), requestId, triggerAtMillis);
+            timelineUpdate(requestId, spec.occurrences(triggerAtMillis, phase));
 
         } catch (SecurityException se) {
             logE("scheduleWithParams failed: missing exact alarm permission", se);
+            AlarmMetrics.count(ctx, AlarmMetrics.C_EXACT_DENIED);
         } catch (Throwable t) {
             logE("scheduleWithParams failed", t);
         }
     }
 
-    private static void clearPhase(Context ctx, int id) {
-        ctx.getSharedPreferences(SP, 0).edit().remove(keyPhase(id)).apply();
+    // --------------------------------------------------------------------------------------------
+    // Bulk-Bridge für SoundTaskManagerAndroid: EIN JNI-Aufruf für alle Actions statt einem pro
+    // Action und Feld (App-Start, Settings-Änderung)
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * Cancels and schedules a whole batch of packed action records (layout: PackedActions) in
+     * one beginBatch/commit. Returns the number of scheduled records (-1 = invalid buffer).
+     */
+    public static int scheduleAll(Context ctx, ByteBuffer packed) {
+        if (ctx == null) return -1;
+        final PackedActions pa = PackedActions.wrap(packed);
+        if (pa == null) {
+            logW("scheduleAll: invalid buffer -> abort");
+            return -1;
+        }
+
+        final Context app = ctx.getApplicationContext();
+        int scheduled = 0;
+        beginBatch(app);
+        try {
+            for (int k = 0; k < pa.cancelCount(); k++) {
+                final int id = pa.cancelId(k);
+                if (id <= 0) continue;
+                try {
+                    cancel(app, id);
+                } catch (Throwable t) {
+                    logE("scheduleAll: cancel id=" + id + " failed", t);
+                }
+            }
+
+            for (int k = 0; k < pa.recordCount(); k++) {
+                try {
+                    final ScheduleSpec spec = pa.spec(app, k);
+                    if (spec == null) continue;
+                    if (!SoundCatalog.contains(spec.soundName)) {
+                        logW("scheduleAll: sound '" + spec.soundName + "' not in SoundCatalog -> fallback 'bell'");
+                    }
+                    ScheduleSpec.cache(spec);
+                    AudioEngine.preload(app, spec.soundResId);
+                    schedule(app, spec, pa.triggerAtMillis(k));
+                    scheduled++;
+                } catch (Throwable t) {
+                    logE("scheduleAll: record " + k + " (id=" + pa.requestId(k) + ") failed", t);
+                }
+            }
+        } finally {
+            commit(app);
+        }
+
+        logI("SCHEDULE_ALL cancelled=" + pa.cancelCount() + " scheduled=" + scheduled + "/" + pa.recordCount());
+        return scheduled;
     }
 
-    public static void cancel(Context ctx, int requestId) {
-        if (ctx == null) return;
-        Context app = ctx.getApplicationContext();
+    /** getNextAtMs for many ids at once (0 = not scheduled). */
+    public static long[] getNextAtMsAll(Context ctx, int[] ids) {
+        final long[] out = new long[ids != null ? ids.length : 0];
+        if (ctx == null || out.length == 0) return out;
+        try {
+            final ScheduleStore store = ScheduleStore.get(ctx);
+            for (int k = 0; k < out.length; k++) {
+                out[k] = (ids[k] > 0) ? store.getNextAtMs(ids[k]) : 0L;
+            }
+        } catch (Throwable t) {
+            logE("getNextAtMsAll failed", t);
+        }
+        return out;
+    }
 
-        AlarmManager am = (AlarmManager) app.getSystemService(Context.ALARM_SERVICE);
-        if (am == null) return;
+    /** isScheduled for many ids at once (one summary log line instead of one per id). */
+    public static boolean[] isScheduledAll(Context ctx, int[] ids) {
+        final boolean[] out = new boolean[ids != null ? ids.length : 0];
+        if (ctx == null || out.length == 0) return out;
+        int n = 0;
+        for (int k = 0; k < out.length; k++) {
+            final int id = ids[k];
+            if (id <= 0) continue;
+            try {
+                out[k] = AlarmMultiplexer.contains(ctx, id) || findPendingIntent(ctx, id) != null;
+            } catch (Throwable t) {
+                logE("isScheduledAll: id=" + id + " failed", t);
+            }
+            if (out[k]) n++;
+        }
+        logI("isScheduledAll? count=" + out.length + " scheduled=" + n);
+        return out;
+    }
 
-        Intent i = new Intent(app, AlarmReceiver.class);
-        i.setAction("org.dailyactions.ALARM_" + requestId); // MUSS exakt zum Schedule-Intent passen
+    // --------------------------------------------------------------------------------------------
+    // Reconcile: nur die Differenz zum zuletzt angewandten Stand anwenden (Hashes im ScheduleStore)
+    // --------------------------------------------------------------------------------------------
 
-        int flags = PendingIntent.FLAG_NO_CREATE;
-        if (Build.VERSION.SDK_INT >= 23) flags |= PendingIntent.FLAG_IMMUTABLE;
+    // indices of the int[] returned by reconcile()
+    static final int RC_ADDED = 0;
+    static final int RC_RETIMED = 1;
+    static final int RC_UPDATED = 2;
+    static final int RC_UNCHANGED = 3;
+    static final int RC_REMOVED = 4;
+    static final int RC_COUNT = 5;
 
-        PendingIntent pi = PendingIntent.getBroadcast(app, requestId, i, flags);
-        logI("CANCEL id=" + requestId + " pi=" + (pi != null));
+    /**
+     * Brings the given actions (layout: PackedActions) to the desired state with the minimal
+     * change set, compared by the spec hashes of the last applied state:
+     * - not armed yet (or stale): scheduled at the record's trigger (added)
+     * - timing changed: phase dropped, scheduled at the record's trigger (retimed)
+     * - only content changed: spec replaced, fire time and phase kept, no AlarmManager call (updated)
+     * - unchanged: nothing at all, the record's trigger is ignored (unchanged)
+     * Ids in the cancel list that are not also desired are cancelled (removed); actions that are
+     * not mentioned stay as they are. Returns the counts indexed by RC_* (null = invalid buffer).
+     */
+    public static int[] reconcile(Context ctx, ByteBuffer packed) {
+        if (ctx == null) return null;
+        final PackedActions pa = PackedActions.wrap(packed);
+        if (pa == null) {
+            logW("reconcile: invalid buffer -> abort");
+            return null;
+        }
+
+        final Context app = ctx.getApplicationContext();
+        final int[] n = new int[RC_COUNT];
+        final HashSet<Integer> desired = new HashSet<>();
+        beginBatch(app);
+        try {
+            final ScheduleStore store = ScheduleStore.get(app);
+            final boolean multiplex = isMultiplexMode(app);
+            final long now = SchedulerClock.now();
+
+            for (int k = 0; k < pa.recordCount(); k++) {
+                try {
+                    final ScheduleSpec spec = pa.spec(app, k);
+                    if (spec == null) continue;
+                    final int id = spec.requestId;
+                    desired.add(id);
+
+                    final long[] applied = store.getSpecHashes(id);
+                    final long nextAt = store.getNextAtMs(id);
+                    final boolean armed = applied != null
+                            && nextAt + CatchUpPolicy.LATE_TOLERANCE_MS > now
+                            && store.isMultiplexed(id) == multiplex;
+
+                    final int change;
+                    if (armed && applied[0] == spec.timingHash) {
+                        if (applied[1] == spec.contentHash) {
+                            change = RC_UNCHANGED;
+                        } else {
+                            change = RC_UPDATED;
+                            ScheduleSpec.cache(spec);
+                            AudioEngine.preload(app, spec.soundResId);
+                            if (multiplex) {
+                                AlarmMultiplexer.updateSpec(app, spec);
+                            } else {
+                                // Payload im PendingIntent ersetzen; der System-Alarm bleibt
+                                store.putSpec(spec, false);
+                                PendingIntent.getBroadcast(app, id,
+                                        buildAlarmIntent(app, spec, nextAt, wakeAtFor(app, nextAt, now)), pendingIntentFlags());
+                            }
+                        }
+                    } else {
+                        change = (applied != null && applied[0] != spec.timingHash) ? RC_RETIMED : RC_ADDED;
+                        if (change == RC_RETIMED) store.clearPhase(id);
+                        if (!SoundCatalog.contains(spec.soundName)) {
+                            logW("reconcile: sound '" + spec.soundName + "' not in SoundCatalog -> fallback 'bell'");
+                        }
+                        ScheduleSpec.cache(spec);
+                        AudioEngine.preload(app, spec.soundResId);
+                        schedule(app, spec, pa.triggerAtMillis(k));
+                    }
+                    n[change]++;
+                    AlarmLog.d(AlarmLog.EV_RECONCILE, id, change, store.getNextAtMs(id), 0L);
+                } catch (Throwable t) {
+                    logE("reconcile: record " + k + " (id=" + pa.requestId(k) + ") failed", t);
+                }
+            }
 
-        if (pi != null) {
-            am.cancel(pi);
-            pi.cancel();
+            for (int k = 0; k < pa.cancelCount(); k++) {
+                final int id = pa.cancelId(k);
+                if (id <= 0 || desired.contains(id)) continue;
+                try {
+                    cancel(app, id);
+                    n[RC_REMOVED]++;
+                } catch (Throwable t) {
+                    logE("reconcile: cancel id=" + id + " failed", t);
+                }
+            }
+        } finally {
+            commit(app);
         }
+
+        logI("RECONCILE added=" + n[RC_ADDED] + " retimed=" + n[RC_RETIMED] + " updated=" + n[RC_UPDATED]
+                + " unchanged=" + n[RC_UNCHANGED] + " removed=" + n[RC_REMOVED]);
+        return n;
+    }
+
+    public static void cancel(Context ctx, int requestId) {
+        if (ctx == null) return;
+        Context app = ctx.getApplicationContext();
+
+        final boolean hadPi = cancelPendingIntent(app, requestId);
+        logI("CANCEL id=" + requestId + " pi=" + hadPi);
+
+        AlarmMultiplexer.remove(app, requestId);
         try { AlarmReceiver.stopPlaying(requestId); } catch (Throwable ignored) {}
-        clearNextAtMs(app, requestId);
-        clearPhase(app, requestId);
+        try {
+            ScheduleStore.get(app).remove(requestId);
+        } catch (Throwable t) {
+            logE("cancel: store remove failed", t);
+        }
+        ScheduleSpec.evict(requestId);
+        timelineRemove(requestId);
     }
 
     public static void cancelAll(Context ctx, int[] ids) {
@@ -300,13 +626,18 @@ public class AlarmScheduler {
 
         int count = 0;
 
-        for (int id : ids) {
-            if (id <= 0) continue;
+        beginBatch(app);
+        try {
+            for (int id : ids) {
+                if (id <= 0) continue;
 
-            try {
-                cancel(app, id);
-                count++;
-            } catch (Throwable ignored) {}
+                try {
+                    cancel(app, id);
+                    count++;
+                } catch (Throwable ignored) {}
+            }
+        } finally {
+            commit(app);
         }
 
         logI("CANCEL_ALL count=" + count);
@@ -315,171 +646,307 @@ public class AlarmScheduler {
     public static void rescheduleNextFromIntent(Context ctx, Intent intent) {
         if (ctx == null || intent == null) return;
 
-        try {
-            final Context appCtx = ctx.getApplicationContext();
-
-            final int requestId = intent.getIntExtra(
-                    EXTRA_REQUEST_ID,
-                    intent.getIntExtra(EXTRA_NOTIF_ID, -1)
-            );
-            if (requestId <= 0) return;
-
-            final String mode = intent.getStringExtra(EXTRA_MODE);
-
-            final String soundName = intent.getStringExtra(EXTRA_SOUND_NAME);
-            final String title     = intent.getStringExtra(EXTRA_TITLE);
-            final String text      = intent.getStringExtra(EXTRA_TEXT);
+        final ScheduleSpec spec = ScheduleSpec.forIntent(ctx.getApplicationContext(), intent);
+        if (spec == null) return;
 
-            final String fixedTime = intent.getStringExtra(EXTRA_FIXED_TIME);
-            final String startTime = intent.getStringExtra(EXTRA_START_TIME);
-            final String endTime   = intent.getStringExtra(EXTRA_END_TIME);
-            final String startAnchorTime = intent.getStringExtra(EXTRA_START_ANCHOR_TIME);
+        rescheduleNext(ctx, spec, ScheduleSpec.plannedAtOf(intent));
+    }
 
-            final float vol01 = intent.getFloatExtra(EXTRA_VOLUME01, 1.0f);
-            final int durationSound = intent.getIntExtra(EXTRA_DURATION_SOUND, 1);
+    // Per-Fire-Pfad: arbeitet nur auf der kompilierten Spec (kein String-Parsing)
+    static void rescheduleNext(Context ctx, ScheduleSpec spec, long lastPlannedTrigger) {
+        if (ctx == null || spec == null) return;
 
-            final long lastPlannedTrigger =
-                    intent.getLongExtra(EXTRA_TRIGGER_AT_MILLIS, -1L);
+        beginBatch(ctx);
+        try {
+            final Context appCtx = ctx.getApplicationContext();
+            final int requestId = spec.requestId;
 
             if (lastPlannedTrigger <= 0) {
                 logW("rescheduleNext: missing EXTRA_TRIGGER_AT_MILLIS -> abort id=" + requestId);
                 return;
             }
 
+            long phase = 0L;
             long next;
-            int intervalSec = readIntervalSeconds(intent);
-
-            if ("fixedTime".equalsIgnoreCase(mode)) {
-                next = lastPlannedTrigger + 24L * 60L * 60L * 1000L;
-
-            } else if ("interval".equalsIgnoreCase(mode)) {
-                if (intervalSec <= 0) {
-                    logW("rescheduleNext: invalid intervalSec for id=" + requestId);
-                    return;
-                }
-
-                long phase = loadPhaseMs(appCtx, requestId);
-                if (phase <= 0L) {
-                    phase = phaseFromStartAnchorMs(lastPlannedTrigger, startAnchorTime, startTime, endTime);
-                    savePhaseMs(appCtx, requestId, phase);
+            switch (spec.mode) {
+                case FIXED_TIME:
+                    next = spec.nextAfter(lastPlannedTrigger, 0L);
+                    break;
+
+                case INTERVAL: {
+                    if (spec.intervalSeconds <= 0) {
+                        logW("rescheduleNext: invalid intervalSec for id=" + requestId);
+                        return;
+                    }
+
+                    phase = loadPhaseMs(appCtx, requestId);
+                    if (phase <= 0L) {
+                        phase = spec.phaseAt(lastPlannedTrigger);
+                        savePhaseMs(appCtx, requestId, phase);
+                    }
+
+                    next = spec.nextAfter(lastPlannedTrigger, phase);
+                    break;
                 }
 
-                next = computeNextIntervalFireMs(
-                        lastPlannedTrigger + 1L,
-                        (startTime != null) ? startTime : "",
-                        (endTime != null) ? endTime : "",
-                        phase,
-                        intervalSec
-                );
+                default:
+                    logW("rescheduleNext: unknown mode=" + spec.modeName + " id=" + requestId);
+                    return;
+            }
 
-            } else {
-                logW("rescheduleNext: unknown mode=" + mode + " id=" + requestId);
-                return;
+            // zu spät zugestellt (Doze, Reboot, App gekillt): der nächste Slot liegt schon in der Vergangenheit
+            final long now = SchedulerClock.now();
+            if (next > 0L && next <= now) {
+                next = catchUp(appCtx, spec, lastPlannedTrigger, phase, next, now);
+            } else if (ScheduleStore.get(appCtx).getReplayed(requestId) != 0) {
+                ScheduleStore.get(appCtx).setReplayed(requestId, 0);
             }
 
-            logI("rescheduleNext: id=" + requestId
-                    + " mode=" + mode
-                    + " lastPlanned=" + lastPlannedTrigger
-                    + " next=" + next
-                    + " fixed=" + fixedTime
-                    + " start=" + startTime
-                    + " end=" + endTime
-                    + " anchor=" + startAnchorTime
-                    + " intervalSec=" + intervalSec);
-
-            scheduleWithParams(
-                    appCtx,
-                    next,
-                    (soundName != null) ? soundName : "bell",
-                    requestId,
-                    (title != null) ? title : "DailyActions",
-                    (text != null) ? text : "",
-                    (mode != null) ? mode : "interval",
-                    (fixedTime != null) ? fixedTime : "00:00",
-                    (startTime != null) ? startTime : "",
-                    (endTime != null) ? endTime : "",
-                    (startAnchorTime != null) ? startAnchorTime : "",
-                    intervalSec,
-                    vol01,
-                    durationSound
-            );
+            AlarmLog.i(AlarmLog.EV_RESCHEDULE, requestId, lastPlannedTrigger, next, spec.mode.ordinal());
+
+            schedule(appCtx, spec, next);
 
             saveNextAtMs(appCtx, requestId, next);
 
         } catch (Throwable t) {
             logE("rescheduleNextFromIntent failed", t);
+        } finally {
+            commit(ctx);
         }
     }
 
-    private static long computeNextFromPhase(long now, long phase, long stepMs) {
-        if (stepMs <= 0) return now;
-        if (now <= phase) return phase;
-        long k = (now - phase + stepMs - 1) / stepMs; // ceil
-        return phase + k * stepMs;
-    }
+    // --------------------------------------------------------------------------------------------
+    // Catch-up after late delivery (CatchUpPolicy)
+    // --------------------------------------------------------------------------------------------
 
-    private static long phaseFromStartAnchorMs(long nowMs, String startAnchorTime) {
-        return phaseFromStartAnchorMs(nowMs, startAnchorTime, "", "");
+    /**
+     * Catch-up policy of one action: "fireOnce" (default), "skip" or "replay" (up to maxReplays
+     * missed slots back to back). Kept across re-schedules, dropped by cancel().
+     */
+    public static void setCatchUpPolicy(Context ctx, int requestId, String policy, int maxReplays) {
+        if (ctx == null || requestId <= 0) return;
+        try {
+            final CatchUpPolicy p = CatchUpPolicy.parse(policy);
+            ScheduleStore.get(ctx).setCatchUpPolicy(requestId, p, maxReplays);
+            logI("CATCHUP id=" + requestId + " policy=" + p.extra + " maxReplays=" + maxReplays);
+        } catch (Throwable t) {
+            logE("setCatchUpPolicy failed", t);
+        }
     }
 
-    private static long phaseFromStartAnchorMs(long nowMs, String startAnchorTime, String startTime, String endTime) {
-        int anchorMin = parseHHMMToMinutes(startAnchorTime);
-        if (anchorMin < 0) {
-            Calendar c = Calendar.getInstance();
-            c.setTimeInMillis(nowMs);
-            anchorMin = c.get(Calendar.HOUR_OF_DAY) * 60 + c.get(Calendar.MINUTE);
+    // missedNext <= now: either replay it (REPLAY, budget left) or jump to the first future slot
+    private static long catchUp(Context appCtx, ScheduleSpec spec, long lastPlanned, long phase, long missedNext, long now) {
+        final int requestId = spec.requestId;
+        final ScheduleStore st = ScheduleStore.get(appCtx);
+        final CatchUpPolicy policy = st.getCatchUpPolicy(requestId);
+
+        if (policy == CatchUpPolicy.REPLAY) {
+            final int replayed = st.getReplayed(requestId);
+            if (replayed < st.getCatchUpMaxReplays(requestId)) {
+                st.setReplayed(requestId, replayed + 1);
+                AlarmLog.w(AlarmLog.EV_CATCHUP, requestId, missedNext, missedNext, policy.ordinal());
+                return missedNext;
+            }
         }
-        long phase = dateAtMinutes(nowMs, anchorMin);
 
-        final int startMin = parseHHMMToMinutes(startTime);
-        final int endMin = parseHHMMToMinutes(endTime);
-        if (startMin >= 0 && endMin >= 0 && endMin < startMin) {
-            Calendar c = Calendar.getInstance();
-            c.setTimeInMillis(nowMs);
-            final int currentMin = c.get(Calendar.HOUR_OF_DAY) * 60 + c.get(Calendar.MINUTE);
-            if (currentMin < endMin && anchorMin >= startMin)
-                phase -= 24L * 60L * 60L * 1000L;
+        final long next = spec.nextFutureAfter(lastPlanned, phase, now);
+        if (next <= 0L) return missedNext;
+        st.setReplayed(requestId, 0);
+        AlarmMetrics.count(appCtx, AlarmMetrics.C_CATCHUP_RESYNCS);
+        AlarmLog.w(AlarmLog.EV_CATCHUP, requestId, missedNext, next, policy.ordinal());
+        return next;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Restore (RestoreReceiver): Boot, Uhrzeit-/Zeitzonenwechsel – ohne Qt-UI
+    // --------------------------------------------------------------------------------------------
+
+    // target for 100 actions on a mid-range device (see histogram "restore" in getMetricsJson)
+    static final long RESTORE_BUDGET_MS = 200L;
+
+    /**
+     * Re-arms every stored action in one pass over ScheduleStore (no JNI, no QML) and returns
+     * how many were armed. Boot / update: the stored next fire stays unless it was missed by more
+     * than CatchUpPolicy.LATE_TOLERANCE_MS - then the action's CatchUpPolicy decides like for a
+     * late delivery (REPLAY replays within its budget, FIRE_ONCE/SKIP resync to the first future
+     * slot), so a long power-off does not end in every action firing at once.
+     * Clock/zone change: the next fire is recomputed from now.
+     * In multiplex mode the batch ends in a single setAlarmClock().
+     */
+    static int restoreAll(Context ctx, boolean clockChanged) {
+        final long t0 = System.nanoTime();
+        final Context app = ctx.getApplicationContext();
+        if (clockChanged) ZoneTable.invalidate();
+        AlarmMultiplexer.forgetArmed();
+
+        int armed = 0;
+        int withoutSpec = 0;
+        beginBatch(app);
+        try {
+            final ScheduleStore store = ScheduleStore.get(app);
+            final long now = SchedulerClock.now();
+            for (int id : store.ids()) {
+                final long nextAt = store.getNextAtMs(id);
+                if (nextAt <= 0L) continue;
+
+                // ohne Spec (von einer alten Version geplant) kann nur QML neu planen
+                final ScheduleSpec spec = ScheduleSpec.load(app, id);
+                if (spec == null) {
+                    withoutSpec++;
+                    continue;
+                }
+
+                long at = nextAt;
+                if (clockChanged) {
+                    final long recomputed = spec.firstAfter(now, store.getPhaseMs(id));
+                    if (recomputed > 0L) at = recomputed;
+                } else if (nextAt < now - CatchUpPolicy.LATE_TOLERANCE_MS) {
+                    // verpasst, während das Gerät aus war: nicht alles auf einmal nachholen
+                    at = catchUp(app, spec, nextAt, store.getPhaseMs(id), nextAt, now);
+                }
+                schedule(app, spec, at);
+                armed++;
+            }
+        } catch (Throwable t) {
+            logE("restoreAll failed", t);
+        } finally {
+            commit(app);
         }
 
-        return phase;
+        final long us = (System.nanoTime() - t0) / 1000L;
+        AlarmMetrics.recordUs(app, AlarmMetrics.H_RESTORE, us);
+        AlarmLog.i(AlarmLog.EV_RESTORE, 0, armed, us / 1000L, clockChanged ? 1L : 0L);
+        if (withoutSpec > 0) logW("restoreAll: " + withoutSpec + " action(s) without stored spec");
+        if (us / 1000L > RESTORE_BUDGET_MS) {
+            logW("restoreAll: " + (us / 1000L) + "ms for " + armed + " actions (budget " + RESTORE_BUDGET_MS + "ms)");
+        }
+        return armed;
     }
 
-    private static boolean isWithinWindow(long tMs, int startMin, int endMin) {
-        if (startMin < 0 && endMin < 0) return true;
+    // --------------------------------------------------------------------------------------------
+    // Timeline: alle kommenden Fires aller Actions (für die UI, ein JNI-Call statt N)
+    // --------------------------------------------------------------------------------------------
+    private static final long TIMELINE_HORIZON_MS = 7L * 24L * 60L * 60L * 1000L;
+    private static final long TIMELINE_SLIDE_MS = 24L * 60L * 60L * 1000L;
 
-        java.util.Calendar c = java.util.Calendar.getInstance();
-        c.setTimeInMillis(tMs);
-        int curMin = c.get(java.util.Calendar.HOUR_OF_DAY) * 60 + c.get(java.util.Calendar.MINUTE);
+    private static final Object TIMELINE_LOCK = new Object();
+    private static ScheduleTimeline s_timeline = null;
 
-        if (startMin >= 0 && endMin >= 0) {
-            if (startMin == endMin) return true; // "ganztägig" Interpretation
-            if (startMin < endMin) {
-                return curMin >= startMin && curMin < endMin;
-            } else {
-                // über Mitternacht (z.B. 22:00-06:00)
-                return (curMin >= startMin) || (curMin < endMin);
+    /**
+     * Next (up to) count fires across all actions after fromMs, packed as
+     * [at0, id0, at1, id1, ...]. Looks at most TIMELINE_HORIZON_MS ahead.
+     */
+    public static long[] getUpcoming(Context ctx, long fromMs, int count) {
+        if (ctx == null || count <= 0) return new long[0];
+        try {
+            synchronized (TIMELINE_LOCK) {
+                final ScheduleTimeline tl = timeline(ctx, fromMs);
+                final long[] at = new long[count];
+                final int[] ids = new int[count];
+                return pack(at, ids, tl.nextFires(fromMs, count, at, ids));
             }
-        } else if (startMin >= 0) {
-            return curMin >= startMin;
-        } else { // endMin >= 0
-            return curMin < endMin;
+        } catch (Throwable t) {
+            logE("getUpcoming failed", t);
+            return new long[0];
         }
     }
 
-    private static int parseHHMMToMinutes(String s) {
+    /** All fires with t1 <= at < t2 (within the horizon), packed like getUpcoming. */
+    public static long[] getFiresBetween(Context ctx, long t1, long t2) {
+        if (ctx == null || t2 <= t1) return new long[0];
         try {
-            if (s == null) return -1;
-            s = s.trim();
-            if (s.isEmpty() || !s.contains(":")) return -1;
-            String[] p = s.split(":");
-            if (p.length < 2) return -1;
-            int hh = Integer.parseInt(p[0]);
-            int mm = Integer.parseInt(p[1]);
-            if (hh == 24 && mm == 0) return 24 * 60;
-            if (hh < 0 || hh > 23 || mm < 0 || mm > 59) return -1;
-            return hh * 60 + mm;
+            synchronized (TIMELINE_LOCK) {
+                final ScheduleTimeline tl = timeline(ctx, t1);
+                final int n = tl.countBetween(t1, t2);
+                final long[] at = new long[n];
+                final int[] ids = new int[n];
+                return pack(at, ids, tl.firesBetween(t1, t2, at, ids));
+            }
         } catch (Throwable t) {
-            return -1;
+            logE("getFiresBetween failed", t);
+            return new long[0];
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Metrics (AlarmMetrics) – one JNI call for the whole snapshot
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * Latency histograms + counters of the alarm pipeline as JSON (see AlarmMetrics.snapshotJson),
+     * with the wakelock time per action under "awakeMsByAction".
+     */
+    public static String getMetricsJson(Context ctx) {
+        if (ctx == null) return "{}";
+        try {
+            return AlarmMetrics.snapshotJson(ctx, WakeLockManager.awakeByActionJson(ctx));
+        } catch (Throwable t) {
+            logE("getMetricsJson failed", t);
+            return "{}";
+        }
+    }
+
+    /** Minimum level of AlarmLog (android.util.Log priority, default INFO; DEBUG adds audio/wakelock details). */
+    public static void setLogLevel(int level) {
+        AlarmLog.setMinLevel(level);
+    }
+
+    public static void resetMetrics(Context ctx) {
+        if (ctx == null) return;
+        AlarmMetrics.reset(ctx);
+    }
+
+    private static long[] pack(long[] at, int[] ids, int n) {
+        final long[] out = new long[n * 2];
+        for (int k = 0; k < n; k++) {
+            out[2 * k] = at[k];
+            out[2 * k + 1] = ids[k];
+        }
+        return out;
+    }
+
+    // lazily built from the persisted state; moved along when fromMs leaves the horizon
+    private static ScheduleTimeline timeline(Context ctx, long fromMs) {
+        if (s_timeline == null) {
+            final ScheduleTimeline tl = new ScheduleTimeline(fromMs, fromMs + TIMELINE_HORIZON_MS);
+            final Context app = ctx.getApplicationContext();
+            final ScheduleStore store = ScheduleStore.get(app);
+
+            final int[] all = store.ids();
+            int n = 0;
+            final int[] ids = new int[all.length];
+            final ScheduleTimeline.Occurrences[] streams = new ScheduleTimeline.Occurrences[all.length];
+            for (int id : all) {
+                final long nextAt = store.getNextAtMs(id);
+                if (nextAt <= 0L) continue;
+
+                // ohne Spec (z.B. von einer alten Version geplant) ist nur der nächste Fire bekannt
+                final ScheduleSpec spec = ScheduleSpec.load(app, id);
+                ids[n] = id;
+                streams[n] = (spec != null)
+                        ? spec.occurrences(nextAt, store.getPhaseMs(id))
+                        : ScheduleSpec.single(nextAt);
+                n++;
+            }
+            tl.rebuild(ids, streams, n);
+            s_timeline = tl;
+            logI("timeline built actions=" + n + " fires=" + tl.size());
+        } else if (fromMs < s_timeline.fromMs() || fromMs > s_timeline.fromMs() + TIMELINE_SLIDE_MS) {
+            s_timeline.setHorizon(fromMs, fromMs + TIMELINE_HORIZON_MS);
+        }
+        return s_timeline;
+    }
+
+    private static void timelineUpdate(int requestId, ScheduleTimeline.Occurrences occ) {
+        synchronized (TIMELINE_LOCK) {
+            // noch nicht gebaut -> wird beim ersten Query aus den Prefs gebaut
+            if (s_timeline != null) s_timeline.update(requestId, occ);
+        }
+    }
+
+    private static void timelineRemove(int requestId) {
+        synchronized (TIMELINE_LOCK) {
+            if (s_timeline != null) s_timeline.remove(requestId);
         }
     }
 
@@ -492,6 +959,32 @@ public class AlarmScheduler {
         return i;
     }
 
+    // Schedule-Intent eines Einzel-Alarms: nur der SpecPayload als Extra
+    private static Intent buildAlarmIntent(Context ctx, ScheduleSpec spec, long triggerAtMillis, long wakeAt) {
+        Intent i = buildBaseIntent(ctx, spec.requestId);
+        i.putExtra(EXTRA_SPEC, SpecPayload.encode(spec, triggerAtMillis));
+        if (wakeAt > 0L) i.putExtra(EXTRA_WAKE_AT, wakeAt);
+        return i;
+    }
+
+    // Per-action PendingIntent (legacy mode) entfernen; true wenn einer existierte
+    private static boolean cancelPendingIntent(Context app, int requestId) {
+        AlarmManager am = (AlarmManager) app.getSystemService(Context.ALARM_SERVICE);
+        if (am == null) return false;
+
+        Intent i = buildBaseIntent(app, requestId); // MUSS exakt zum Schedule-Intent passen
+
+        int flags = PendingIntent.FLAG_NO_CREATE;
+        if (Build.VERSION.SDK_INT >= 23) flags |= PendingIntent.FLAG_IMMUTABLE;
+
+        PendingIntent pi = PendingIntent.getBroadcast(app, requestId, i, flags);
+        if (pi == null) return false;
+
+        am.cancel(pi);
+        pi.cancel();
+        return true;
+    }
+
     private static int pendingIntentFlags() {
         int flags = PendingIntent.FLAG_UPDATE_CURRENT;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
@@ -499,79 +992,4 @@ public class AlarmScheduler {
         }
         return flags;
     }
-
-    private static float clamp01(float x) {
-        if (x < 0f) return 0f;
-        if (x > 1f) return 1f;
-        return x;
-    }
-
-    private static int readIntervalSeconds(Intent intent) {
-        int sec = intent.getIntExtra(EXTRA_INTERVAL_SECONDS, 0);
-        if (sec > 0) return sec;
-        // legacy fallback (bei dir jetzt Sekunden)
-        return intent.getIntExtra(EXTRA_INTERVAL_MINUTES, 0);
-    }
-
-    private static long dateAtMinutes(long nowMs, int minutes) {
-        Calendar c = Calendar.getInstance();
-        c.setTimeInMillis(nowMs);
-        c.set(Calendar.HOUR_OF_DAY, 0);
-        c.set(Calendar.MINUTE, 0);
-        c.set(Calendar.SECOND, 0);
-        c.set(Calendar.MILLISECOND, 0);
-        c.add(Calendar.MINUTE, minutes);
-        return c.getTimeInMillis();
-    }
-
-    /**
-     * Interval in SEKUNDEN:
-     * - vor Start -> Start
-     * - nach Ende -> nächster Tag Start
-     * - im Fenster -> now + intervalSeconds (wenn >= end -> nächster Tag Start)
-     */
-     static long computeNextIntervalFireMs(long nowMs, String startTime, String endTime, long phaseMs, int intervalSeconds) {
-         final int startMinRaw = parseHHMMToMinutes(startTime);
-         final int endMinRaw = parseHHMMToMinutes(endTime);
-         final int startMin = startMinRaw >= 0 ? startMinRaw : 0;
-         final int endMin = endMinRaw >= 0 ? endMinRaw : 24 * 60;
-
-         final long dayMs = 24L * 60L * 60L * 1000L;
-         long start = dateAtMinutes(nowMs, startMin);
-         long end = dateAtMinutes(nowMs, endMin);
-
-         if (endMin == startMin) {
-             end += dayMs;
-         } else if (endMin < startMin) {
-             Calendar c = Calendar.getInstance();
-             c.setTimeInMillis(nowMs);
-             final int currentMin = c.get(Calendar.HOUR_OF_DAY) * 60 + c.get(Calendar.MINUTE);
-             if (currentMin < endMin) {
-                 start -= dayMs;
-             } else {
-                 end += dayMs;
-             }
-         }
-
-         if (nowMs >= end) {
-             start += dayMs;
-             end += dayMs;
-         }
-
-         final long intervalMs = Math.max(1, intervalSeconds) * 1000L;
-         final long phase = phaseMs > 0L ? phaseMs : phaseFromStartAnchorMs(nowMs, "");
-         final long searchFrom = Math.max(nowMs, start);
-         long next = computeNextFromPhase(searchFrom, phase, intervalMs);
-
-         if (next < start) {
-             next = computeNextFromPhase(start, phase, intervalMs);
-         }
-
-         if (next >= end) {
-             start += dayMs;
-             next = computeNextFromPhase(start, phase, intervalMs);
-         }
-
-         return Math.max(next, nowMs + 1L);
-     }
 }
@@ -0,0 +1,339 @@
+package org.dailyactions;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AudioEngine
+ * - Plays the raw WAV sounds through preloaded static AudioTracks (one per sound)
+ * - Every sound is parsed ONCE (WavData) and written into its track; a fire only rewinds,
+ *   sets loop points/volume and calls play()
+ * - Zero copy load: the WAV is mapped read-only straight out of the APK (openRawResourceFd +
+ *   FileChannel.map, res/raw is stored uncompressed) and the track is fed from that mapping;
+ *   a resource that cannot be mapped is read through a stream as before
+ * - Runs on its own audio thread (URGENT_AUDIO); loop + hard stop are timed there,
+ *   not on the main looper
+ * - Low-latency performance mode on API 26+
+ *
+ * play(): one voice at a time (AlarmReceiver plays its queue sequentially).
+ * mix(): any number of voices summed into one stream (AudioMixer, mix mode of AlarmReceiver).
+ * Sounds that are not plain PCM WAV are reported via onFailed, the caller falls back.
+ *
+ * Cancel: stop() jumps the audio queue, so it can run before a start() of the same requestId
+ * that is still queued. Every play()/mix() carries the cancel generation of its requestId,
+ * taken by the caller BEFORE it publishes the sound (generation()); stop() bumps it, and a
+ * start()/AudioMixer.add() under an older generation is dropped without onDone/onFailed.
+ */
+final class AudioEngine {
+
+    private static final String TAG = "AudioEngine";
+
+    // Puffer nach dem Clip-Ende, bevor "einmal abspielen" als fertig gilt
+    private static final int END_MARGIN_MS = 20;
+
+    private static final class Clip {
+        final int resId;
+        final WavData wav;
+        final AudioTrack track;
+        Clip(int resId, WavData wav, AudioTrack track) {
+            this.resId = resId;
+            this.wav = wav;
+            this.track = track;
+        }
+    }
+
+    private static final class Voice {
+        final int requestId;
+        final Clip clip;
+        final Runnable onDone;
+        Runnable endTask;
+        Voice(int requestId, Clip clip, Runnable onDone) {
+            this.requestId = requestId;
+            this.clip = clip;
+            this.onDone = onDone;
+        }
+    }
+
+    private static final Object LOCK = new Object();
+    private static Handler s_handler = null;
+
+    // audio thread only
+    private static final HashMap<Integer, Clip> CLIPS = new HashMap<>();
+    private static final HashSet<Integer> UNSUPPORTED = new HashSet<>();
+    private static Voice s_voice = null;
+
+    // requestId -> cancel generation (bumped by stop(); one entry per action that was ever stopped)
+    private static final ConcurrentHashMap<Integer, Integer> CANCEL_GEN = new ConcurrentHashMap<>();
+
+    private AudioEngine() {}
+
+    private static Handler handler() {
+        synchronized (LOCK) {
+            if (s_handler == null) {
+                final HandlerThread t = new HandlerThread("DailyActionsAudio", Process.THREAD_PRIORITY_URGENT_AUDIO);
+                t.start();
+                s_handler = new Handler(t.getLooper());
+            }
+            return s_handler;
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // API (any thread)
+    // --------------------------------------------------------------------------------------------
+
+    /** Current cancel generation of requestId; pass it to play()/mix(). */
+    static int generation(int requestId) {
+        final Integer g = CANCEL_GEN.get(requestId);
+        return (g != null) ? g : 0;
+    }
+
+    /** Decodes the sound and prepares its track in the background (no-op if already done). */
+    static void preload(Context ctx, int resId) {
+        if (ctx == null || resId == 0) return;
+        final Context app = ctx.getApplicationContext();
+        handler().post(() -> clip(app, resId));
+    }
+
+    /**
+     * Plays resId for requestId.
+     * gen: generation(requestId) taken before the caller published the sound; a stop() since
+     * then drops the play (neither callback runs).
+     * stopAfterMs > 0: loop and stop after that time; otherwise play once.
+     * onDone runs on the audio thread when the sound ended by itself (not after stop()).
+     * onFailed runs on the audio thread if the sound cannot be played by the engine.
+     */
+    static void play(Context ctx, int requestId, int gen, int resId, float volume01, int stopAfterMs,
+                     Runnable onDone, Runnable onFailed) {
+        final Context app = ctx.getApplicationContext();
+        handler().post(() -> {
+            if (generation(requestId) != gen) {
+                Log.w(TAG, "play: id=" + requestId + " stopped before start -> dropped");
+                return;
+            }
+            start(app, requestId, resId, volume01, stopAfterMs, onDone, onFailed);
+        });
+    }
+
+    /**
+     * Like play(), but through AudioMixer: a sound that overlaps others starts at once and is
+     * summed with them instead of halting the running voice.
+     * onDone runs on the mixer thread, onFailed on the audio thread.
+     */
+    static void mix(Context ctx, int requestId, int gen, int resId, float volume01, int stopAfterMs,
+                    Runnable onDone, Runnable onFailed) {
+        final Context app = ctx.getApplicationContext();
+        handler().post(() -> {
+            if (generation(requestId) != gen) {
+                Log.w(TAG, "mix: id=" + requestId + " stopped before start -> dropped");
+                return;
+            }
+            final Clip c = clip(app, resId);
+            if (c == null || !AudioMixer.add(requestId, gen, resId, c.wav, volume01, stopAfterMs, onDone)) {
+                runQuietly(onFailed);
+            }
+        });
+    }
+
+    /**
+     * Stops the sound of requestId immediately if it is playing (voice or mixer), and drops a
+     * play()/mix() of it that is still queued. onDone is NOT called.
+     */
+    static void stop(int requestId) {
+        CANCEL_GEN.merge(requestId, 1, Integer::sum);
+        AudioMixer.stop(requestId);
+        final Handler h;
+        synchronized (LOCK) {
+            h = s_handler;
+        }
+        if (h == null) return; // nothing was ever played
+        h.postAtFrontOfQueue(() -> {
+            final Voice v = s_voice;
+            if (v != null && v.requestId == requestId) {
+                Log.w(TAG, "stop: id=" + requestId);
+                end(v, false);
+            }
+        });
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Audio thread
+    // --------------------------------------------------------------------------------------------
+    private static void start(Context app, int requestId, int resId, float volume01, int stopAfterMs,
+                              Runnable onDone, Runnable onFailed) {
+        if (s_voice != null) {
+            Log.w(TAG, "start: voice id=" + s_voice.requestId + " still active -> halt");
+            end(s_voice, false);
+        }
+
+        final Clip c = clip(app, resId);
+        if (c == null) {
+            runQuietly(onFailed);
+            return;
+        }
+
+        try {
+            final AudioTrack t = c.track;
+            final boolean loop = stopAfterMs > 0;
+
+            t.pause();
+            t.stop();
+            t.reloadStaticData();
+            if (loop) {
+                t.setLoopPoints(0, c.wav.frames(), -1);
+            } else {
+                t.setLoopPoints(0, 0, 0);
+            }
+            t.setPlaybackHeadPosition(0);
+            t.setVolume(volume01);
+
+            final Voice v = new Voice(requestId, c, onDone);
+            v.endTask = () -> end(v, true);
+            s_voice = v;
+
+            t.play();
+
+            final long endAfter = loop ? stopAfterMs : (c.wav.durationMs() + END_MARGIN_MS);
+            handler().postDelayed(v.endTask, endAfter);
+            AlarmLog.d(AlarmLog.EV_ENGINE_PLAY, requestId, resId, loop ? 1 : 0, endAfter);
+        } catch (Throwable t) {
+            Log.e(TAG, "play failed resId=" + resId, t);
+            s_voice = null;
+            dropClip(resId);
+            runQuietly(onFailed);
+        }
+    }
+
+    private static void end(Voice v, boolean natural) {
+        if (s_voice != v) return;
+        s_voice = null;
+        try { handler().removeCallbacks(v.endTask); } catch (Throwable ignored) {}
+        try {
+            v.clip.track.pause();
+            v.clip.track.stop();
+        } catch (Throwable t) {
+            Log.w(TAG, "end: stop failed: " + t);
+        }
+        if (natural) runQuietly(v.onDone);
+    }
+
+    private static Clip clip(Context app, int resId) {
+        final Clip cached = CLIPS.get(resId);
+        if (cached != null) return cached;
+        if (UNSUPPORTED.contains(resId)) return null;
+
+        final long t0 = System.nanoTime();
+        try {
+            final ByteBuffer mapped = mapRaw(app, resId);
+            final WavData wav = WavData.parse((mapped != null) ? mapped : ByteBuffer.wrap(readRaw(app, resId)));
+            if (wav == null) {
+                Log.w(TAG, "resId=" + resId + " is not a PCM WAV -> MediaPlayer fallback");
+                UNSUPPORTED.add(resId);
+                return null;
+            }
+
+            final int len = wav.pcm.remaining();
+            final AudioTrack.Builder b = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_ALARM)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setSampleRate(wav.sampleRate)
+                            .setEncoding(wav.bitsPerSample == 16
+                                    ? AudioFormat.ENCODING_PCM_16BIT : AudioFormat.ENCODING_PCM_8BIT)
+                            .setChannelMask(wav.channels == 2
+                                    ? AudioFormat.CHANNEL_OUT_STEREO : AudioFormat.CHANNEL_OUT_MONO)
+                            .build())
+                    .setTransferMode(AudioTrack.MODE_STATIC)
+                    .setBufferSizeInBytes(len);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                b.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+            }
+
+            final AudioTrack track = b.build();
+            final int written = track.write(wav.pcm.duplicate(), len, AudioTrack.WRITE_BLOCKING);
+            if (written != len || track.getState() != AudioTrack.STATE_INITIALIZED) {
+                Log.w(TAG, "resId=" + resId + " track init failed written=" + written + "/" + len
+                        + " state=" + track.getState());
+                track.release();
+                UNSUPPORTED.add(resId);
+                return null;
+            }
+
+            final Clip c = new Clip(resId, wav, track);
+            CLIPS.put(resId, c);
+            AlarmMetrics.recordSinceNanos(app, AlarmMetrics.H_SOUND_PREPARE, t0);
+            Log.i(TAG, "loaded resId=" + resId + (mapped != null ? " (mapped)" : " (copied)")
+                    + " frames=" + wav.frames() + " rate=" + wav.sampleRate
+                    + " in " + ((System.nanoTime() - t0) / 1000L) + "us");
+            return c;
+        } catch (Throwable t) {
+            Log.e(TAG, "load failed resId=" + resId, t);
+            UNSUPPORTED.add(resId);
+            return null;
+        }
+    }
+
+    private static void dropClip(int resId) {
+        final Clip c = CLIPS.remove(resId);
+        if (c != null) {
+            try { c.track.release(); } catch (Throwable ignored) {}
+        }
+    }
+
+    // The resource's region of the APK, mapped read-only (the mapping outlives the descriptor).
+    // null if it is stored compressed or cannot be mapped -> readRaw()
+    private static ByteBuffer mapRaw(Context app, int resId) {
+        final AssetFileDescriptor afd;
+        try {
+            afd = app.getResources().openRawResourceFd(resId);
+        } catch (Throwable t) {
+            // compressed in the APK: no plain file region to map
+            Log.i(TAG, "resId=" + resId + " not mappable: " + t);
+            return null;
+        }
+        if (afd == null) return null;
+
+        // the AutoCloseInputStream owns afd: closing it closes the descriptor
+        try (FileInputStream in = afd.createInputStream(); FileChannel ch = in.getChannel()) {
+            final long len = afd.getLength();
+            if (len <= 0L || len > Integer.MAX_VALUE) return null;
+            return ch.map(FileChannel.MapMode.READ_ONLY, afd.getStartOffset(), len);
+        } catch (Throwable t) {
+            Log.w(TAG, "map failed resId=" + resId + ": " + t);
+            return null;
+        }
+    }
+
+    private static byte[] readRaw(Context app, int resId) throws Exception {
+        try (InputStream in = app.getResources().openRawResource(resId)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+            final byte[] buf = new byte[16 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+            return out.toByteArray();
+        }
+    }
+
+    private static void runQuietly(Runnable r) {
+        try { if (r != null) r.run(); } catch (Throwable t) { Log.w(TAG, "callback failed: " + t); }
+    }
+}
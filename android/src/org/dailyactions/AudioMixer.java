@@ -0,0 +1,359 @@
+package org.dailyactions;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * AudioMixer
+ * - Mix mode of AudioEngine: every voice is summed into ONE streaming AudioTrack (16 bit stereo
+ *   at the device output rate), so sounds that fire together start at once instead of waiting
+ *   in PLAY_Q for the previous one
+ * - Clips are converted once per sound (WavData -> interleaved stereo shorts at the output
+ *   rate, linear resampling) and shared by all voices
+ * - Per voice: gain (volume01), loop + hard stop after stopAfterMs or play once, stop by requestId
+ * - Clipping protection: a block limiter (instant attack, ~0.5 s release, gain ramped across the
+ *   block) keeps the sum within 16 bit; what is left above is clamped
+ *
+ * The render loop runs on its own URGENT_AUDIO thread in BLOCK_MS blocks (a new voice is heard
+ * after at most one block plus the track buffer); without voices the track is stopped and the
+ * thread waits. add() runs on the AudioEngine thread, stop() may be called from any thread.
+ */
+final class AudioMixer {
+
+    private static final String TAG = "AudioMixer";
+
+    private static final int CHANNELS = 2;
+    private static final int BLOCK_MS = 10;
+    private static final float FULL_SCALE = 32767f;
+    // limiter release per block (10 ms): 1/50 -> full gain again after ~0.5 s
+    private static final float RELEASE_PER_BLOCK = 0.02f;
+
+    private static final class Voice {
+        final int requestId;
+        final short[] pcm;         // interleaved stereo
+        final int frames;
+        final boolean loop;
+        final float gain;
+        final Runnable onDone;
+        int pos = 0;
+        int remaining;             // frames until the voice ends
+
+        Voice(int requestId, short[] pcm, boolean loop, int stopAfterFrames, float gain, Runnable onDone) {
+            this.requestId = requestId;
+            this.pcm = pcm;
+            this.frames = pcm.length / CHANNELS;
+            this.loop = loop;
+            this.gain = gain;
+            this.onDone = onDone;
+            this.remaining = loop ? stopAfterFrames : frames;
+        }
+    }
+
+    private static final Object LOCK = new Object();
+    // guarded by LOCK
+    private static final ArrayList<Voice> PENDING = new ArrayList<>();
+    private static final HashSet<Integer> STOPPED = new HashSet<>();
+    private static Thread s_thread = null;
+    private static AudioTrack s_track = null;
+    private static int s_rate = 0;
+
+    // converted clips, per resId (audio thread of AudioEngine only)
+    private static final HashMap<Integer, short[]> MIX_PCM = new HashMap<>();
+
+    private AudioMixer() {}
+
+    /** Output sample rate (native rate of the alarm stream, 48 kHz if unknown). */
+    static int rate() {
+        synchronized (LOCK) {
+            if (s_rate <= 0) {
+                int r = 0;
+                try { r = AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_ALARM); } catch (Throwable ignored) {}
+                s_rate = (r > 0) ? r : 48000;
+            }
+            return s_rate;
+        }
+    }
+
+    private static int blockFrames() {
+        return rate() * BLOCK_MS / 1000;
+    }
+
+    /**
+     * Starts a voice for requestId (an older voice of the same id is stopped, without onDone).
+     * stopAfterMs > 0: loop and end after that time; otherwise play once.
+     * onDone runs on the mixer thread when the voice ended by itself (not after stop()).
+     * Called on the AudioEngine thread (converts the clip on first use); false if the clip or
+     * the output stream is not usable (caller falls back).
+     * gen: AudioEngine cancel generation of the mix() call; checked under LOCK, so a stop()
+     * either sees the voice in PENDING or the voice sees the stop (dropped, returns true).
+     */
+    static boolean add(int requestId, int gen, int resId, WavData wav, float volume01, int stopAfterMs, Runnable onDone) {
+        final short[] pcm = pcmFor(resId, wav);
+        if (pcm == null || pcm.length < CHANNELS) return false;
+        if (!ensureTrack()) return false;
+
+        final boolean loop = stopAfterMs > 0;
+        final int stopAfterFrames = (int) Math.min(Integer.MAX_VALUE, (long) stopAfterMs * rate() / 1000L);
+        final Voice v = new Voice(requestId, pcm, loop, stopAfterFrames, volume01, onDone);
+
+        synchronized (LOCK) {
+            if (AudioEngine.generation(requestId) != gen) return true; // stopped meanwhile
+            stopLocked(requestId);
+            PENDING.add(v);
+            if (s_thread == null) {
+                s_thread = new Thread(AudioMixer::run, "DailyActionsMixer");
+                s_thread.start();
+            }
+            LOCK.notifyAll();
+        }
+        AlarmLog.d(AlarmLog.EV_ENGINE_PLAY, requestId, resId, loop ? 1 : 0, loop ? stopAfterMs : wav.durationMs());
+        return true;
+    }
+
+    /** Ends the voice of requestId at the next block; onDone is NOT called. */
+    static void stop(int requestId) {
+        synchronized (LOCK) {
+            if (s_thread == null) return;
+            stopLocked(requestId);
+        }
+    }
+
+    private static void stopLocked(int requestId) {
+        for (int i = PENDING.size() - 1; i >= 0; i--) {
+            if (PENDING.get(i).requestId == requestId) PENDING.remove(i);
+        }
+        STOPPED.add(requestId);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Clip conversion (WavData -> stereo 16 bit at the output rate)
+    // --------------------------------------------------------------------------------------------
+    private static short[] pcmFor(int resId, WavData wav) {
+        final short[] cached = MIX_PCM.get(resId);
+        if (cached != null) return cached;
+        if (wav == null) return null;
+
+        final int srcFrames = wav.frames();
+        if (srcFrames <= 0) return null;
+        final int dstRate = rate();
+        final ByteBuffer src = wav.pcm;
+        final int srcCh = wav.channels;
+        final boolean pcm16 = wav.bitsPerSample == 16;
+        final int bpf = wav.bytesPerFrame();
+
+        final int dstFrames = (int) ((long) srcFrames * dstRate / wav.sampleRate);
+        final short[] out = new short[Math.max(1, dstFrames) * CHANNELS];
+        final double step = (double) wav.sampleRate / dstRate;
+        for (int f = 0; f < dstFrames; f++) {
+            final double at = f * step;
+            final int i0 = Math.min((int) at, srcFrames - 1);
+            final int i1 = Math.min(i0 + 1, srcFrames - 1);
+            final float frac = (float) (at - i0);
+            for (int c = 0; c < CHANNELS; c++) {
+                final int sc = Math.min(c, srcCh - 1);
+                final float s0 = sample(src, i0 * bpf, sc, pcm16);
+                final float s1 = sample(src, i1 * bpf, sc, pcm16);
+                out[f * CHANNELS + c] = (short) (s0 + (s1 - s0) * frac);
+            }
+        }
+        MIX_PCM.put(resId, out);
+        Log.i(TAG, "converted resId=" + resId + " " + wav.sampleRate + "Hz/" + srcCh + "ch -> "
+                + dstRate + "Hz/2ch frames=" + dstFrames);
+        return out;
+    }
+
+    // wav.pcm is little endian (see WavData)
+    private static float sample(ByteBuffer pcm, int frameOff, int channel, boolean pcm16) {
+        if (pcm16) return pcm.getShort(frameOff + channel * 2);
+        return ((pcm.get(frameOff + channel) & 0xFF) - 128) << 8;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Render loop (mixer thread)
+    // --------------------------------------------------------------------------------------------
+    private static void run() {
+        try { Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO); } catch (Throwable ignored) {}
+
+        final int blockFrames = blockFrames();
+        final float[] acc = new float[blockFrames * CHANNELS];
+        final short[] out = new short[blockFrames * CHANNELS];
+        final ArrayList<Voice> voices = new ArrayList<>();
+        final ArrayList<Voice> ended = new ArrayList<>();
+        boolean playing = false;
+        float limit = 1f;
+
+        while (true) {
+            AudioTrack track = null;
+            try {
+                boolean idle = false;
+                synchronized (LOCK) {
+                    // stops first: they only apply to voices added before them
+                    if (!STOPPED.isEmpty()) {
+                        for (int i = voices.size() - 1; i >= 0; i--) {
+                            if (STOPPED.contains(voices.get(i).requestId)) voices.remove(i);
+                        }
+                        STOPPED.clear();
+                    }
+                    voices.addAll(PENDING);
+                    PENDING.clear();
+                    track = s_track;
+                    if (voices.isEmpty()) {
+                        if (playing) idle = true;
+                        else LOCK.wait();
+                    }
+                }
+                if (idle) {
+                    // plays out what is buffered, then releases the output
+                    if (track != null) track.stop();
+                    playing = false;
+                    limit = 1f;
+                    continue;
+                }
+                if (voices.isEmpty()) continue;
+
+                if (track == null) {
+                    // output gone (render error): end the voices, the next add() builds a new one
+                    ended.addAll(voices);
+                    voices.clear();
+                } else {
+                    if (!playing) {
+                        track.play();
+                        playing = true;
+                    }
+                    limit = render(voices, ended, acc, out, blockFrames, limit);
+                    track.write(out, 0, out.length);
+                }
+            } catch (InterruptedException ie) {
+                return;
+            } catch (Throwable t) {
+                Log.e(TAG, "render failed", t);
+                synchronized (LOCK) {
+                    if (s_track == track) s_track = null;
+                }
+                if (track != null) {
+                    try { track.release(); } catch (Throwable ignored) {}
+                }
+                ended.addAll(voices);
+                voices.clear();
+                playing = false;
+            }
+
+            for (Voice v : ended) {
+                try { if (v.onDone != null) v.onDone.run(); } catch (Throwable t) { Log.w(TAG, "onDone failed: " + t); }
+            }
+            ended.clear();
+        }
+    }
+
+    // sums one block of all voices into out; returns the new limiter gain
+    private static float render(ArrayList<Voice> voices, ArrayList<Voice> ended,
+                                float[] acc, short[] out, int blockFrames, float limit) {
+        java.util.Arrays.fill(acc, 0f);
+
+        for (int k = voices.size() - 1; k >= 0; k--) {
+            final Voice v = voices.get(k);
+            final short[] pcm = v.pcm;
+            final float g = v.gain;
+            final int n = Math.min(blockFrames, v.remaining);
+            int pos = v.pos;
+            for (int f = 0; f < n; f++) {
+                final int i = pos * CHANNELS;
+                acc[f * CHANNELS] += pcm[i] * g;
+                acc[f * CHANNELS + 1] += pcm[i + 1] * g;
+                if (++pos == v.frames) {
+                    if (!v.loop) break;
+                    pos = 0;
+                }
+            }
+            v.pos = pos;
+            v.remaining -= n;
+            if (v.remaining <= 0 || (!v.loop && v.pos >= v.frames)) {
+                voices.remove(k);
+                ended.add(v);
+            }
+        }
+
+        float peak = 0f;
+        for (float s : acc) {
+            final float a = Math.abs(s);
+            if (a > peak) peak = a;
+        }
+        final float target = (peak > FULL_SCALE) ? FULL_SCALE / peak : 1f;
+        final float next = (target < limit) ? target : Math.min(target, limit + RELEASE_PER_BLOCK);
+
+        // ramp limit -> next across the block (no step at block borders)
+        final float dg = (next - limit) / blockFrames;
+        float gain = limit;
+        for (int f = 0; f < blockFrames; f++) {
+            gain += dg;
+            for (int c = 0; c < CHANNELS; c++) {
+                float s = acc[f * CHANNELS + c] * gain;
+                if (s > FULL_SCALE) s = FULL_SCALE;
+                else if (s < -FULL_SCALE) s = -FULL_SCALE;
+                out[f * CHANNELS + c] = (short) s;
+            }
+        }
+        return next;
+    }
+
+    private static boolean ensureTrack() {
+        synchronized (LOCK) {
+            if (s_track != null) return true;
+        }
+        final AudioTrack t = buildTrack(rate(), blockFrames());
+        if (t == null) return false;
+        synchronized (LOCK) {
+            if (s_track == null) {
+                s_track = t;
+                return true;
+            }
+        }
+        t.release();
+        return true;
+    }
+
+    private static AudioTrack buildTrack(int rate, int blockFrames) {
+        try {
+            final int minBytes = AudioTrack.getMinBufferSize(rate,
+                    AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+            // two blocks or the device minimum, whatever is larger (start latency of a new voice)
+            final int bytes = Math.max(minBytes, 2 * blockFrames * CHANNELS * 2);
+            final AudioTrack.Builder b = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_ALARM)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setSampleRate(rate)
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
+                            .build())
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .setBufferSizeInBytes(bytes);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                b.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+            }
+            final AudioTrack t = b.build();
+            if (t == null || t.getState() != AudioTrack.STATE_INITIALIZED) {
+                Log.w(TAG, "stream track init failed");
+                if (t != null) t.release();
+                return null;
+            }
+            Log.i(TAG, "stream track rate=" + rate + " buffer=" + bytes + "B");
+            return t;
+        } catch (Throwable t) {
+            Log.e(TAG, "buildTrack failed", t);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.dailyactions;
+
+/**
+ * CatchUpPolicy
+ * - What happens when an alarm is delivered so late (Doze, reboot, killed app) that the next
+ *   planned slot (lastPlanned + step) is already in the past
+ * - FIRE_ONCE: the late fire plays, the chain resyncs to the first future slot (default)
+ * - SKIP: a fire later than LATE_TOLERANCE_MS is dropped (no sound, no notification), then resync
+ * - REPLAY: the missed slots are replayed back to back, at most maxReplays, then resync
+ *
+ * The future slot is computed arithmetically from the stored phase (ScheduleSpec.nextFutureAfter),
+ * so a missed day costs one reschedule instead of one wakeup per missed interval.
+ * Stored per action in ScheduleStore (ordinal, 0 = default), independent of the spec.
+ */
+enum CatchUpPolicy {
+    FIRE_ONCE("fireOnce"),
+    SKIP("skip"),
+    REPLAY("replay");
+
+    /** A fire later than this counts as missed for SKIP (normal Doze/batching jitter stays below). */
+    static final long LATE_TOLERANCE_MS = 60_000L;
+
+    static final CatchUpPolicy DEFAULT = FIRE_ONCE;
+
+    final String extra;
+
+    CatchUpPolicy(String extra) { this.extra = extra; }
+
+    static CatchUpPolicy parse(String s) {
+        for (CatchUpPolicy p : values()) {
+            if (p.extra.equalsIgnoreCase(s)) return p;
+        }
+        return DEFAULT;
+    }
+
+    static CatchUpPolicy ofOrdinal(int ordinal) {
+        final CatchUpPolicy[] all = values();
+        return (ordinal >= 0 && ordinal < all.length) ? all[ordinal] : DEFAULT;
+    }
+}
@@ -0,0 +1,105 @@
+package org.dailyactions;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.UserManager;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+/**
+ * DirectBoot
+ * - The alarm state (ScheduleStore, AlarmPrefs, AlarmMetrics) lives in device-protected storage
+ *   (API 24+), so RestoreReceiver and AlarmReceiver work before the first unlock after a reboot
+ * - The former credential-protected files are moved over once, on the first call while the user
+ *   is unlocked (before that they are not readable anyway)
+ * - qml.log stays in credential storage (shared with the Qt side); see AlarmLog
+ */
+final class DirectBoot {
+
+    private static final String TAG = "DirectBoot";
+
+    private static final Object LOCK = new Object();
+    private static Context s_storage = null;
+    private static volatile boolean s_migrated = false;
+
+    private DirectBoot() {}
+
+    /** Context whose getFilesDir()/getSharedPreferences() hold the alarm state. */
+    static Context storage(Context ctx) {
+        final Context app = ctx.getApplicationContext();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) return app;
+
+        Context de;
+        synchronized (LOCK) {
+            if (s_storage == null) s_storage = app.createDeviceProtectedStorageContext();
+            de = s_storage;
+        }
+        if (!s_migrated && isUserUnlocked(app)) migrate(app, de);
+        return de;
+    }
+
+    static boolean isUserUnlocked(Context ctx) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) return true;
+        try {
+            final UserManager um = (UserManager) ctx.getSystemService(Context.USER_SERVICE);
+            return um == null || um.isUserUnlocked();
+        } catch (Throwable t) {
+            return true;
+        }
+    }
+
+    /**
+     * true if the schedule can be read now. While locked that needs an already migrated store;
+     * otherwise the restore has to wait for BOOT_COMPLETED (it would start from an empty store).
+     */
+    static boolean hasScheduleState(Context ctx) {
+        if (isUserUnlocked(ctx)) return true;
+        return new File(storage(ctx).getFilesDir(), ScheduleStore.FILE_NAME).exists();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // One-time move credential -> device-protected storage
+    // --------------------------------------------------------------------------------------------
+    private static void migrate(Context app, Context de) {
+        synchronized (LOCK) {
+            if (s_migrated) return;
+            try {
+                moveFile(app, de, ScheduleStore.FILE_NAME);
+                moveFile(app, de, AlarmMetrics.FILE_NAME);
+                if (!de.moveSharedPreferencesFrom(app, AlarmPrefs.NAME)) {
+                    Log.w(TAG, "moveSharedPreferencesFrom failed: " + AlarmPrefs.NAME);
+                }
+                de.moveSharedPreferencesFrom(app, AlarmPrefs.LEGACY_ALARM_NAME);
+            } catch (Throwable t) {
+                Log.e(TAG, "migrate failed", t);
+            }
+            s_migrated = true;
+        }
+    }
+
+    private static void moveFile(Context app, Context de, String name) {
+        final File from = new File(app.getFilesDir(), name);
+        final File to = new File(de.getFilesDir(), name);
+        if (!from.exists() || to.exists()) return;
+
+        if (!from.renameTo(to)) {
+            // different mount (user_de vs. user) -> copy
+            final byte[] b = new byte[64 * 1024];
+            try (FileInputStream in = new FileInputStream(from);
+                 FileOutputStream out = new FileOutputStream(to)) {
+                int n;
+                while ((n = in.read(b)) > 0) out.write(b, 0, n);
+                out.getFD().sync();
+            } catch (Throwable t) {
+                Log.e(TAG, "copy failed: " + name, t);
+                to.delete();
+                return;
+            }
+            from.delete();
+        }
+        Log.i(TAG, "moved " + name + " to device-protected storage");
+    }
+}
@@ -0,0 +1,156 @@
+package org.dailyactions;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * PackedActions
+ * - Reader for the fixed-layout action records SoundTaskManagerAndroid::commitBatch() writes
+ *   into ONE direct ByteBuffer: a whole settings change crosses JNI once instead of
+ *   13 arguments and 8 jstrings per action (AlarmScheduler.scheduleAll)
+ * - "HH:mm" values arrive already as minutes of day and the mode as ScheduleSpec.Mode ordinal,
+ *   so nothing is parsed here; only sound/title/text are decoded from UTF-8
+ *
+ * Layout (little endian, must match soundtaskmanagerandroid.cpp):
+ *   header   0 int magic, 4 int version, 8 int recordSize, 12 int cancelCount,
+ *           16 int recordCount, 20 int stringsOffset
+ *   24       int[cancelCount] requestIds to cancel (applied before the records)
+ *   records  recordCount x RECORD_SIZE:
+ *            0 long triggerAtMillis, 8 int requestId, 12 int mode,
+ *           16 short fixedMin, 18 short startMin, 20 short endMin, 22 short anchorMin (-1 = not set),
+ *           24 int intervalSeconds, 28 float volume01, 32 int durationSound,
+ *           36 int coalesceSeconds (-1 = default),
+ *           40/44 sound off/len, 48/52 title off/len, 56/60 text off/len (len -1 = null)
+ *   strings  UTF-8, offsets relative to stringsOffset
+ */
+final class PackedActions {
+
+    private static final String TAG = "PackedActions";
+
+    static final int MAGIC = 0x41504144; // "DAPA"
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 24;
+    static final int RECORD_SIZE = 64;
+
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORD_SIZE = 8;
+    private static final int H_CANCEL_COUNT = 12;
+    private static final int H_RECORD_COUNT = 16;
+    private static final int H_STRINGS = 20;
+
+    private static final int R_TRIGGER_AT = 0;
+    private static final int R_ID = 8;
+    private static final int R_MODE = 12;
+    private static final int R_FIXED_MIN = 16;
+    private static final int R_START_MIN = 18;
+    private static final int R_END_MIN = 20;
+    private static final int R_ANCHOR_MIN = 22;
+    private static final int R_INTERVAL_SEC = 24;
+    private static final int R_VOLUME = 28;
+    private static final int R_DURATION = 32;
+    private static final int R_COALESCE = 36;
+    private static final int R_SOUND = 40;
+    private static final int R_TITLE = 48;
+    private static final int R_TEXT = 56;
+
+    private final ByteBuffer buf;
+    private final int cancelCount;
+    private final int recordCount;
+    private final int recordsOffset;
+    private final int stringsOffset;
+    private byte[] scratch = new byte[256];
+
+    private PackedActions(ByteBuffer buf, int cancelCount, int recordCount, int stringsOffset) {
+        this.buf = buf;
+        this.cancelCount = cancelCount;
+        this.recordCount = recordCount;
+        this.recordsOffset = HEADER_SIZE + cancelCount * 4;
+        this.stringsOffset = stringsOffset;
+    }
+
+    /** null if the buffer does not carry a (compatible, complete) batch. */
+    static PackedActions wrap(ByteBuffer packed) {
+        if (packed == null || packed.capacity() < HEADER_SIZE) return null;
+        final ByteBuffer b = packed.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (b.getInt(H_MAGIC) != MAGIC || b.getInt(H_VERSION) != VERSION
+                || b.getInt(H_RECORD_SIZE) != RECORD_SIZE) {
+            Log.w(TAG, "incompatible header magic=" + Integer.toHexString(b.getInt(H_MAGIC))
+                    + " version=" + b.getInt(H_VERSION) + " recordSize=" + b.getInt(H_RECORD_SIZE));
+            return null;
+        }
+        final int cancels = b.getInt(H_CANCEL_COUNT);
+        final int records = b.getInt(H_RECORD_COUNT);
+        final int strings = b.getInt(H_STRINGS);
+        if (cancels < 0 || records < 0
+                || HEADER_SIZE + (long) cancels * 4 + (long) records * RECORD_SIZE > strings
+                || strings > b.capacity()) {
+            Log.w(TAG, "truncated batch cancels=" + cancels + " records=" + records + " size=" + b.capacity());
+            return null;
+        }
+        return new PackedActions(b, cancels, records, strings);
+    }
+
+    int cancelCount() {
+        return cancelCount;
+    }
+
+    int cancelId(int k) {
+        return buf.getInt(HEADER_SIZE + k * 4);
+    }
+
+    int recordCount() {
+        return recordCount;
+    }
+
+    long triggerAtMillis(int k) {
+        return buf.getLong(recordsOffset + k * RECORD_SIZE + R_TRIGGER_AT);
+    }
+
+    int requestId(int k) {
+        return buf.getInt(recordsOffset + k * RECORD_SIZE + R_ID);
+    }
+
+    /** Compiled spec of record k (null for an invalid requestId). */
+    ScheduleSpec spec(Context ctx, int k) {
+        final int off = recordsOffset + k * RECORD_SIZE;
+        final int requestId = buf.getInt(off + R_ID);
+        if (requestId <= 0) return null;
+
+        final int mode = buf.getInt(off + R_MODE);
+        final ScheduleSpec.Mode[] modes = ScheduleSpec.Mode.values();
+        final int coalesce = buf.getInt(off + R_COALESCE);
+        return ScheduleSpec.ofFields(ctx, requestId,
+                (mode >= 0 && mode < modes.length) ? modes[mode] : ScheduleSpec.Mode.UNKNOWN,
+                buf.getShort(off + R_FIXED_MIN),
+                buf.getShort(off + R_START_MIN),
+                buf.getShort(off + R_END_MIN),
+                buf.getShort(off + R_ANCHOR_MIN),
+                buf.getInt(off + R_INTERVAL_SEC),
+                buf.getFloat(off + R_VOLUME),
+                buf.getInt(off + R_DURATION),
+                (coalesce >= 0) ? coalesce : AlarmScheduler.DEFAULT_COALESCE_SECONDS,
+                string(off + R_SOUND),
+                string(off + R_TITLE),
+                string(off + R_TEXT));
+    }
+
+    private String string(int ref) {
+        final int off = buf.getInt(ref);
+        final int len = buf.getInt(ref + 4);
+        if (len < 0) return null;
+        final int from = stringsOffset + off;
+        if (off < 0 || from + len > buf.capacity()) {
+            Log.w(TAG, "string out of range off=" + off + " len=" + len);
+            return null;
+        }
+        if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+        for (int i = 0; i < len; i++) scratch[i] = buf.get(from + i);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,118 @@
+package org.dailyactions;
+
+import java.util.HashMap;
+
+/**
+ * PlayQueue
+ * - FIFO of pending sounds with an index requestId -> linked nodes of that id,
+ *   so dropping one action (cancel) unlinks only its own nodes: O(1) per node,
+ *   no drain/refill of the whole queue
+ * - Owns the "pump" token of AlarmReceiver: acquire() after an add, pollOrRelease()
+ *   when a sound has finished. Both run under the same monitor, so a sound added while
+ *   the pump goes idle is never left behind (no lost wakeup) and there is never more
+ *   than one pump.
+ *
+ * All critical sections are O(1) (removeId: O(number of nodes of that id)).
+ */
+final class PlayQueue<T> {
+
+    private static final class Node<T> {
+        final int requestId;
+        final T item;
+        Node<T> prev;
+        Node<T> next;
+        Node<T> nextSameId;
+        Node(int requestId, T item) {
+            this.requestId = requestId;
+            this.item = item;
+        }
+    }
+
+    // nodes of one requestId in FIFO order (poll always takes the head of a chain)
+    private static final class Chain<T> {
+        Node<T> head;
+        Node<T> tail;
+    }
+
+    private final HashMap<Integer, Chain<T>> byId = new HashMap<>();
+    private Node<T> head = null;
+    private Node<T> tail = null;
+    private int size = 0;
+    private boolean busy = false;
+
+    synchronized void add(int requestId, T item) {
+        final Node<T> n = new Node<>(requestId, item);
+        n.prev = tail;
+        if (tail != null) tail.next = n;
+        else head = n;
+        tail = n;
+        size++;
+
+        Chain<T> c = byId.get(requestId);
+        if (c == null) {
+            c = new Chain<>();
+            c.head = n;
+            byId.put(requestId, c);
+        } else {
+            c.tail.nextSameId = n;
+        }
+        c.tail = n;
+    }
+
+    /** true if the caller now owns the pump and has to start playing (pollOrRelease). */
+    synchronized boolean acquire() {
+        if (busy) return false;
+        busy = true;
+        return true;
+    }
+
+    /** Next item for the pump owner; null = queue empty and the pump is released. */
+    synchronized T pollOrRelease() {
+        final Node<T> n = head;
+        if (n == null) {
+            busy = false;
+            return null;
+        }
+        unlink(n);
+        final Chain<T> c = byId.get(n.requestId);
+        if (c != null) {
+            c.head = n.nextSameId;
+            if (c.head == null) byId.remove(n.requestId);
+        }
+        n.nextSameId = null;
+        return n.item;
+    }
+
+    /** Drops all queued items of requestId; returns how many were dropped. */
+    synchronized int removeId(int requestId) {
+        final Chain<T> c = byId.remove(requestId);
+        if (c == null) return 0;
+        int removed = 0;
+        for (Node<T> n = c.head; n != null; ) {
+            final Node<T> nx = n.nextSameId;
+            unlink(n);
+            n.nextSameId = null;
+            removed++;
+            n = nx;
+        }
+        return removed;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized boolean isBusy() {
+        return busy;
+    }
+
+    private void unlink(Node<T> n) {
+        if (n.prev != null) n.prev.next = n.next;
+        else head = n.next;
+        if (n.next != null) n.next.prev = n.prev;
+        else tail = n.prev;
+        n.prev = null;
+        n.next = null;
+        size--;
+    }
+}
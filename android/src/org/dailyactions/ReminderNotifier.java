@@ -0,0 +1,210 @@
+package org.dailyactions;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * ReminderNotifier
+ * - Notifications of fired actions, posted from the receiver worker (AlarmReceiver.worker())
+ * - post() only collects; fires within COALESCE_MS go out in one flush (flush() right away at
+ *   the end of a multiplexed wakeup, which already knows its whole batch)
+ * - Every fire is its own notification (id = requestId) in GROUP_KEY; the same action twice in
+ *   one flush is posted once. From the second fire on a group summary (InboxStyle, SUMMARY_ID)
+ *   is added and updated in place while further fires come within MERGE_MS of the previous
+ *   post: API 24+ shows the children bundled under it, older versions only the summary lines
+ * - The channel is checked/created once per process (apps cannot lose a channel they did not
+ *   delete themselves); the two builders are created once and refilled per post
+ *
+ * Worker thread only, no locking.
+ */
+final class ReminderNotifier {
+
+    private static final String TAG = "ReminderNotifier";
+
+    // IMPORTANT:
+    // - Android NotificationChannel settings are sticky once created.
+    // - We bump the channel id so existing installs immediately get a SILENT channel.
+    static final String CH_ID   = "dailyactions_reminder_silent_v2";
+    private static final String CH_NAME = "DailyActions";
+    private static final String CH_DESC = "Aktionen/Erinnerungen";
+
+    static final String GROUP_KEY = "dailyactions_reminders";
+    static final int SUMMARY_ID = -1;           // requestIds are > 0
+
+    // fires closer together than this share one transaction
+    static final long COALESCE_MS = 300L;
+    // a summary/notification posted less than this ago is extended instead of replaced
+    static final long MERGE_MS = 60_000L;
+    private static final int MAX_LINES = 6;
+
+    // worker thread
+    private static boolean s_channelReady = false;
+    private static NotificationCompat.Builder s_single = null;
+    private static NotificationCompat.Builder s_summary = null;
+    private static final ArrayList<ScheduleSpec> s_pending = new ArrayList<>();
+    private static WakeLockManager.Hold s_hold = null;   // CPU awake until the flush
+    private static Context s_app = null;
+    // what is on screen: lines of the recent fires (newest first) and their number
+    private static final ArrayDeque<CharSequence> s_lines = new ArrayDeque<>();
+    private static int s_shown = 0;
+    private static long s_lastPostMs = 0L;
+
+    private static final Runnable FLUSH = () -> flush(s_app);
+
+    private ReminderNotifier() {}
+
+    /** Queues the notification of spec; goes out with the next flush (at the latest after COALESCE_MS). */
+    static void post(Context ctx, ScheduleSpec spec) {
+        if (ctx == null || spec == null) return;
+        s_app = ctx.getApplicationContext();
+        s_pending.add(spec);
+        if (s_pending.size() > 1) return;
+
+        // goAsync may finish before the flush runs
+        s_hold = WakeLockManager.acquire(s_app, 0, WakeLockManager.timeoutFor(COALESCE_MS));
+        try {
+            AlarmReceiver.worker().postDelayed(FLUSH, COALESCE_MS);
+        } catch (Throwable t) {
+            Log.w(TAG, "post: delayed flush failed: " + t);
+            flush(s_app);
+        }
+    }
+
+    /** Posts everything queued as one notification (no-op if nothing is queued). */
+    static void flush(Context ctx) {
+        if (s_pending.isEmpty() || ctx == null) return;
+        try { AlarmReceiver.worker().removeCallbacks(FLUSH); } catch (Throwable ignored) {}
+
+        final long t0 = System.nanoTime();
+        final int n = s_pending.size();
+        try {
+            ensureChannel(ctx);
+
+            final NotificationManagerCompat nm = NotificationManagerCompat.from(ctx);
+            final long now = SystemClock.elapsedRealtime();
+            if (s_shown > 0 && now - s_lastPostMs > MERGE_MS) {
+                // new series: the old summary must not adopt the next single fire
+                if (s_shown > 1) nm.cancel(SUMMARY_ID);
+                s_lines.clear();
+                s_shown = 0;
+            }
+            for (int i = 0; i < n; i++) {
+                s_lines.addFirst(lineOf(s_pending.get(i)));
+                if (s_lines.size() > MAX_LINES) s_lines.removeLast();
+            }
+            s_shown += n;
+            s_lastPostMs = now;
+
+            // children first, then the summary that bundles them
+            int posted = 0;
+            for (int i = 0; i < n; i++) {
+                final ScheduleSpec spec = s_pending.get(i);
+                if (firedAgainLater(spec.requestId, i + 1)) continue; // same id: the later one replaces it anyway
+                nm.notify(spec.requestId, single(ctx, spec));
+                posted++;
+            }
+            if (s_shown > 1) nm.notify(SUMMARY_ID, summary(ctx));
+            if (posted < n) AlarmMetrics.add(ctx, AlarmMetrics.C_NOTIFY_COALESCED, n - posted);
+            AlarmLog.d(AlarmLog.EV_NOTIFY_POST, (s_shown == 1) ? s_pending.get(0).requestId : SUMMARY_ID, n, s_shown, 0L);
+        } catch (Throwable t) {
+            Log.w(TAG, "flush failed: " + t);
+            s_channelReady = false; // check again next time
+        } finally {
+            s_pending.clear();
+            AlarmMetrics.recordSinceNanos(ctx, AlarmMetrics.H_NOTIFICATION, t0);
+            WakeLockManager.release(s_hold);
+            s_hold = null;
+        }
+    }
+
+    // s_pending is a handful of entries: a scan beats a set
+    private static boolean firedAgainLater(int requestId, int from) {
+        for (int i = from; i < s_pending.size(); i++) {
+            if (s_pending.get(i).requestId == requestId) return true;
+        }
+        return false;
+    }
+
+    private static android.app.Notification single(Context ctx, ScheduleSpec spec) {
+        if (s_single == null) {
+            s_single = new NotificationCompat.Builder(ctx, CH_ID)
+                    .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
+                    .setPriority(NotificationCompat.PRIORITY_LOW)
+                    .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                    .setGroup(GROUP_KEY)
+                    .setAutoCancel(true)
+                    .setSilent(true);
+        }
+        return s_single
+                .setContentTitle(spec.notifTitle)
+                .setContentText(spec.notifText)
+                .setWhen(System.currentTimeMillis())
+                .build();
+    }
+
+    private static android.app.Notification summary(Context ctx) {
+        if (s_summary == null) {
+            s_summary = new NotificationCompat.Builder(ctx, CH_ID)
+                    .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
+                    .setPriority(NotificationCompat.PRIORITY_LOW)
+                    .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                    .setGroup(GROUP_KEY)
+                    .setGroupSummary(true)
+                    .setOnlyAlertOnce(true)
+                    .setAutoCancel(true)
+                    .setSilent(true);
+        }
+        final String title = s_shown + " Erinnerungen";
+        final NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle().setBigContentTitle(title);
+        for (CharSequence line : s_lines) style.addLine(line);
+        if (s_shown > s_lines.size()) style.setSummaryText("+" + (s_shown - s_lines.size()) + " weitere");
+
+        return s_summary
+                .setContentTitle(title)
+                .setContentText(s_lines.peekFirst())
+                .setNumber(s_shown)
+                .setStyle(style)
+                .setWhen(System.currentTimeMillis())
+                .build();
+    }
+
+    private static CharSequence lineOf(ScheduleSpec spec) {
+        final String title = (spec.notifTitle != null) ? spec.notifTitle : "";
+        if (spec.notifText == null || spec.notifText.isEmpty()) return title;
+        return title.isEmpty() ? spec.notifText : title + " – " + spec.notifText;
+    }
+
+    // one binder round trip per process instead of one per fire
+    private static void ensureChannel(Context ctx) {
+        if (s_channelReady) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager nm = (NotificationManager) ctx.getSystemService(Context.NOTIFICATION_SERVICE);
+            if (nm == null) return;
+
+            if (nm.getNotificationChannel(CH_ID) == null) {
+                NotificationChannel channel = new NotificationChannel(
+                        CH_ID, CH_NAME, NotificationManager.IMPORTANCE_LOW
+                );
+                channel.setDescription(CH_DESC);
+
+                // force silent
+                channel.setSound(null, null);
+                channel.enableVibration(false);
+                channel.enableLights(false);
+
+                nm.createNotificationChannel(channel);
+            }
+        }
+        s_channelReady = true;
+    }
+}
@@ -0,0 +1,67 @@
+package org.dailyactions;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * RestoreReceiver
+ * - Re-arms all stored actions without the Qt UI:
+ *   LOCKED_BOOT_COMPLETED / BOOT_COMPLETED (system alarms are gone after a reboot),
+ *   TIME_SET / TIMEZONE_CHANGED (next fires are recomputed from now), MY_PACKAGE_REPLACED
+ * - One pass over ScheduleStore on the receiver worker (AlarmScheduler.restoreAll); in
+ *   multiplex mode that is a single setAlarmClock() for all actions
+ * - directBootAware: the state is in device-protected storage (DirectBoot), so reminders resume
+ *   before the first unlock
+ */
+public class RestoreReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "RestoreReceiver";
+
+    // restored on LOCKED_BOOT_COMPLETED in this process -> BOOT_COMPLETED has nothing left to do
+    private static volatile boolean s_bootRestored = false;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (context == null || intent == null) return;
+
+        final String action = intent.getAction();
+        final boolean lockedBoot = Intent.ACTION_LOCKED_BOOT_COMPLETED.equals(action);
+        final boolean boot = lockedBoot || Intent.ACTION_BOOT_COMPLETED.equals(action);
+        final boolean clockChanged = Intent.ACTION_TIME_CHANGED.equals(action)
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(action);
+        if (!boot && !clockChanged && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            Log.w(TAG, "ignored action=" + action);
+            return;
+        }
+        if (boot && !lockedBoot && s_bootRestored) {
+            Log.i(TAG, "BOOT_COMPLETED: already restored before unlock");
+            return;
+        }
+
+        final Context appCtx = context.getApplicationContext();
+        AlarmLog.attach(appCtx);
+        final PendingResult pr = goAsync();
+        try {
+            AlarmReceiver.worker().post(() -> {
+                try {
+                    // locked and never migrated: the store would start empty -> BOOT_COMPLETED follows
+                    if (!DirectBoot.hasScheduleState(appCtx)) {
+                        Log.i(TAG, action + ": user locked, no device-protected state yet");
+                        return;
+                    }
+                    AlarmScheduler.restoreAll(appCtx, clockChanged);
+                    if (boot) s_bootRestored = true;
+                } catch (Throwable t) {
+                    Log.e(TAG, "restore failed (" + action + ")", t);
+                } finally {
+                    if (pr != null) pr.finish();
+                }
+            });
+        } catch (Throwable t) {
+            Log.e(TAG, "onReceive: worker post failed", t);
+            if (pr != null) pr.finish();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.dailyactions;
+
+/**
+ * ScheduleMath
+ * - Pure next-fire computation (no Android, no Calendar, no allocation)
+ * - Works on epoch millis with the cached offsets/transitions of ZoneTable
+ * - Results are identical to the former Calendar based code in AlarmScheduler
+ *   (incl. DST gaps/overlaps and windows crossing midnight), except on DST switch days: window
+ *   bounds of interval actions are wall clock there (wallClockAt), like fixed times in ScheduleRule.
+ *   The interval grid itself (phase + k * interval) stays elapsed time.
+ *
+ * Every function exists twice: with an explicit ZoneTable and with the default zone.
+ */
+final class ScheduleMath {
+
+    static final long DAY_MS = ZoneTable.DAY_MS;
+
+    private ScheduleMath() {}
+
+    // --------------------------------------------------------------------------------------------
+    // Parsing
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * "HH:mm" -> minutes of day, "24:00" -> 1440, invalid -> -1.
+     * Same acceptance as trim() + split(":") + Integer.parseInt, without allocating.
+     */
+    static int parseHHMMToMinutes(String s) {
+        if (s == null) return -1;
+
+        int b = 0;
+        int e = s.length();
+        while (b < e && s.charAt(b) <= ' ') b++;
+        while (e > b && s.charAt(e - 1) <= ' ') e--;
+        if (b >= e) return -1;
+
+        final int c1 = s.indexOf(':', b);
+        if (c1 < 0 || c1 >= e) return -1;
+
+        int c2 = s.indexOf(':', c1 + 1);
+        if (c2 < 0 || c2 > e) c2 = e;
+
+        final int hh = parseIntField(s, b, c1);
+        final int mm = parseIntField(s, c1 + 1, c2);
+        if (hh == Integer.MIN_VALUE || mm == Integer.MIN_VALUE) return -1;
+
+        if (hh == 24 && mm == 0) return 24 * 60;
+        if (hh < 0 || hh > 23 || mm < 0 || mm > 59) return -1;
+        return hh * 60 + mm;
+    }
+
+    // Integer.parseInt on s[from, to); Integer.MIN_VALUE if it would throw (or is far out of range)
+    private static int parseIntField(String s, int from, int to) {
+        if (from >= to) return Integer.MIN_VALUE;
+
+        boolean neg = false;
+        final char first = s.charAt(from);
+        if (first == '-' || first == '+') {
+            neg = (first == '-');
+            from++;
+            if (from >= to) return Integer.MIN_VALUE;
+        }
+
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            final int d = Character.digit(s.charAt(i), 10);
+            if (d < 0) return Integer.MIN_VALUE;
+            // values this large are rejected by the range check anyway
+            if (v < 100000) v = v * 10 + d;
+        }
+        return neg ? -v : v;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Day arithmetic
+    // --------------------------------------------------------------------------------------------
+
+    /** Local midnight of nowMs plus the given minutes (as absolute millis, like Calendar.add). */
+    static long dateAtMinutes(ZoneTable zt, long nowMs, int minutes) {
+        return zt.localMidnightUtc(nowMs) + minutes * 60000L;
+    }
+
+    static long dateAtMinutes(long nowMs, int minutes) {
+        return dateAtMinutes(ZoneTable.forDefault(nowMs), nowMs, minutes);
+    }
+
+    /**
+     * Wall-clock time "minutes" on the local date of nowMs as UTC millis: unlike dateAtMinutes it
+     * stays on HH:mm on a DST switch day (a time in the spring gap moves forward).
+     * minutes >= 1440 continue on the following dates.
+     */
+    static long wallClockAt(ZoneTable zt, long nowMs, int minutes) {
+        final long wall = nowMs + zt.offsetAtUtc(nowMs);
+        final long at = Math.floorDiv(wall, DAY_MS) * DAY_MS + minutes * 60000L;
+        return at - zt.offsetAtWall(at);
+    }
+
+    static long computeNextFromPhase(long now, long phase, long stepMs) {
+        if (stepMs <= 0) return now;
+        if (now <= phase) return phase;
+        long k = (now - phase + stepMs - 1) / stepMs; // ceil
+        return phase + k * stepMs;
+    }
+
+    static long phaseFromStartAnchorMs(ZoneTable zt, long nowMs, String startAnchorTime, String startTime, String endTime) {
+        return phaseFromStartAnchorMs(zt, nowMs, parseHHMMToMinutes(startAnchorTime),
+                parseHHMMToMinutes(startTime), parseHHMMToMinutes(endTime));
+    }
+
+    /** Same with pre-parsed minutes of day (-1 = not set). */
+    static long phaseFromStartAnchorMs(ZoneTable zt, long nowMs, int anchorMinRaw, int startMin, int endMin) {
+        int anchorMin = anchorMinRaw;
+        if (anchorMin < 0) {
+            anchorMin = zt.minuteOfDay(nowMs);
+        }
+        long phase = dateAtMinutes(zt, nowMs, anchorMin);
+
+        if (startMin >= 0 && endMin >= 0 && endMin < startMin) {
+            final int currentMin = zt.minuteOfDay(nowMs);
+            if (currentMin < endMin && anchorMin >= startMin)
+                phase -= DAY_MS;
+        }
+
+        return phase;
+    }
+
+    static long phaseFromStartAnchorMs(long nowMs, String startAnchorTime, String startTime, String endTime) {
+        return phaseFromStartAnchorMs(ZoneTable.forDefault(nowMs), nowMs, startAnchorTime, startTime, endTime);
+    }
+
+    static boolean isWithinWindow(ZoneTable zt, long tMs, int startMin, int endMin) {
+        if (startMin < 0 && endMin < 0) return true;
+
+        final int curMin = zt.minuteOfDay(tMs);
+
+        if (startMin >= 0 && endMin >= 0) {
+            if (startMin == endMin) return true; // "ganztägig" Interpretation
+            if (startMin < endMin) {
+                return curMin >= startMin && curMin < endMin;
+            } else {
+                // über Mitternacht (z.B. 22:00-06:00)
+                return (curMin >= startMin) || (curMin < endMin);
+            }
+        } else if (startMin >= 0) {
+            return curMin >= startMin;
+        } else { // endMin >= 0
+            return curMin < endMin;
+        }
+    }
+
+    static boolean isWithinWindow(long tMs, int startMin, int endMin) {
+        return isWithinWindow(ZoneTable.forDefault(tMs), tMs, startMin, endMin);
+    }
+
+    /**
+     * Interval in SEKUNDEN:
+     * - vor Start -> Start
+     * - nach Ende -> nächster Tag Start
+     * - im Fenster -> nächster Phasen-Slot (wenn >= end -> nächster Tag Start)
+     * Start/Ende sind Uhrzeit auf dem jeweiligen Datum, auch am Tag der Zeitumstellung.
+     */
+    static long computeNextIntervalFireMs(ZoneTable zt, long nowMs, int startMinRaw, int endMinRaw, long phaseMs, int intervalSeconds) {
+        final int startMin = startMinRaw >= 0 ? startMinRaw : 0;
+        final int endMin = endMinRaw >= 0 ? endMinRaw : 24 * 60;
+
+        // window bounds in minutes relative to the local date of nowMs, resolved as wall clock
+        int startAt = startMin;
+        int endAt = endMin;
+
+        if (endMin == startMin) {
+            endAt += 24 * 60;
+        } else if (endMin < startMin) {
+            final int currentMin = zt.minuteOfDay(nowMs);
+            if (currentMin < endMin) {
+                startAt -= 24 * 60;
+            } else {
+                endAt += 24 * 60;
+            }
+        }
+
+        if (nowMs >= wallClockAt(zt, nowMs, endAt)) {
+            startAt += 24 * 60;
+            endAt += 24 * 60;
+        }
+        long start = wallClockAt(zt, nowMs, startAt);
+        final long end = wallClockAt(zt, nowMs, endAt);
+
+        final long intervalMs = Math.max(1, intervalSeconds) * 1000L;
+        final long phase = phaseMs > 0L ? phaseMs : zt.localMidnightUtc(nowMs) + zt.minuteOfDay(nowMs) * 60000L;
+        final long searchFrom = Math.max(nowMs, start);
+        long next = computeNextFromPhase(searchFrom, phase, intervalMs);
+
+        if (next < start) {
+            next = computeNextFromPhase(start, phase, intervalMs);
+        }
+
+        if (next >= end) {
+            start = wallClockAt(zt, nowMs, startAt + 24 * 60);
+            next = computeNextFromPhase(start, phase, intervalMs);
+        }
+
+        return Math.max(next, nowMs + 1L);
+    }
+
+    static long computeNextIntervalFireMs(long nowMs, String startTime, String endTime, long phaseMs, int intervalSeconds) {
+        return computeNextIntervalFireMs(ZoneTable.forDefault(nowMs), nowMs,
+                parseHHMMToMinutes(startTime), parseHHMMToMinutes(endTime), phaseMs, intervalSeconds);
+    }
+}
@@ -0,0 +1,115 @@
+package org.dailyactions;
+
+/**
+ * ScheduleRule
+ * - The timing part of a ScheduleSpec (mode, fixed time, window, anchor, interval) and the
+ *   fire arithmetic on it: phase, next fire, catch-up resync, first fire after a clock change,
+ *   occurrence stream for ScheduleTimeline
+ * - Android-free: ScheduleSpec delegates here, the bench simulator drives it directly
+ *
+ * Fixed times advance by local date (the next day at fixedMin, ScheduleMath.wallClockAt), not by
+ * 24h, so a daily action keeps its wall-clock time across and on DST switch days. Interval windows
+ * use the same wall-clock bounds (ScheduleMath.computeNextIntervalFireMs).
+ */
+final class ScheduleRule {
+
+    static final long DAY_MS = ZoneTable.DAY_MS;
+
+    // = ScheduleSpec.Mode ordinals (also stored in ScheduleStore / PackedActions / SpecPayload)
+    static final int FIXED_TIME = 0;
+    static final int INTERVAL = 1;
+    static final int UNKNOWN = 2;
+
+    final int kind;
+    final int fixedMin;        // -1 = not set
+    final int startMin;        // -1 = not set
+    final int endMin;          // -1 = not set
+    final int anchorMin;       // -1 = not set (-> "now" when the phase is computed)
+    final int intervalSeconds;
+
+    ScheduleRule(int kind, int fixedMin, int startMin, int endMin, int anchorMin, int intervalSeconds) {
+        this.kind = (kind == FIXED_TIME || kind == INTERVAL) ? kind : UNKNOWN;
+        this.fixedMin = fixedMin;
+        this.startMin = startMin;
+        this.endMin = endMin;
+        this.anchorMin = anchorMin;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    /** Phase (anchor slot) of an interval action, seen from nowMs. */
+    long phaseAt(long nowMs) {
+        return ScheduleMath.phaseFromStartAnchorMs(ZoneTable.forDefault(nowMs), nowMs, anchorMin, startMin, endMin);
+    }
+
+    /** Next planned fire after lastPlannedMs; <= 0 if there is none (unknown mode / no interval). */
+    long nextAfter(long lastPlannedMs, long phaseMs) {
+        switch (kind) {
+            case FIXED_TIME:
+                return (fixedMin >= 0) ? nextFixedAfter(lastPlannedMs) : lastPlannedMs + DAY_MS;
+            case INTERVAL:
+                if (intervalSeconds <= 0) return 0L;
+                final long t = lastPlannedMs + 1L;
+                return ScheduleMath.computeNextIntervalFireMs(
+                        ZoneTable.forDefault(t), t, startMin, endMin, phaseMs, intervalSeconds);
+            default:
+                return 0L;
+        }
+    }
+
+    /**
+     * First planned fire after nowMs on the grid of lastPlannedMs/phaseMs, in O(1) no matter how
+     * many slots were missed (CatchUpPolicy resync); <= 0 if there is none.
+     */
+    long nextFutureAfter(long lastPlannedMs, long phaseMs, long nowMs) {
+        switch (kind) {
+            case FIXED_TIME:
+                if (fixedMin >= 0) return nextFixedAfter(Math.max(lastPlannedMs, nowMs));
+                if (nowMs < lastPlannedMs) return lastPlannedMs + DAY_MS;
+                return lastPlannedMs + ((nowMs - lastPlannedMs) / DAY_MS + 1L) * DAY_MS;
+            case INTERVAL:
+                return nextAfter(Math.max(lastPlannedMs, nowMs), phaseMs);
+            default:
+                return 0L;
+        }
+    }
+
+    /**
+     * First fire after nowMs, computed from scratch in the current zone (RestoreReceiver after a
+     * clock or time zone change, where the old grid no longer applies); <= 0 if there is none.
+     */
+    long firstAfter(long nowMs, long phaseMs) {
+        switch (kind) {
+            case FIXED_TIME:
+                return (fixedMin >= 0) ? nextFixedAfter(nowMs) : 0L;
+            case INTERVAL:
+                return nextAfter(nowMs, phaseMs);
+            default:
+                return 0L;
+        }
+    }
+
+    /** All fires from firstAtMs on (for ScheduleTimeline). */
+    ScheduleTimeline.Occurrences occurrences(final long firstAtMs, final long phaseMs) {
+        if (kind == UNKNOWN || (kind == INTERVAL && intervalSeconds <= 0)) {
+            return single(firstAtMs);
+        }
+        if (kind == FIXED_TIME && fixedMin < 0) {
+            return t -> {
+                if (t < firstAtMs) return firstAtMs;
+                return firstAtMs + ((t - firstAtMs) / DAY_MS + 1L) * DAY_MS;
+            };
+        }
+        return t -> (t < firstAtMs) ? firstAtMs : nextAfter(t, phaseMs);
+    }
+
+    static ScheduleTimeline.Occurrences single(final long atMs) {
+        return t -> (t < atMs) ? atMs : 0L;
+    }
+
+    // fixedMin (wall clock) on the local date of tMs if still ahead, else on the next date
+    private long nextFixedAfter(long tMs) {
+        final ZoneTable zt = ZoneTable.forDefault(tMs);
+        final long today = ScheduleMath.wallClockAt(zt, tMs, fixedMin);
+        return (today > tMs) ? today : ScheduleMath.wallClockAt(zt, tMs, fixedMin + 24 * 60);
+    }
+}
@@ -0,0 +1,451 @@
+package org.dailyactions;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.util.HashMap;
+
+/**
+ * ScheduleSpec
+ * - Immutable, compiled form of one action (what the Intent extras describe)
+ * - "HH:mm" strings are parsed ONCE into minutes of day, mode is an enum,
+ *   interval in ms, sound resolved to a raw resource id
+ * - Compiled when the action is scheduled and cached by requestId; scheduler,
+ *   multiplexer and receiver work from this object, so a fire does no string parsing
+ * - The fire arithmetic lives in its ScheduleRule (Android-free, also used by the bench simulator)
+ *
+ * Persisted as a ScheduleStore record; the raw strings are kept for logging and for the
+ * store's sound/title/text fields.
+ */
+final class ScheduleSpec {
+
+    private static final String TAG = "ScheduleSpec";
+
+    static final long DAY_MS = ZoneTable.DAY_MS;
+
+    enum Mode {
+        FIXED_TIME("fixedTime"),
+        INTERVAL("interval"),
+        UNKNOWN("");
+
+        final String extra;
+
+        Mode(String extra) { this.extra = extra; }
+
+        static Mode parse(String s) {
+            if (FIXED_TIME.extra.equalsIgnoreCase(s)) return FIXED_TIME;
+            if (INTERVAL.extra.equalsIgnoreCase(s)) return INTERVAL;
+            return UNKNOWN;
+        }
+    }
+
+    final int requestId;
+    final Mode mode;
+
+    // compiled
+    final int fixedMin;        // -1 = not set
+    final int startMin;        // -1 = not set
+    final int endMin;          // -1 = not set
+    final int anchorMin;       // -1 = not set (-> "now" when the phase is computed)
+    final int intervalSeconds;
+    final long intervalMs;     // 0 if no (valid) interval
+    final float volume01;
+    final int durationSound;   // hundredth-minutes
+    final int coalesceSeconds;
+    final int soundResId;      // 0 = unresolved (receiver falls back)
+    final ScheduleRule rule;   // timing + fire arithmetic
+
+    // raw values (extras / persistence / logging)
+    final String modeName;
+    final String soundName;
+    final String title;
+    final String text;
+    final String fixedTime;
+    final String startTime;
+    final String endTime;
+    final String startAnchorTime;
+
+    // notification text, already normalized
+    final String notifTitle;
+    final String notifText;
+
+    // content hashes (AlarmScheduler.reconcile): timing = everything that moves the fire grid,
+    // content = what only changes the fire itself (sound, text, volume, duration, coalescing)
+    final long timingHash;
+    final long contentHash;
+
+    private ScheduleSpec(Context ctx,
+                         int requestId,
+                         String soundName,
+                         String title,
+                         String text,
+                         String modeName,
+                         String fixedTime,
+                         String startTime,
+                         String endTime,
+                         String startAnchorTime,
+                         int fixedMin,
+                         int startMin,
+                         int endMin,
+                         int anchorMin,
+                         int intervalSeconds,
+                         float volume01,
+                         int durationSound,
+                         int coalesceSeconds) {
+        this.requestId = requestId;
+        this.modeName = modeName;
+        this.mode = Mode.parse(modeName);
+
+        this.soundName = soundName;
+        this.title = title;
+        this.text = text;
+        this.fixedTime = fixedTime;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.startAnchorTime = startAnchorTime;
+
+        this.fixedMin = fixedMin;
+        this.startMin = startMin;
+        this.endMin = endMin;
+        this.anchorMin = anchorMin;
+
+        this.intervalSeconds = intervalSeconds;
+        this.intervalMs = (intervalSeconds > 0) ? intervalSeconds * 1000L : 0L;
+        this.volume01 = clamp01(volume01);
+        this.durationSound = durationSound;
+        this.coalesceSeconds = Math.max(0, coalesceSeconds);
+        this.soundResId = resolveSound(ctx, soundName);
+        this.rule = new ScheduleRule(mode.ordinal(), fixedMin, startMin, endMin, anchorMin, intervalSeconds);
+
+        this.notifTitle = (title == null || title.trim().isEmpty()) ? "DailyActions" : title;
+        this.notifText = (text == null) ? "" : text;
+
+        long h = FNV_OFFSET;
+        h = fnv(h, mode.ordinal());
+        h = fnv(h, fixedMin);
+        h = fnv(h, startMin);
+        h = fnv(h, endMin);
+        h = fnv(h, anchorMin);
+        h = fnv(h, intervalSeconds);
+        this.timingHash = h;
+
+        h = FNV_OFFSET;
+        h = fnv(h, soundName);
+        h = fnv(h, title);
+        h = fnv(h, text);
+        h = fnv(h, Float.floatToIntBits(this.volume01));
+        h = fnv(h, durationSound);
+        h = fnv(h, this.coalesceSeconds);
+        this.contentHash = h;
+    }
+
+    static ScheduleSpec compile(Context ctx,
+                                int requestId,
+                                String soundName,
+                                String title,
+                                String text,
+                                String mode,
+                                String fixedTime,
+                                String startTime,
+                                String endTime,
+                                String startAnchorTime,
+                                int intervalSeconds,
+                                float volume01,
+                                int durationSound,
+                                int coalesceSeconds) {
+        return new ScheduleSpec(ctx, requestId, soundName, title, text, mode, fixedTime, startTime,
+                endTime, startAnchorTime,
+                ScheduleMath.parseHHMMToMinutes(fixedTime),
+                ScheduleMath.parseHHMMToMinutes(startTime),
+                ScheduleMath.parseHHMMToMinutes(endTime),
+                ScheduleMath.parseHHMMToMinutes(startAnchorTime),
+                intervalSeconds, volume01, durationSound, coalesceSeconds);
+    }
+
+    /**
+     * From already compiled fields (ScheduleStore record): nothing is parsed, the raw
+     * "HH:mm" strings are re-formatted from the minutes (-1 => "").
+     */
+    static ScheduleSpec ofFields(Context ctx,
+                                 int requestId,
+                                 Mode mode,
+                                 int fixedMin,
+                                 int startMin,
+                                 int endMin,
+                                 int anchorMin,
+                                 int intervalSeconds,
+                                 float volume01,
+                                 int durationSound,
+                                 int coalesceSeconds,
+                                 String soundName,
+                                 String title,
+                                 String text) {
+        return new ScheduleSpec(ctx, requestId, soundName, title, text, mode.extra,
+                formatHHMM(fixedMin), formatHHMM(startMin), formatHHMM(endMin), formatHHMM(anchorMin),
+                fixedMin, startMin, endMin, anchorMin,
+                intervalSeconds, volume01, durationSound, coalesceSeconds);
+    }
+
+    /**
+     * From the extras of a (legacy per-action) alarm Intent. Same defaults as the former
+     * rescheduleNextFromIntent; EXTRA_INTERVAL_MINUTES is still accepted (as seconds).
+     */
+    static ScheduleSpec fromIntent(Context ctx, Intent intent) {
+        final int requestId = requestIdOf(intent);
+        if (requestId <= 0) return null;
+
+        int intervalSec = intent.getIntExtra(AlarmScheduler.EXTRA_INTERVAL_SECONDS, 0);
+        if (intervalSec <= 0) intervalSec = intent.getIntExtra(AlarmScheduler.EXTRA_INTERVAL_MINUTES, 0);
+
+        return compile(ctx,
+                requestId,
+                orDefault(intent.getStringExtra(AlarmScheduler.EXTRA_SOUND_NAME), "bell"),
+                orDefault(intent.getStringExtra(AlarmScheduler.EXTRA_TITLE), "DailyActions"),
+                orDefault(intent.getStringExtra(AlarmScheduler.EXTRA_TEXT), ""),
+                orDefault(intent.getStringExtra(AlarmScheduler.EXTRA_MODE), "interval"),
+                orDefault(intent.getStringExtra(AlarmScheduler.EXTRA_FIXED_TIME), "00:00"),
+                orDefault(intent.getStringExtra(AlarmScheduler.EXTRA_START_TIME), ""),
+                orDefault(intent.getStringExtra(AlarmScheduler.EXTRA_END_TIME), ""),
+                orDefault(intent.getStringExtra(AlarmScheduler.EXTRA_START_ANCHOR_TIME), ""),
+                intervalSec,
+                intent.getFloatExtra(AlarmScheduler.EXTRA_VOLUME01, 1.0f),
+                intent.getIntExtra(AlarmScheduler.EXTRA_DURATION_SOUND, 1),
+                intent.getIntExtra(AlarmScheduler.EXTRA_COALESCE_SECONDS, AlarmScheduler.DEFAULT_COALESCE_SECONDS));
+    }
+
+    static int requestIdOf(Intent intent) {
+        if (intent == null) return -1;
+        final byte[] payload = SpecPayload.of(intent);
+        if (payload != null) return SpecPayload.requestId(payload);
+        return intent.getIntExtra(
+                AlarmScheduler.EXTRA_REQUEST_ID,
+                intent.getIntExtra(AlarmScheduler.EXTRA_NOTIF_ID, -1));
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Cache (by requestId)
+    // --------------------------------------------------------------------------------------------
+    private static final Object LOCK = new Object();
+    private static final HashMap<Integer, ScheduleSpec> CACHE = new HashMap<>();
+
+    static ScheduleSpec cached(int requestId) {
+        synchronized (LOCK) {
+            return CACHE.get(requestId);
+        }
+    }
+
+    static void cache(ScheduleSpec spec) {
+        if (spec == null || spec.requestId <= 0) return;
+        synchronized (LOCK) {
+            CACHE.put(spec.requestId, spec);
+        }
+    }
+
+    static void evict(int requestId) {
+        synchronized (LOCK) {
+            CACHE.remove(requestId);
+        }
+    }
+
+    /** Cached spec, else the ScheduleStore record (cold process), cached from then on. */
+    static ScheduleSpec load(Context ctx, int requestId) {
+        if (requestId <= 0) return null;
+        final ScheduleSpec cached = cached(requestId);
+        if (cached != null) return cached;
+        if (ctx == null) return null;
+
+        final ScheduleSpec spec = ScheduleStore.get(ctx).loadSpec(ctx.getApplicationContext(), requestId);
+        cache(spec);
+        return spec;
+    }
+
+    /** Planned fire time of an alarm Intent (SpecPayload, else the legacy extra); -1 if missing. */
+    static long plannedAtOf(Intent intent) {
+        if (intent == null) return -1L;
+        final byte[] payload = SpecPayload.of(intent);
+        if (payload != null) return SpecPayload.triggerAtMillis(payload);
+        return intent.getLongExtra(AlarmScheduler.EXTRA_TRIGGER_AT_MILLIS, -1L);
+    }
+
+    /**
+     * Spec for an alarm Intent. With a SpecPayload: the cached spec if its hashes match, else the
+     * decoded payload. Without (older version): cached / stored one, otherwise compiled once from
+     * the extras (those PendingIntents still carry the full spec) and cached.
+     */
+    static ScheduleSpec forIntent(Context ctx, Intent intent) {
+        final byte[] payload = SpecPayload.of(intent);
+        if (payload != null) {
+            final ScheduleSpec cached = cached(SpecPayload.requestId(payload));
+            if (SpecPayload.matches(payload, cached)) return cached;
+            final ScheduleSpec decoded = SpecPayload.decode(ctx, payload);
+            if (decoded != null) {
+                cache(decoded);
+                return decoded;
+            }
+        }
+
+        final int requestId = requestIdOf(intent);
+        if (requestId <= 0) return null;
+
+        final ScheduleSpec known = load(ctx, requestId);
+        if (known != null) return known;
+
+        final ScheduleSpec spec = fromIntent(ctx, intent);
+        cache(spec);
+        return spec;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Schedule arithmetic (ScheduleRule, Android-free)
+    // --------------------------------------------------------------------------------------------
+
+    /** Phase (anchor slot) of an interval action, seen from nowMs. */
+    long phaseAt(long nowMs) {
+        return rule.phaseAt(nowMs);
+    }
+
+    /** Next planned fire after lastPlannedMs; <= 0 if there is none (unknown mode / no interval). */
+    long nextAfter(long lastPlannedMs, long phaseMs) {
+        return rule.nextAfter(lastPlannedMs, phaseMs);
+    }
+
+    /** First planned fire after nowMs on the grid of lastPlannedMs/phaseMs (CatchUpPolicy resync). */
+    long nextFutureAfter(long lastPlannedMs, long phaseMs, long nowMs) {
+        return rule.nextFutureAfter(lastPlannedMs, phaseMs, nowMs);
+    }
+
+    /** First fire after nowMs, computed from scratch in the current zone (RestoreReceiver). */
+    long firstAfter(long nowMs, long phaseMs) {
+        return rule.firstAfter(nowMs, phaseMs);
+    }
+
+    /** All fires from firstAtMs on (for ScheduleTimeline). */
+    ScheduleTimeline.Occurrences occurrences(long firstAtMs, long phaseMs) {
+        return rule.occurrences(firstAtMs, phaseMs);
+    }
+
+    static ScheduleTimeline.Occurrences single(long atMs) {
+        return ScheduleRule.single(atMs);
+    }
+
+    /** Playback cap: a sound must not last longer than its interval (-1 => no cap). */
+    int intervalCapMs() {
+        return (mode == Mode.INTERVAL && intervalMs > 0L) ? (int) Math.min(Integer.MAX_VALUE, intervalMs) : -1;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // JSON (former muxSpec_<id> prefs value, only read by the ScheduleStore migration)
+    // --------------------------------------------------------------------------------------------
+    static ScheduleSpec fromJson(Context ctx, int requestId, String json) {
+        if (json == null || requestId <= 0) return null;
+        try {
+            JSONObject o = new JSONObject(json);
+            return compile(ctx,
+                    requestId,
+                    o.optString(AlarmScheduler.EXTRA_SOUND_NAME, null),
+                    o.optString(AlarmScheduler.EXTRA_TITLE, null),
+                    o.optString(AlarmScheduler.EXTRA_TEXT, null),
+                    o.optString(AlarmScheduler.EXTRA_MODE, null),
+                    o.optString(AlarmScheduler.EXTRA_FIXED_TIME, null),
+                    o.optString(AlarmScheduler.EXTRA_START_TIME, null),
+                    o.optString(AlarmScheduler.EXTRA_END_TIME, null),
+                    o.optString(AlarmScheduler.EXTRA_START_ANCHOR_TIME, null),
+                    o.optInt(AlarmScheduler.EXTRA_INTERVAL_SECONDS, 0),
+                    (float) o.optDouble(AlarmScheduler.EXTRA_VOLUME01, 1.0),
+                    o.optInt(AlarmScheduler.EXTRA_DURATION_SOUND, 0),
+                    o.optInt(AlarmScheduler.EXTRA_COALESCE_SECONDS, 0));
+        } catch (Throwable t) {
+            Log.w(TAG, "fromJson failed id=" + requestId + ": " + t);
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "id=" + requestId
+                + " mode=" + modeName
+                + " sound=" + soundName + "(" + soundResId + ")"
+                + " vol=" + volume01
+                + " fixed=" + fixedTime
+                + " start=" + startTime
+                + " end=" + endTime
+                + " anchor=" + startAnchorTime
+                + " intervalSec=" + intervalSeconds
+                + " durationSound=" + durationSound
+                + " coalesceSec=" + coalesceSeconds;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Helpers
+    // --------------------------------------------------------------------------------------------
+
+    // raw resource of the sound (SoundCatalog: key or display name), fallback 'bell';
+    // getIdentifier() only for names the catalog does not know; 0 if nothing exists
+    private static int resolveSound(Context ctx, String soundName) {
+        final int known = SoundCatalog.resIdOf(soundName);
+        if (known != 0) return known;
+        if (ctx == null) return SoundCatalog.resIdOrDefault(null);
+        try {
+            int resId = 0;
+            if (soundName != null && !soundName.trim().isEmpty()) {
+                resId = ctx.getResources().getIdentifier(soundName, "raw", ctx.getPackageName());
+            }
+            if (resId == 0) {
+                Log.w(TAG, "raw resource not found for '" + soundName + "', fallback to 'bell'");
+                AlarmMetrics.count(ctx, AlarmMetrics.C_BELL_FALLBACKS);
+                resId = SoundCatalog.resIdOrDefault(null);
+            }
+            if (resId == 0) resId = ctx.getResources().getIdentifier("bell", "raw", ctx.getPackageName());
+            return resId;
+        } catch (Throwable t) {
+            Log.w(TAG, "resolveSound failed: " + t);
+            return 0;
+        }
+    }
+
+    // minutes of day -> "HH:mm" (1440 -> "24:00", -1 -> "")
+    static String formatHHMM(int minutes) {
+        if (minutes < 0) return "";
+        final int hh = minutes / 60;
+        final int mm = minutes % 60;
+        return new String(new char[] {
+                (char) ('0' + hh / 10), (char) ('0' + hh % 10), ':',
+                (char) ('0' + mm / 10), (char) ('0' + mm % 10) });
+    }
+
+    // 64-bit FNV-1a; strings by UTF-16 unit with a length prefix (null != "")
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static long fnv(long h, int v) {
+        for (int i = 0; i < 4; i++) {
+            h = (h ^ (v & 0xFF)) * FNV_PRIME;
+            v >>>= 8;
+        }
+        return h;
+    }
+
+    private static long fnv(long h, String s) {
+        if (s == null) return fnv(h, -1);
+        h = fnv(h, s.length());
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            h = (h ^ (c & 0xFF)) * FNV_PRIME;
+            h = (h ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static String orDefault(String s, String def) {
+        return (s != null) ? s : def;
+    }
+
+    private static float clamp01(float x) {
+        if (x < 0f) return 0f;
+        if (x > 1f) return 1f;
+        return x;
+    }
+}
@@ -0,0 +1,724 @@
+package org.dailyactions;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * ScheduleStore
+ * - Scheduler state of all actions in ONE memory-mapped file of fixed-size records
+ *   (requestId, nextAt, phase, compiled spec fields, sound/title/text)
+ * - requestId -> slot via a primitive open-addressing index (built once on open)
+ * - A write touches only the changed fields of one record; a read is an offset lookup
+ *   (no XML parse of a SharedPreferences file on a cold process start)
+ * - Replaces the former nextAtMs_/phase_/muxSpec_ keys in AlarmPrefs (migrated once)
+ * - Keeps the timing/content hashes of the last applied spec (AlarmScheduler.reconcile)
+ * - sound/title/text longer than their record field: the record keeps a truncated copy, the full
+ *   strings go to a small side file per action (LONG_DIR/<id>, F_LONG_STRINGS); loadSpec reads
+ *   it only for those actions
+ *
+ * The file is in device-protected storage (DirectBoot), so it is readable before the first unlock.
+ *
+ * Writes go to the page cache immediately (they survive a process kill); the kernel writes
+ * them back like an apply(). If the file cannot be mapped, the store runs on a heap buffer
+ * (in-memory only) and logs it.
+ */
+final class ScheduleStore {
+
+    private static final String TAG = "ScheduleStore";
+
+    static final String FILE_NAME = "dailyactions_schedule.bin";
+    // full strings of records with F_LONG_STRINGS, next to FILE_NAME
+    static final String LONG_DIR = "dailyactions_schedule_strings";
+
+    private static final int MAGIC = 0x44415353; // "DASS"
+    private static final int VERSION = 1;
+
+    // header
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_RECORD_SIZE = 12;
+
+    // record layout
+    static final int RECORD_SIZE = 512;
+    private static final int R_ID = 0;            // int, 0 = free slot
+    private static final int R_FLAGS = 4;         // int
+    private static final int R_NEXT_AT = 8;       // long
+    private static final int R_PHASE = 16;        // long
+    private static final int R_MODE = 24;         // int (ScheduleSpec.Mode ordinal)
+    private static final int R_FIXED_MIN = 28;    // short
+    private static final int R_START_MIN = 30;    // short
+    private static final int R_END_MIN = 32;      // short
+    private static final int R_ANCHOR_MIN = 34;   // short
+    private static final int R_INTERVAL_SEC = 36; // int
+    private static final int R_VOLUME = 40;       // float
+    private static final int R_DURATION = 44;     // int
+    private static final int R_COALESCE = 48;     // int
+    private static final int R_CATCHUP = 52;      // short (CatchUpPolicy ordinal, 0 = default)
+    private static final int R_CATCHUP_MAX = 54;  // short, max replays (REPLAY)
+    private static final int R_REPLAYED = 56;     // int, missed slots replayed so far
+    private static final int R_AWAKE_MS = 60;     // int, ms of wakelock held for this action (saturating)
+    private static final int R_SOUND = 64;        // short len + UTF-8
+    private static final int R_SOUND_MAX = 64;
+    private static final int R_TITLE = R_SOUND + R_SOUND_MAX;
+    private static final int R_TITLE_MAX = 128;
+    private static final int R_TEXT = R_TITLE + R_TITLE_MAX;
+    private static final int R_TEXT_MAX = RECORD_SIZE - 16 - R_TEXT;
+    private static final int R_TIMING_HASH = RECORD_SIZE - 16;  // long (ScheduleSpec.timingHash)
+    private static final int R_CONTENT_HASH = RECORD_SIZE - 8;  // long (ScheduleSpec.contentHash)
+
+    static final int F_NEXT_AT = 1;
+    static final int F_PHASE = 1 << 1;
+    static final int F_SPEC = 1 << 2;
+    static final int F_MULTIPLEXED = 1 << 3; // spec belongs to the multiplexer queue
+    static final int F_CATCHUP = 1 << 4;     // non-default catch-up policy (kept across putSpec)
+    static final int F_HASHES = 1 << 5;      // spec hashes written (records of older versions lack them)
+    static final int F_LONG_STRINGS = 1 << 6; // sound/title/text did not fit: full strings in LONG_DIR/<id>
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final Object LOCK = new Object();
+    private static ScheduleStore s_instance = null;
+
+    private final File file;
+    private final File longDir;
+    private ByteBuffer buf;
+    private int capacity;
+
+    // requestId -> slot + 1 (0 = empty); linear probing, power-of-two size
+    private int[] indexKeys;
+    private int[] indexSlots;
+    private int indexCount = 0;
+    private int freeHint = 0;
+
+    private ScheduleStore(File file) {
+        this.file = file;
+        this.longDir = new File(file.getParentFile(), LONG_DIR);
+    }
+
+    static ScheduleStore get(Context ctx) {
+        synchronized (LOCK) {
+            if (s_instance == null) {
+                final Context app = ctx.getApplicationContext();
+                final ScheduleStore st = new ScheduleStore(new File(DirectBoot.storage(app).getFilesDir(), FILE_NAME));
+                final boolean created = st.open();
+                s_instance = st;
+                if (created) st.migrateFromPrefs(app);
+            }
+            return s_instance;
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Open / grow
+    // --------------------------------------------------------------------------------------------
+
+    // true if the file was (re)created empty
+    private boolean open() {
+        boolean created = false;
+        boolean badFile = false;    // header missing/incompatible: the records on disk are gone too
+        int cap = INITIAL_CAPACITY;
+        try {
+            if (file.exists() && file.length() >= HEADER_SIZE) {
+                final ByteBuffer hdr = map(HEADER_SIZE);
+                if (hdr.getInt(H_MAGIC) == MAGIC
+                        && hdr.getInt(H_VERSION) == VERSION
+                        && hdr.getInt(H_RECORD_SIZE) == RECORD_SIZE) {
+                    cap = Math.max(1, hdr.getInt(H_CAPACITY));
+                } else {
+                    Log.w(TAG, "open: incompatible header -> recreate");
+                    created = true;
+                    badFile = true;
+                }
+            } else {
+                created = true;
+                badFile = true;
+            }
+            buf = map(HEADER_SIZE + (long) cap * RECORD_SIZE);
+        } catch (Throwable t) {
+            Log.e(TAG, "open: mmap failed -> in-memory only", t);
+            buf = ByteBuffer.allocate(HEADER_SIZE + cap * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            created = true;
+        }
+
+        capacity = cap;
+        if (created) {
+            for (int i = 0; i < HEADER_SIZE + capacity * RECORD_SIZE; i += 8) buf.putLong(i, 0L);
+            writeHeader();
+        }
+        // not on the in-memory fallback alone: the file and its records are still there next time
+        if (badFile) deleteAllLongStrings();
+        rebuildIndex();
+        Log.i(TAG, "open: capacity=" + capacity + " records=" + indexCount + " created=" + created);
+        return created;
+    }
+
+    private MappedByteBuffer map(long size) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < size) raf.setLength(size);
+            final MappedByteBuffer mb = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            mb.order(ByteOrder.LITTLE_ENDIAN);
+            return mb; // mapping stays valid after the channel is closed
+        }
+    }
+
+    private void writeHeader() {
+        buf.putInt(H_MAGIC, MAGIC);
+        buf.putInt(H_VERSION, VERSION);
+        buf.putInt(H_CAPACITY, capacity);
+        buf.putInt(H_RECORD_SIZE, RECORD_SIZE);
+    }
+
+    private void grow() {
+        final int newCap = capacity * 2;
+        final long size = HEADER_SIZE + (long) newCap * RECORD_SIZE;
+        ByteBuffer nb;
+        try {
+            if (buf instanceof MappedByteBuffer) {
+                nb = map(size); // same file, larger mapping; old records are already in it
+            } else {
+                nb = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < buf.capacity(); i++) nb.put(i, buf.get(i));
+            }
+        } catch (Throwable t) {
+            Log.e(TAG, "grow: mmap failed -> in-memory only", t);
+            nb = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < buf.capacity(); i++) nb.put(i, buf.get(i));
+        }
+        buf = nb;
+        capacity = newCap;
+        writeHeader();
+        Log.i(TAG, "grow: capacity=" + capacity);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Index
+    // --------------------------------------------------------------------------------------------
+    private void rebuildIndex() {
+        int size = 16;
+        while (size < capacity * 2) size <<= 1;
+        indexKeys = new int[size];
+        indexSlots = new int[size];
+        indexCount = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            final int id = buf.getInt(recordOffset(slot) + R_ID);
+            if (id > 0) indexPut(id, slot);
+        }
+    }
+
+    private static int hash(int id) {
+        final int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexFind(int id) {
+        final int mask = indexKeys.length - 1;
+        for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+            final int k = indexKeys[i];
+            if (k == id) return indexSlots[i] - 1;
+            if (k == 0) return -1;
+        }
+    }
+
+    private void indexPut(int id, int slot) {
+        if ((indexCount + 1) * 2 > indexKeys.length) {
+            final int[] oldKeys = indexKeys;
+            final int[] oldSlots = indexSlots;
+            indexKeys = new int[oldKeys.length * 2];
+            indexSlots = new int[oldKeys.length * 2];
+            indexCount = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) indexPut(oldKeys[i], oldSlots[i] - 1);
+            }
+        }
+        final int mask = indexKeys.length - 1;
+        int i = hash(id) & mask;
+        while (indexKeys[i] != 0 && indexKeys[i] != id) i = (i + 1) & mask;
+        if (indexKeys[i] == 0) indexCount++;
+        indexKeys[i] = id;
+        indexSlots[i] = slot + 1;
+    }
+
+    private void indexRemove(int id) {
+        final int mask = indexKeys.length - 1;
+        int i = hash(id) & mask;
+        while (indexKeys[i] != id) {
+            if (indexKeys[i] == 0) return;
+            i = (i + 1) & mask;
+        }
+        indexKeys[i] = 0;
+        indexSlots[i] = 0;
+        indexCount--;
+
+        // re-insert the rest of the probe cluster
+        for (int j = (i + 1) & mask; indexKeys[j] != 0; j = (j + 1) & mask) {
+            final int k = indexKeys[j];
+            final int s = indexSlots[j] - 1;
+            indexKeys[j] = 0;
+            indexSlots[j] = 0;
+            indexCount--;
+            indexPut(k, s);
+        }
+    }
+
+    private static int recordOffset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    // offset of the record of id, allocating a slot if needed (-1 only for invalid ids)
+    private int offsetForWrite(int id) {
+        if (id <= 0) return -1;
+        int slot = indexFind(id);
+        if (slot < 0) {
+            slot = freeSlot();
+            final int off = recordOffset(slot);
+            for (int i = 0; i < RECORD_SIZE; i += 8) buf.putLong(off + i, 0L);
+            buf.putInt(off + R_ID, id);
+            indexPut(id, slot);
+        }
+        return recordOffset(slot);
+    }
+
+    private int freeSlot() {
+        for (int n = 0; n < capacity; n++) {
+            final int slot = (freeHint + n) % capacity;
+            if (buf.getInt(recordOffset(slot) + R_ID) == 0) {
+                freeHint = slot + 1;
+                return slot;
+            }
+        }
+        final int slot = capacity;
+        grow();
+        freeHint = slot + 1;
+        return slot;
+    }
+
+    private int offsetForRead(int id) {
+        if (id <= 0) return -1;
+        final int slot = indexFind(id);
+        return (slot < 0) ? -1 : recordOffset(slot);
+    }
+
+    // releases the slot once no field is left
+    private void releaseIfEmpty(int id, int off) {
+        if (buf.getInt(off + R_FLAGS) != 0) return;
+        buf.putInt(off + R_ID, 0);
+        indexRemove(id);
+    }
+
+    private void setFlags(int off, int set, int clear) {
+        buf.putInt(off + R_FLAGS, (buf.getInt(off + R_FLAGS) | set) & ~clear);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // nextAt / phase
+    // --------------------------------------------------------------------------------------------
+    long getNextAtMs(int id) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            if (off < 0 || (buf.getInt(off + R_FLAGS) & F_NEXT_AT) == 0) return 0L;
+            return buf.getLong(off + R_NEXT_AT);
+        }
+    }
+
+    void setNextAtMs(int id, long atMs) {
+        synchronized (LOCK) {
+            final int off = offsetForWrite(id);
+            if (off < 0) return;
+            buf.putLong(off + R_NEXT_AT, atMs);
+            setFlags(off, F_NEXT_AT, 0);
+        }
+    }
+
+    void clearNextAtMs(int id) {
+        clearFlag(id, F_NEXT_AT);
+    }
+
+    long getPhaseMs(int id) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            if (off < 0 || (buf.getInt(off + R_FLAGS) & F_PHASE) == 0) return 0L;
+            return buf.getLong(off + R_PHASE);
+        }
+    }
+
+    void setPhaseMs(int id, long phaseMs) {
+        synchronized (LOCK) {
+            final int off = offsetForWrite(id);
+            if (off < 0) return;
+            buf.putLong(off + R_PHASE, phaseMs);
+            setFlags(off, F_PHASE, 0);
+        }
+    }
+
+    void clearPhase(int id) {
+        clearFlag(id, F_PHASE);
+    }
+
+    private void clearFlag(int id, int flag) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            if (off < 0) return;
+            setFlags(off, 0, flag);
+            releaseIfEmpty(id, off);
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Spec
+    // --------------------------------------------------------------------------------------------
+    void putSpec(ScheduleSpec spec, boolean multiplexed) {
+        if (spec == null) return;
+        synchronized (LOCK) {
+            final int off = offsetForWrite(spec.requestId);
+            if (off < 0) return;
+            buf.putInt(off + R_MODE, spec.mode.ordinal());
+            buf.putShort(off + R_FIXED_MIN, (short) spec.fixedMin);
+            buf.putShort(off + R_START_MIN, (short) spec.startMin);
+            buf.putShort(off + R_END_MIN, (short) spec.endMin);
+            buf.putShort(off + R_ANCHOR_MIN, (short) spec.anchorMin);
+            buf.putInt(off + R_INTERVAL_SEC, spec.intervalSeconds);
+            buf.putFloat(off + R_VOLUME, spec.volume01);
+            buf.putInt(off + R_DURATION, spec.durationSound);
+            buf.putInt(off + R_COALESCE, spec.coalesceSeconds);
+            boolean fits = putString(off + R_SOUND, R_SOUND_MAX, spec.soundName);
+            fits &= putString(off + R_TITLE, R_TITLE_MAX, spec.title);
+            fits &= putString(off + R_TEXT, R_TEXT_MAX, spec.text);
+            buf.putLong(off + R_TIMING_HASH, spec.timingHash);
+            buf.putLong(off + R_CONTENT_HASH, spec.contentHash);
+
+            final boolean hadLong = (buf.getInt(off + R_FLAGS) & F_LONG_STRINGS) != 0;
+            final boolean isLong = !fits && writeLongStrings(spec);
+            if (!fits && !isLong) {
+                Log.e(TAG, "putSpec: id=" + spec.requestId + " strings too long for the record, side file failed -> truncated");
+            }
+            if (hadLong && !isLong) deleteLongStrings(spec.requestId);
+
+            int set = multiplexed ? (F_SPEC | F_MULTIPLEXED | F_HASHES) : (F_SPEC | F_HASHES);
+            int clear = multiplexed ? 0 : F_MULTIPLEXED;
+            if (isLong) set |= F_LONG_STRINGS;
+            else clear |= F_LONG_STRINGS;
+            setFlags(off, set, clear);
+        }
+    }
+
+    /**
+     * Hashes of the last applied spec: {timingHash, contentHash}, or null if the record has no
+     * spec or was written before hashes existed (-> treated as changed).
+     */
+    long[] getSpecHashes(int id) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            if (off < 0 || (buf.getInt(off + R_FLAGS) & (F_SPEC | F_HASHES)) != (F_SPEC | F_HASHES)) return null;
+            return new long[] { buf.getLong(off + R_TIMING_HASH), buf.getLong(off + R_CONTENT_HASH) };
+        }
+    }
+
+    /** Compiled spec from the record (null if none is stored). */
+    ScheduleSpec loadSpec(Context ctx, int id) {
+        final int mode, fixedMin, startMin, endMin, anchorMin, intervalSec, duration, coalesce;
+        final float volume;
+        String sound, title, text;
+        final boolean longStrings;
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            if (off < 0 || (buf.getInt(off + R_FLAGS) & F_SPEC) == 0) return null;
+            mode = buf.getInt(off + R_MODE);
+            fixedMin = buf.getShort(off + R_FIXED_MIN);
+            startMin = buf.getShort(off + R_START_MIN);
+            endMin = buf.getShort(off + R_END_MIN);
+            anchorMin = buf.getShort(off + R_ANCHOR_MIN);
+            intervalSec = buf.getInt(off + R_INTERVAL_SEC);
+            volume = buf.getFloat(off + R_VOLUME);
+            duration = buf.getInt(off + R_DURATION);
+            coalesce = buf.getInt(off + R_COALESCE);
+            sound = getString(off + R_SOUND);
+            title = getString(off + R_TITLE);
+            text = getString(off + R_TEXT);
+            longStrings = (buf.getInt(off + R_FLAGS) & F_LONG_STRINGS) != 0;
+        }
+        if (longStrings) {
+            // side file replaced atomically by putSpec: no need to hold LOCK for the read
+            final String[] full = readLongStrings(id);
+            if (full != null) {
+                sound = full[0];
+                title = full[1];
+                text = full[2];
+            }
+        }
+        final ScheduleSpec.Mode[] modes = ScheduleSpec.Mode.values();
+        return ScheduleSpec.ofFields(ctx, id,
+                (mode >= 0 && mode < modes.length) ? modes[mode] : ScheduleSpec.Mode.UNKNOWN,
+                fixedMin, startMin, endMin, anchorMin, intervalSec, volume, duration, coalesce,
+                sound, title, text);
+    }
+
+    boolean isMultiplexed(int id) {
+        return (flags(id) & F_MULTIPLEXED) != 0;
+    }
+
+    int coalesceSeconds(int id) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            if (off < 0 || (buf.getInt(off + R_FLAGS) & F_SPEC) == 0) return 0;
+            return buf.getInt(off + R_COALESCE);
+        }
+    }
+
+    void clearSpec(int id) {
+        final boolean hadLong = (flags(id) & F_LONG_STRINGS) != 0;
+        clearFlag(id, F_SPEC | F_MULTIPLEXED | F_HASHES | F_LONG_STRINGS);
+        if (hadLong) deleteLongStrings(id);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Catch-up policy (set separately from the spec, so a re-schedule from QML keeps it)
+    // --------------------------------------------------------------------------------------------
+    CatchUpPolicy getCatchUpPolicy(int id) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            if (off < 0 || (buf.getInt(off + R_FLAGS) & F_CATCHUP) == 0) return CatchUpPolicy.DEFAULT;
+            return CatchUpPolicy.ofOrdinal(buf.getShort(off + R_CATCHUP));
+        }
+    }
+
+    int getCatchUpMaxReplays(int id) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            if (off < 0 || (buf.getInt(off + R_FLAGS) & F_CATCHUP) == 0) return 0;
+            return buf.getShort(off + R_CATCHUP_MAX);
+        }
+    }
+
+    void setCatchUpPolicy(int id, CatchUpPolicy policy, int maxReplays) {
+        if (policy == null || policy == CatchUpPolicy.DEFAULT) {
+            clearFlag(id, F_CATCHUP);
+            return;
+        }
+        synchronized (LOCK) {
+            final int off = offsetForWrite(id);
+            if (off < 0) return;
+            buf.putShort(off + R_CATCHUP, (short) policy.ordinal());
+            buf.putShort(off + R_CATCHUP_MAX, (short) Math.max(0, Math.min(Short.MAX_VALUE, maxReplays)));
+            buf.putInt(off + R_REPLAYED, 0);
+            setFlags(off, F_CATCHUP, 0);
+        }
+    }
+
+    int getReplayed(int id) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            return (off < 0) ? 0 : buf.getInt(off + R_REPLAYED);
+        }
+    }
+
+    // never allocates a record: without one there is nothing to replay
+    void setReplayed(int id, int n) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            if (off >= 0) buf.putInt(off + R_REPLAYED, n);
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Awake time (WakeLockManager) – lives as long as the record
+    // --------------------------------------------------------------------------------------------
+    long getAwakeMs(int id) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            return (off < 0) ? 0L : buf.getInt(off + R_AWAKE_MS) & 0xFFFFFFFFL;
+        }
+    }
+
+    // never allocates a record (a cancelled action has nothing to account)
+    void addAwakeMs(int id, long ms) {
+        if (ms <= 0L) return;
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            if (off < 0) return;
+            final long sum = (buf.getInt(off + R_AWAKE_MS) & 0xFFFFFFFFL) + ms;
+            buf.putInt(off + R_AWAKE_MS, (int) Math.min(0xFFFFFFFFL, sum));
+        }
+    }
+
+    /** Drops the whole record. */
+    void remove(int id) {
+        final boolean hadLong = (flags(id) & F_LONG_STRINGS) != 0;
+        clearFlag(id, ~0);
+        if (hadLong) deleteLongStrings(id);
+    }
+
+    int flags(int id) {
+        synchronized (LOCK) {
+            final int off = offsetForRead(id);
+            return (off < 0) ? 0 : buf.getInt(off + R_FLAGS);
+        }
+    }
+
+    /** requestIds of all records (unordered). */
+    int[] ids() {
+        synchronized (LOCK) {
+            final int[] out = new int[indexCount];
+            int n = 0;
+            for (int slot = 0; slot < capacity && n < out.length; slot++) {
+                final int id = buf.getInt(recordOffset(slot) + R_ID);
+                if (id > 0) out[n++] = id;
+            }
+            return (n == out.length) ? out : Arrays.copyOf(out, n);
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Strings: short length + UTF-8, truncated at a character boundary
+    // --------------------------------------------------------------------------------------------
+
+    // false if s had to be truncated (the caller keeps the full string elsewhere)
+    private boolean putString(int off, int max, String s) {
+        if (s == null) {
+            buf.putShort(off, (short) -1);
+            return true;
+        }
+        final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(b.length, max - 2);
+        if (len < b.length) {
+            while (len > 0 && (b[len] & 0xC0) == 0x80) len--;
+        }
+        buf.putShort(off, (short) len);
+        for (int i = 0; i < len; i++) buf.put(off + 2 + i, b[i]);
+        return len == b.length;
+    }
+
+    private String getString(int off) {
+        final int len = buf.getShort(off);
+        if (len < 0) return null;
+        final byte[] b = new byte[len];
+        for (int i = 0; i < len; i++) b[i] = buf.get(off + 2 + i);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Long strings: LONG_DIR/<id> = sound, title, text as int length (-1 = null) + UTF-8.
+    // Written to <id>.tmp and renamed, so a reader sees the old or the new file, never a mix.
+    // --------------------------------------------------------------------------------------------
+    private boolean writeLongStrings(ScheduleSpec spec) {
+        final File f = new File(longDir, Integer.toString(spec.requestId));
+        final File tmp = new File(longDir, spec.requestId + ".tmp");
+        try {
+            if (!longDir.isDirectory() && !longDir.mkdirs()) throw new IOException("mkdirs " + longDir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                writeLongString(out, spec.soundName);
+                writeLongString(out, spec.title);
+                writeLongString(out, spec.text);
+            }
+            if (!tmp.renameTo(f)) throw new IOException("rename " + tmp);
+            return true;
+        } catch (Throwable t) {
+            Log.e(TAG, "writeLongStrings id=" + spec.requestId + " failed", t);
+            tmp.delete();
+            return false;
+        }
+    }
+
+    private static void writeLongString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    // {sound, title, text}, null if the file is missing/unreadable (-> truncated record strings)
+    private String[] readLongStrings(int id) {
+        final File f = new File(longDir, Integer.toString(id));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            return new String[] { readLongString(in), readLongString(in), readLongString(in) };
+        } catch (Throwable t) {
+            Log.w(TAG, "readLongStrings id=" + id + " failed -> truncated strings: " + t);
+            return null;
+        }
+    }
+
+    private static String readLongString(DataInputStream in) throws IOException {
+        final int len = in.readInt();
+        if (len < 0) return null;
+        final byte[] b = new byte[len];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private void deleteLongStrings(int id) {
+        final File f = new File(longDir, Integer.toString(id));
+        if (f.exists() && !f.delete()) Log.w(TAG, "deleteLongStrings id=" + id + " failed");
+    }
+
+    private void deleteAllLongStrings() {
+        final File[] files = longDir.listFiles();
+        if (files == null) return;
+        for (File f : files) f.delete();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Migration of the former AlarmPrefs keys (one-time, when the file is new)
+    // --------------------------------------------------------------------------------------------
+    private static final String LEGACY_NEXT_AT = "nextAtMs_";
+    private static final String LEGACY_PHASE = "phase_";
+    private static final String LEGACY_MUX_SPEC = "muxSpec_";
+
+    private void migrateFromPrefs(Context app) {
+        int n = 0;
+        try {
+            AlarmPrefs.begin();
+            try {
+                for (String k : AlarmPrefs.keys(app)) {
+                    if (k == null) continue;
+                    if (k.startsWith(LEGACY_NEXT_AT)) {
+                        final int id = parseId(k, LEGACY_NEXT_AT);
+                        if (id > 0) setNextAtMs(id, AlarmPrefs.getLong(app, k, 0L));
+                    } else if (k.startsWith(LEGACY_PHASE)) {
+                        final int id = parseId(k, LEGACY_PHASE);
+                        if (id > 0) setPhaseMs(id, AlarmPrefs.getLong(app, k, 0L));
+                    } else if (k.startsWith(LEGACY_MUX_SPEC)) {
+                        final int id = parseId(k, LEGACY_MUX_SPEC);
+                        if (id > 0) putSpec(ScheduleSpec.fromJson(app, id, AlarmPrefs.getString(app, k, null)), true);
+                    } else {
+                        continue;
+                    }
+                    AlarmPrefs.remove(app, k);
+                    n++;
+                }
+            } finally {
+                AlarmPrefs.commit(app);
+            }
+        } catch (Throwable t) {
+            Log.e(TAG, "migrateFromPrefs failed", t);
+        }
+        if (n > 0) Log.i(TAG, "migrated " + n + " keys from " + AlarmPrefs.NAME);
+    }
+
+    private static int parseId(String key, String prefix) {
+        try {
+            return Integer.parseInt(key.substring(prefix.length()));
+        } catch (NumberFormatException nfe) {
+            return -1;
+        }
+    }
+}
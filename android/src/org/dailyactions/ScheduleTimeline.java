@@ -0,0 +1,284 @@
+package org.dailyactions;
+
+import java.util.Arrays;
+
+/**
+ * ScheduleTimeline
+ * - Merged, sorted list of all fire times of all actions within [fromMs, toMs)
+ * - Stored as a primitive pair (long[] at, int[] id), sorted by (at, id)
+ * - Built by a k-way merge of the per-action occurrence streams
+ * - Queries are binary searches ("next N fires", "fires between t1 and t2")
+ * - update()/remove() of ONE action merges only that action's stream into the existing
+ *   arrays (linear, no full rebuild)
+ *
+ * Not thread-safe; AlarmScheduler guards it with its own lock.
+ */
+final class ScheduleTimeline {
+
+    /** Arithmetic occurrence stream of one action. */
+    interface Occurrences {
+        /** First fire time strictly after tMs, or <= 0 if there is none. */
+        long nextAfter(long tMs);
+    }
+
+    private long fromMs;
+    private long toMs;
+
+    // merged timeline
+    private long[] at = new long[64];
+    private int[] ids = new int[64];
+    private int size = 0;
+
+    // spare buffers for incremental merges (swapped with at/ids)
+    private long[] spareAt = new long[64];
+    private int[] spareIds = new int[64];
+
+    // registered streams
+    private int[] streamIds = new int[16];
+    private Occurrences[] streams = new Occurrences[16];
+    private int streamCount = 0;
+
+    ScheduleTimeline(long fromMs, long toMs) {
+        this.fromMs = fromMs;
+        this.toMs = toMs;
+    }
+
+    long fromMs() { return fromMs; }
+    long toMs() { return toMs; }
+    int size() { return size; }
+    int streamCount() { return streamCount; }
+
+    long atAt(int index) { return at[index]; }
+    int idAt(int index) { return ids[index]; }
+
+    // --------------------------------------------------------------------------------------------
+    // Building
+    // --------------------------------------------------------------------------------------------
+
+    /** Moves the horizon and rebuilds from all registered streams (k-way merge). */
+    void setHorizon(long fromMs, long toMs) {
+        this.fromMs = fromMs;
+        this.toMs = toMs;
+        rebuild();
+    }
+
+    /** Replaces all streams and rebuilds. */
+    void rebuild(int[] newIds, Occurrences[] newStreams, int count) {
+        streamCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (newIds[i] > 0 && newStreams[i] != null) putStream(newIds[i], newStreams[i]);
+        }
+        rebuild();
+    }
+
+    private void rebuild() {
+        final int k = streamCount;
+        size = 0;
+        if (k == 0) return;
+
+        // binary min-heap over the stream indices, keyed by (head time, id)
+        final long[] head = new long[k];
+        final int[] heap = new int[k];
+        int heapSize = 0;
+
+        for (int s = 0; s < k; s++) {
+            final long t = streams[s].nextAfter(fromMs - 1L);
+            if (t <= 0L || t >= toMs) continue;
+            head[s] = t;
+            heap[heapSize] = s;
+            siftUp(heap, heapSize++, head);
+        }
+
+        while (heapSize > 0) {
+            final int s = heap[0];
+            append(head[s], streamIds[s]);
+
+            final long t = streams[s].nextAfter(head[s]);
+            if (t > head[s] && t < toMs) {
+                head[s] = t;
+                siftDown(heap, heapSize, 0, head);
+            } else {
+                heap[0] = heap[--heapSize];
+                if (heapSize > 0) siftDown(heap, heapSize, 0, head);
+            }
+        }
+    }
+
+    private boolean less(int a, int b, long[] head) {
+        if (head[a] != head[b]) return head[a] < head[b];
+        return streamIds[a] < streamIds[b];
+    }
+
+    private void siftUp(int[] heap, int i, long[] head) {
+        final int x = heap[i];
+        while (i > 0) {
+            final int p = (i - 1) >>> 1;
+            if (!less(x, heap[p], head)) break;
+            heap[i] = heap[p];
+            i = p;
+        }
+        heap[i] = x;
+    }
+
+    private void siftDown(int[] heap, int n, int i, long[] head) {
+        final int x = heap[i];
+        while (true) {
+            int c = 2 * i + 1;
+            if (c >= n) break;
+            if (c + 1 < n && less(heap[c + 1], heap[c], head)) c++;
+            if (!less(heap[c], x, head)) break;
+            heap[i] = heap[c];
+            i = c;
+        }
+        heap[i] = x;
+    }
+
+    private void append(long t, int id) {
+        if (size == at.length) {
+            at = Arrays.copyOf(at, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        at[size] = t;
+        ids[size] = id;
+        size++;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Incremental maintenance
+    // --------------------------------------------------------------------------------------------
+
+    /** Adds or replaces the stream of one action; only that action's entries are re-merged. */
+    void update(int id, Occurrences stream) {
+        if (id <= 0) return;
+        if (stream == null) {
+            remove(id);
+            return;
+        }
+        putStream(id, stream);
+
+        ensureSpare(size + 16);
+        int n = 0;
+        int i = 0;
+        long t = stream.nextAfter(fromMs - 1L);
+
+        while (i < size || (t > 0L && t < toMs)) {
+            if (i < size && ids[i] == id) { i++; continue; } // drop old entries of this action
+
+            final boolean takeNew;
+            if (t <= 0L || t >= toMs) takeNew = false;
+            else if (i >= size) takeNew = true;
+            else takeNew = (t < at[i]) || (t == at[i] && id < ids[i]);
+
+            if (n == spareAt.length) growSpare(n * 2);
+            if (takeNew) {
+                spareAt[n] = t;
+                spareIds[n] = id;
+                final long nt = stream.nextAfter(t);
+                t = (nt > t) ? nt : 0L;
+            } else {
+                spareAt[n] = at[i];
+                spareIds[n] = ids[i];
+                i++;
+            }
+            n++;
+        }
+        swap(n);
+    }
+
+    void remove(int id) {
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            if (ids[r] == id) continue;
+            at[w] = at[r];
+            ids[w] = ids[r];
+            w++;
+        }
+        size = w;
+
+        for (int s = 0; s < streamCount; s++) {
+            if (streamIds[s] != id) continue;
+            streamCount--;
+            streamIds[s] = streamIds[streamCount];
+            streams[s] = streams[streamCount];
+            streams[streamCount] = null;
+            break;
+        }
+    }
+
+    private void putStream(int id, Occurrences stream) {
+        for (int s = 0; s < streamCount; s++) {
+            if (streamIds[s] == id) {
+                streams[s] = stream;
+                return;
+            }
+        }
+        if (streamCount == streamIds.length) {
+            streamIds = Arrays.copyOf(streamIds, streamCount * 2);
+            streams = Arrays.copyOf(streams, streamCount * 2);
+        }
+        streamIds[streamCount] = id;
+        streams[streamCount] = stream;
+        streamCount++;
+    }
+
+    private void ensureSpare(int capacity) {
+        if (spareAt.length < capacity) growSpare(capacity);
+    }
+
+    private void growSpare(int capacity) {
+        spareAt = Arrays.copyOf(spareAt, capacity);
+        spareIds = Arrays.copyOf(spareIds, capacity);
+    }
+
+    private void swap(int newSize) {
+        final long[] ta = at;
+        final int[] ti = ids;
+        at = spareAt;
+        ids = spareIds;
+        spareAt = ta;
+        spareIds = ti;
+        size = newSize;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Queries
+    // --------------------------------------------------------------------------------------------
+
+    /** Index of the first entry with at >= tMs (== size if none). */
+    int lowerBound(long tMs) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (at[mid] < tMs) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Copies the next (up to) n fires with at > afterMs; returns the count written. */
+    int nextFires(long afterMs, int n, long[] outAt, int[] outIds) {
+        final int from = lowerBound(afterMs + 1L);
+        final int count = Math.max(0, Math.min(Math.min(n, size - from), Math.min(outAt.length, outIds.length)));
+        System.arraycopy(at, from, outAt, 0, count);
+        System.arraycopy(ids, from, outIds, 0, count);
+        return count;
+    }
+
+    /** Number of fires with t1 <= at < t2. */
+    int countBetween(long t1, long t2) {
+        if (t2 <= t1) return 0;
+        return lowerBound(t2) - lowerBound(t1);
+    }
+
+    /** Copies the fires with t1 <= at < t2 (up to the output capacity); returns the count. */
+    int firesBetween(long t1, long t2, long[] outAt, int[] outIds) {
+        if (t2 <= t1) return 0;
+        final int from = lowerBound(t1);
+        final int to = lowerBound(t2);
+        final int count = Math.min(to - from, Math.min(outAt.length, outIds.length));
+        System.arraycopy(at, from, outAt, 0, count);
+        System.arraycopy(ids, from, outIds, 0, count);
+        return count;
+    }
+}
@@ -0,0 +1,50 @@
+package org.dailyactions;
+
+import java.util.TimeZone;
+
+/**
+ * SchedulerClock
+ * - The one source of "now" and of the local time zone for the scheduling code
+ *   (AlarmScheduler, AlarmReceiver, AlarmMultiplexer, ZoneTable.forDefault)
+ * - SYSTEM in the app; the bench simulator installs a virtual clock and zone to run months of
+ *   schedules in seconds (bench/…/ScheduleSimulator)
+ *
+ * Android-free, so the bench compiles it directly from android/src.
+ */
+final class SchedulerClock {
+
+    interface Source {
+        long currentTimeMillis();
+        TimeZone timeZone();
+    }
+
+    static final Source SYSTEM = new Source() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public TimeZone timeZone() {
+            return TimeZone.getDefault();
+        }
+    };
+
+    private static volatile Source s_source = SYSTEM;
+
+    private SchedulerClock() {}
+
+    static long now() {
+        return s_source.currentTimeMillis();
+    }
+
+    static TimeZone zone() {
+        return s_source.timeZone();
+    }
+
+    /** Installs a clock (null = SYSTEM); the cached default ZoneTable is dropped. */
+    static void set(Source source) {
+        s_source = (source != null) ? source : SYSTEM;
+        ZoneTable.invalidate();
+    }
+}
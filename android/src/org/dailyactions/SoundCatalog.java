@@ -0,0 +1,130 @@
+package org.dailyactions;
+
+/**
+ * SoundCatalog
+ * - All sounds known at build time (SoundCatalogData, generated from res/raw + sounds/)
+ * - Lookup by file key ("triangle_ping") OR display name ("Triangle Ping", as stored by QML)
+ * - O(1) and allocation-free: the name is normalized on the fly while hashing
+ *   (case-insensitive, ' ' / '-' / '_' are equivalent, surrounding blanks ignored)
+ * - Metadata (duration, sample rate, channels, bits) without opening the file
+ *
+ * Replaces Resources.getIdentifier() on the fire path; only names that are not in the
+ * catalog still go through getIdentifier().
+ */
+final class SoundCatalog {
+
+    static final String DEFAULT_KEY = "bell";
+
+    private static final String[] KEYS = SoundCatalogData.KEYS;
+    private static final int[] RES_IDS = SoundCatalogData.RES_IDS;
+
+    // open addressing: entry index + 1 (0 = empty), power-of-two size
+    private static final int[] TABLE;
+    private static final int[] TABLE_HASH;
+    private static final int DEFAULT_INDEX;
+
+    static {
+        int size = 16;
+        while (size < KEYS.length * 4) size <<= 1;
+        TABLE = new int[size];
+        TABLE_HASH = new int[size];
+        final int mask = size - 1;
+        for (int i = 0; i < KEYS.length; i++) {
+            final int h = hash(KEYS[i]);
+            int p = h & mask;
+            while (TABLE[p] != 0) p = (p + 1) & mask;
+            TABLE[p] = i + 1;
+            TABLE_HASH[p] = h;
+        }
+        DEFAULT_INDEX = indexOf(DEFAULT_KEY);
+    }
+
+    private SoundCatalog() {}
+
+    static int size() { return KEYS.length; }
+
+    /** Index of the sound (key or display name), -1 if unknown. */
+    static int indexOf(CharSequence name) {
+        if (name == null) return -1;
+        final int h = hash(name);
+        if (h == 0) return -1; // empty
+        final int mask = TABLE.length - 1;
+        for (int p = h & mask; TABLE[p] != 0; p = (p + 1) & mask) {
+            if (TABLE_HASH[p] == h && sameNormalized(name, KEYS[TABLE[p] - 1])) return TABLE[p] - 1;
+        }
+        return -1;
+    }
+
+    static boolean contains(CharSequence name) {
+        return indexOf(name) >= 0;
+    }
+
+    /** Raw resource id, 0 if unknown or not packaged as raw resource. */
+    static int resIdOf(CharSequence name) {
+        final int i = indexOf(name);
+        return (i >= 0) ? RES_IDS[i] : 0;
+    }
+
+    /** Raw resource id of name, falling back to DEFAULT_KEY ('bell'). */
+    static int resIdOrDefault(CharSequence name) {
+        final int id = resIdOf(name);
+        if (id != 0) return id;
+        return (DEFAULT_INDEX >= 0) ? RES_IDS[DEFAULT_INDEX] : 0;
+    }
+
+    static String key(int index) { return KEYS[index]; }
+    static String displayName(int index) { return SoundCatalogData.DISPLAY_NAMES[index]; }
+    static int resId(int index) { return RES_IDS[index]; }
+    static int sampleRate(int index) { return SoundCatalogData.SAMPLE_RATES[index]; }
+    static int channels(int index) { return SoundCatalogData.CHANNELS[index]; }
+    static int bitsPerSample(int index) { return SoundCatalogData.BITS[index]; }
+    static int frames(int index) { return SoundCatalogData.FRAMES[index]; }
+
+    static long durationMs(int index) {
+        final int rate = SoundCatalogData.SAMPLE_RATES[index];
+        return (rate > 0) ? (SoundCatalogData.FRAMES[index] * 1000L) / rate : 0L;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Normalization: "  Triangle Ping " == "triangle_ping" == "TRIANGLE-PING"
+    // --------------------------------------------------------------------------------------------
+    private static char norm(char c) {
+        if (c == ' ' || c == '-') return '_';
+        return Character.toLowerCase(c);
+    }
+
+    private static int trimStart(CharSequence s) {
+        int b = 0;
+        while (b < s.length() && s.charAt(b) <= ' ') b++;
+        return b;
+    }
+
+    private static int trimEnd(CharSequence s, int b) {
+        int e = s.length();
+        while (e > b && s.charAt(e - 1) <= ' ') e--;
+        return e;
+    }
+
+    // FNV-1a over the normalized chars; 0 only for an empty name
+    private static int hash(CharSequence s) {
+        final int b = trimStart(s);
+        final int e = trimEnd(s, b);
+        if (b == e) return 0;
+        int h = 0x811C9DC5;
+        for (int i = b; i < e; i++) {
+            h ^= norm(s.charAt(i));
+            h *= 0x01000193;
+        }
+        return (h == 0) ? 1 : h;
+    }
+
+    private static boolean sameNormalized(CharSequence name, String key) {
+        final int b = trimStart(name);
+        final int e = trimEnd(name, b);
+        if (e - b != key.length()) return false;
+        for (int i = 0; i < key.length(); i++) {
+            if (norm(name.charAt(b + i)) != norm(key.charAt(i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,199 @@
+package org.dailyactions;
+
+import android.content.Context;
+import android.content.Intent;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SpecPayload
+ * - The ONE extra of a per-action alarm Intent (AlarmScheduler.EXTRA_SPEC): requestId, planned
+ *   time and the compiled spec as a versioned little-endian byte[] instead of separate extras
+ * - Primitives are read straight from the array (no Bundle lookups per field, no ByteBuffer)
+ * - The spec hashes travel along: if the cached spec has the same hashes it is used as is,
+ *   so a warm receiver allocates nothing; otherwise only sound/title/text become Strings
+ *
+ * Layout v1:
+ *   0 u8 version, 1 u8 mode (ScheduleSpec.Mode ordinal), 2 int requestId, 6 long triggerAtMillis,
+ *   14 long timingHash, 22 long contentHash,
+ *   30/32/34/36 short fixedMin/startMin/endMin/anchorMin (-1 = not set),
+ *   38 int intervalSeconds, 42 int volume01 (float bits), 46 int durationSound,
+ *   50 int coalesceSeconds,
+ *   54 sound, title, text: u16 length (0xFFFF = null) + UTF-8 each
+ *
+ * An unknown version counts as "no payload": the receiver falls back to the store / legacy extras.
+ */
+final class SpecPayload {
+
+    static final int VERSION = 1;
+
+    private static final int P_VERSION = 0;
+    private static final int P_MODE = 1;
+    private static final int P_ID = 2;
+    private static final int P_TRIGGER_AT = 6;
+    private static final int P_TIMING_HASH = 14;
+    private static final int P_CONTENT_HASH = 22;
+    private static final int P_FIXED_MIN = 30;
+    private static final int P_START_MIN = 32;
+    private static final int P_END_MIN = 34;
+    private static final int P_ANCHOR_MIN = 36;
+    private static final int P_INTERVAL_SEC = 38;
+    private static final int P_VOLUME = 42;
+    private static final int P_DURATION = 46;
+    private static final int P_COALESCE = 50;
+    private static final int P_STRINGS = 54;
+
+    private static final int NULL_LEN = 0xFFFF;
+
+    private SpecPayload() {}
+
+    static byte[] encode(ScheduleSpec spec, long triggerAtMillis) {
+        final byte[] sound = utf8(spec.soundName);
+        final byte[] title = utf8(spec.title);
+        final byte[] text = utf8(spec.text);
+        final byte[] p = new byte[P_STRINGS + 6 + len(sound) + len(title) + len(text)];
+
+        p[P_VERSION] = (byte) VERSION;
+        p[P_MODE] = (byte) spec.mode.ordinal();
+        putInt(p, P_ID, spec.requestId);
+        putLong(p, P_TRIGGER_AT, triggerAtMillis);
+        putLong(p, P_TIMING_HASH, spec.timingHash);
+        putLong(p, P_CONTENT_HASH, spec.contentHash);
+        putShort(p, P_FIXED_MIN, spec.fixedMin);
+        putShort(p, P_START_MIN, spec.startMin);
+        putShort(p, P_END_MIN, spec.endMin);
+        putShort(p, P_ANCHOR_MIN, spec.anchorMin);
+        putInt(p, P_INTERVAL_SEC, spec.intervalSeconds);
+        putInt(p, P_VOLUME, Float.floatToIntBits(spec.volume01));
+        putInt(p, P_DURATION, spec.durationSound);
+        putInt(p, P_COALESCE, spec.coalesceSeconds);
+
+        int off = P_STRINGS;
+        off = putString(p, off, sound);
+        off = putString(p, off, title);
+        putString(p, off, text);
+        return p;
+    }
+
+    /** The payload of an alarm Intent, null if there is none (older version) or it is unknown. */
+    static byte[] of(Intent intent) {
+        if (intent == null) return null;
+        final byte[] p = intent.getByteArrayExtra(AlarmScheduler.EXTRA_SPEC);
+        return (p != null && p.length >= P_STRINGS + 6 && (p[P_VERSION] & 0xFF) == VERSION) ? p : null;
+    }
+
+    static int requestId(byte[] p) {
+        return getInt(p, P_ID);
+    }
+
+    static long triggerAtMillis(byte[] p) {
+        return getLong(p, P_TRIGGER_AT);
+    }
+
+    /** true if spec is exactly what the payload describes (same id and hashes). */
+    static boolean matches(byte[] p, ScheduleSpec spec) {
+        return spec != null
+                && spec.requestId == getInt(p, P_ID)
+                && spec.timingHash == getLong(p, P_TIMING_HASH)
+                && spec.contentHash == getLong(p, P_CONTENT_HASH);
+    }
+
+    /** Compiled spec from the payload (null if it is damaged). */
+    static ScheduleSpec decode(Context ctx, byte[] p) {
+        final int requestId = getInt(p, P_ID);
+        if (requestId <= 0) return null;
+
+        final int mode = p[P_MODE] & 0xFF;
+        final ScheduleSpec.Mode[] modes = ScheduleSpec.Mode.values();
+
+        int off = P_STRINGS;
+        final int soundLen = getLen(p, off);
+        final String sound = getString(p, off);
+        off += 2 + (soundLen == NULL_LEN ? 0 : soundLen);
+        final int titleLen = getLen(p, off);
+        final String title = getString(p, off);
+        off += 2 + (titleLen == NULL_LEN ? 0 : titleLen);
+        final String text = getString(p, off);
+
+        return ScheduleSpec.ofFields(ctx, requestId,
+                (mode < modes.length) ? modes[mode] : ScheduleSpec.Mode.UNKNOWN,
+                getShort(p, P_FIXED_MIN),
+                getShort(p, P_START_MIN),
+                getShort(p, P_END_MIN),
+                getShort(p, P_ANCHOR_MIN),
+                getInt(p, P_INTERVAL_SEC),
+                Float.intBitsToFloat(getInt(p, P_VOLUME)),
+                getInt(p, P_DURATION),
+                getInt(p, P_COALESCE),
+                sound, title, text);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Little endian primitives
+    // --------------------------------------------------------------------------------------------
+    private static void putShort(byte[] p, int off, int v) {
+        p[off] = (byte) v;
+        p[off + 1] = (byte) (v >> 8);
+    }
+
+    private static void putInt(byte[] p, int off, int v) {
+        p[off] = (byte) v;
+        p[off + 1] = (byte) (v >> 8);
+        p[off + 2] = (byte) (v >> 16);
+        p[off + 3] = (byte) (v >> 24);
+    }
+
+    private static void putLong(byte[] p, int off, long v) {
+        putInt(p, off, (int) v);
+        putInt(p, off + 4, (int) (v >>> 32));
+    }
+
+    private static int getShort(byte[] p, int off) {
+        return (short) ((p[off] & 0xFF) | (p[off + 1] << 8));
+    }
+
+    private static int getInt(byte[] p, int off) {
+        return (p[off] & 0xFF) | (p[off + 1] & 0xFF) << 8 | (p[off + 2] & 0xFF) << 16 | p[off + 3] << 24;
+    }
+
+    private static long getLong(byte[] p, int off) {
+        return (getInt(p, off) & 0xFFFFFFFFL) | ((long) getInt(p, off + 4) << 32);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Strings: u16 length (0xFFFF = null) + UTF-8
+    // --------------------------------------------------------------------------------------------
+    private static byte[] utf8(String s) {
+        if (s == null) return null;
+        final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if (b.length < NULL_LEN) return b;
+        // mehr als 64 KiB sind kein Notification-Text mehr; an einer Zeichengrenze abschneiden
+        int n = NULL_LEN - 1;
+        while (n > 0 && (b[n] & 0xC0) == 0x80) n--;
+        return java.util.Arrays.copyOf(b, n);
+    }
+
+    private static int len(byte[] b) {
+        return (b == null) ? 0 : b.length;
+    }
+
+    private static int putString(byte[] p, int off, byte[] b) {
+        if (b == null) {
+            putShort(p, off, NULL_LEN);
+            return off + 2;
+        }
+        putShort(p, off, b.length);
+        System.arraycopy(b, 0, p, off + 2, b.length);
+        return off + 2 + b.length;
+    }
+
+    private static int getLen(byte[] p, int off) {
+        return (off + 2 <= p.length) ? (getShort(p, off) & 0xFFFF) : NULL_LEN;
+    }
+
+    private static String getString(byte[] p, int off) {
+        final int len = getLen(p, off);
+        if (len == NULL_LEN || off + 2 + len > p.length) return null;
+        return new String(p, off + 2, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,240 @@
+package org.dailyactions;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+
+/**
+ * WakeLockManager
+ * - ONE partial wakelock for the whole pipeline, held while at least one Hold is open:
+ *   the receiver work (onReceive -> PendingResult.finish) and every playing sound
+ *   (start -> end / hard stop / cancel). Released with the last Hold.
+ * - Every Hold has its own safety timeout (derived from what it covers: playback duration,
+ *   pre-roll wait); the system lock always runs with the latest deadline of all open Holds,
+ *   so a Hold that is never released cannot keep the CPU awake beyond it
+ * - Accounting: real CPU-awake time under the lock (AlarmMetrics C_AWAKE_MS, overlaps
+ *   counted once), duration per Hold (H_WAKELOCK_HOLD), expired Holds (C_WAKELOCK_EXPIRED)
+ *   and the awake time per action (ScheduleStore, overlapping Holds of different actions
+ *   each count for their own action)
+ *
+ * Times are SystemClock.elapsedRealtime(). release() needs no Context (stopPlaying).
+ */
+final class WakeLockManager {
+
+    private static final String TAG = "WakeLockManager";
+
+    // a Hold covers its work plus this much (callbacks, release on the worker)
+    static final long MARGIN_MS = 2000L;
+    // work of unknown length (sound played once, MediaPlayer fallback)
+    static final long UNKNOWN_WORK_MS = 60L * 1000L;
+    // no Hold lasts longer than this, whatever the duration says
+    static final long MAX_HOLD_MS = 10L * 60L * 1000L;
+
+    static final class Hold {
+        final int requestId;      // <= 0: not attributed to an action (multiplexer wakeup)
+        final long startMs;
+        final long deadlineMs;
+        boolean open = true;      // LOCK
+        Hold(int requestId, long startMs, long deadlineMs) {
+            this.requestId = requestId;
+            this.startMs = startMs;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+
+    private static final Object LOCK = new Object();
+    // LOCK
+    private static final ArrayList<Hold> s_open = new ArrayList<>();
+    private static PowerManager.WakeLock s_wl = null;
+    private static long s_lockDeadlineMs = 0L;  // deadline the system lock was acquired with
+    private static long s_awakeSinceMs = 0L;    // first open Hold of the current awake stretch
+    private static Handler s_handler = null;
+    private static Context s_app = null;
+
+    private static final Runnable EXPIRE = WakeLockManager::expire;
+
+    private WakeLockManager() {}
+
+    /** Safety timeout for work of workMs (<= 0: unknown length). */
+    static long timeoutFor(long workMs) {
+        return Math.min(MAX_HOLD_MS, ((workMs > 0L) ? workMs : UNKNOWN_WORK_MS) + MARGIN_MS);
+    }
+
+    /**
+     * Opens a Hold of at most timeoutMs for requestId and makes sure the CPU stays awake.
+     * Never null: if the wakelock cannot be taken the Hold is still tracked (accounting only).
+     */
+    static Hold acquire(Context ctx, int requestId, long timeoutMs) {
+        final long now = SystemClock.elapsedRealtime();
+        final long timeout = Math.max(1L, Math.min(MAX_HOLD_MS, timeoutMs));
+        final Hold h = new Hold(requestId, now, now + timeout);
+        int holds;
+        synchronized (LOCK) {
+            if (s_app == null && ctx != null) s_app = ctx.getApplicationContext();
+            if (s_open.isEmpty()) s_awakeSinceMs = now;
+            s_open.add(h);
+            holds = s_open.size();
+            if (h.deadlineMs > s_lockDeadlineMs || !isHeld()) {
+                // non-reference-counted: acquire() again only moves the timeout
+                if (lock() != null) {
+                    try {
+                        s_wl.acquire(h.deadlineMs - now);
+                        s_lockDeadlineMs = h.deadlineMs;
+                    } catch (Throwable t) {
+                        Log.w(TAG, "acquire failed: " + t);
+                    }
+                }
+                scheduleExpire(now);
+            }
+        }
+        AlarmLog.d(AlarmLog.EV_WAKELOCK, requestId, 1L, timeout, holds);
+        return h;
+    }
+
+    /** Closes h (idempotent, null ok); the system lock goes with the last open Hold. */
+    static void release(Hold h) {
+        if (h == null) return;
+        final long now = SystemClock.elapsedRealtime();
+        final long heldMs;
+        final int holds;
+        synchronized (LOCK) {
+            if (!h.open) return;
+            heldMs = close(h, now);
+            holds = s_open.size();
+            if (holds == 0) releaseLock(now);
+        }
+        account(h, heldMs);
+        AlarmLog.d(AlarmLog.EV_WAKELOCK, h.requestId, 0L, heldMs, holds);
+    }
+
+    /** {"requestId":awakeMs,..} of all actions with recorded awake time (AlarmScheduler.getMetricsJson). */
+    static String awakeByActionJson(Context ctx) {
+        final ScheduleStore st = ScheduleStore.get(ctx);
+        final int[] ids = st.ids();
+        java.util.Arrays.sort(ids);
+        final StringBuilder sb = new StringBuilder(16 + ids.length * 16).append('{');
+        boolean first = true;
+        for (int id : ids) {
+            final long ms = st.getAwakeMs(id);
+            if (ms <= 0L) continue;
+            if (!first) sb.append(',');
+            sb.append('"').append(id).append("\":").append(ms);
+            first = false;
+        }
+        return sb.append('}').toString();
+    }
+
+    /** Number of open Holds (diagnostics). */
+    static int openHolds() {
+        synchronized (LOCK) {
+            return s_open.size();
+        }
+    }
+
+    // Closes every Hold past its deadline; the system lock has timed out with the last one.
+    private static void expire() {
+        final long now = SystemClock.elapsedRealtime();
+        ArrayList<Hold> expired = null;
+        final long[] heldMs;
+        int holds;
+        synchronized (LOCK) {
+            for (int i = s_open.size() - 1; i >= 0; i--) {
+                final Hold h = s_open.get(i);
+                if (h.deadlineMs <= now) {
+                    if (expired == null) expired = new ArrayList<>();
+                    expired.add(h);
+                }
+            }
+            if (expired == null) {
+                scheduleExpire(now);
+                return;
+            }
+            heldMs = new long[expired.size()];
+            for (int i = 0; i < heldMs.length; i++) heldMs[i] = close(expired.get(i), now);
+            holds = s_open.size();
+            if (holds == 0) releaseLock(now);
+            else scheduleExpire(now);
+        }
+        AlarmMetrics.add(s_app, AlarmMetrics.C_WAKELOCK_EXPIRED, expired.size());
+        for (int i = 0; i < heldMs.length; i++) {
+            final Hold h = expired.get(i);
+            account(h, heldMs[i]);
+            AlarmLog.w(AlarmLog.EV_WAKELOCK_EXPIRED, h.requestId, heldMs[i], holds, 0L);
+        }
+    }
+
+    // LOCK held; returns the time h kept the CPU awake (capped at its deadline)
+    private static long close(Hold h, long now) {
+        h.open = false;
+        s_open.remove(h);
+        return Math.max(0L, Math.min(now, h.deadlineMs) - h.startMs);
+    }
+
+    // LOCK held, last Hold closed: end of the awake stretch
+    private static void releaseLock(long now) {
+        try {
+            if (isHeld()) s_wl.release();
+        } catch (Throwable t) {
+            Log.w(TAG, "release failed: " + t);
+        }
+        // the lock never outlives its own timeout, even if expire() runs late
+        final long end = Math.min(now, Math.max(s_lockDeadlineMs, s_awakeSinceMs));
+        AlarmMetrics.add(s_app, AlarmMetrics.C_AWAKE_MS, Math.max(0L, end - s_awakeSinceMs));
+        s_lockDeadlineMs = 0L;
+        if (s_handler != null) s_handler.removeCallbacks(EXPIRE);
+    }
+
+    private static void account(Hold h, long heldMs) {
+        AlarmMetrics.recordMs(s_app, AlarmMetrics.H_WAKELOCK_HOLD, heldMs);
+        if (h.requestId <= 0 || s_app == null) return;
+        try {
+            ScheduleStore.get(s_app).addAwakeMs(h.requestId, heldMs);
+        } catch (Throwable t) {
+            Log.w(TAG, "account failed: " + t);
+        }
+    }
+
+    // LOCK held: expire() at the earliest open deadline
+    private static void scheduleExpire(long now) {
+        long first = Long.MAX_VALUE;
+        for (int i = 0; i < s_open.size(); i++) first = Math.min(first, s_open.get(i).deadlineMs);
+        if (first == Long.MAX_VALUE) return;
+        try {
+            if (s_handler == null) s_handler = new Handler(Looper.getMainLooper());
+            s_handler.removeCallbacks(EXPIRE);
+            s_handler.postDelayed(EXPIRE, Math.max(0L, first - now));
+        } catch (Throwable t) {
+            Log.w(TAG, "scheduleExpire failed: " + t);
+        }
+    }
+
+    // LOCK held
+    private static boolean isHeld() {
+        try {
+            return s_wl != null && s_wl.isHeld();
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    // LOCK held
+    private static PowerManager.WakeLock lock() {
+        if (s_wl != null || s_app == null) return s_wl;
+        try {
+            final PowerManager pm = (PowerManager) s_app.getSystemService(Context.POWER_SERVICE);
+            if (pm == null) return null;
+            final PowerManager.WakeLock wl = pm.newWakeLock(
+                    PowerManager.PARTIAL_WAKE_LOCK, s_app.getPackageName() + ":DailyActions");
+            wl.setReferenceCounted(false);
+            s_wl = wl;
+        } catch (Throwable t) {
+            Log.w(TAG, "newWakeLock failed: " + t);
+        }
+        return s_wl;
+    }
+}
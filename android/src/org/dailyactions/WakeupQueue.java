@@ -0,0 +1,130 @@
+package org.dailyactions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * WakeupQueue
+ * - Next fire time of every multiplexed action, ordered by (atMs, requestId), one entry per id
+ * - popDue() implements the coalescing rule of AlarmMultiplexer: everything due, plus every
+ *   entry whose fire time is within its own tolerance after now, but only if something was due
+ *   (otherwise the wakeup would be premature)
+ * - The coalescing pass only looks at entries up to now + the largest tolerance in the queue,
+ *   not at the whole queue (thousands of actions, one wakeup every few minutes)
+ *
+ * Android-free and not synchronized: AlarmMultiplexer guards it with its LOCK, the bench
+ * simulator drives it single-threaded.
+ */
+final class WakeupQueue {
+
+    static final class Entry {
+        final int requestId;
+        long atMs;
+        long toleranceMs;
+        Entry(int requestId, long atMs, long toleranceMs) {
+            this.requestId = requestId;
+            this.atMs = atMs;
+            this.toleranceMs = toleranceMs;
+        }
+    }
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(16, (a, b) -> {
+        if (a.atMs != b.atMs) return (a.atMs < b.atMs) ? -1 : 1;
+        return Integer.compare(a.requestId, b.requestId);
+    });
+    private final HashMap<Integer, Entry> byId = new HashMap<>();
+    // upper bound of all toleranceMs in the queue (only grows; reset when the queue runs empty)
+    private long maxToleranceMs = 0L;
+
+    int size() {
+        return queue.size();
+    }
+
+    boolean contains(int requestId) {
+        return byId.containsKey(requestId);
+    }
+
+    /** Inserts or moves requestId to atMs. */
+    void put(int requestId, long atMs, long toleranceMs) {
+        Entry e = byId.get(requestId);
+        if (e != null) {
+            queue.remove(e);
+            e.atMs = atMs;
+            e.toleranceMs = toleranceMs;
+        } else {
+            e = new Entry(requestId, atMs, toleranceMs);
+            byId.put(requestId, e);
+        }
+        queue.add(e);
+        if (toleranceMs > maxToleranceMs) maxToleranceMs = toleranceMs;
+    }
+
+    /** Changes the tolerance of a queued entry without moving it; false if it is not queued. */
+    boolean setTolerance(int requestId, long toleranceMs) {
+        final Entry e = byId.get(requestId);
+        if (e == null) return false;
+        e.toleranceMs = toleranceMs;
+        if (toleranceMs > maxToleranceMs) maxToleranceMs = toleranceMs;
+        return true;
+    }
+
+    boolean remove(int requestId) {
+        final Entry e = byId.remove(requestId);
+        if (e == null) return false;
+        queue.remove(e);
+        if (queue.isEmpty()) maxToleranceMs = 0L;
+        return true;
+    }
+
+    /** Fire time of the head, 0 if the queue is empty. */
+    long peekAt() {
+        final Entry head = queue.peek();
+        return (head != null) ? head.atMs : 0L;
+    }
+
+    /** requestIds of all entries due at atMs, in fire-time order (the queue is unchanged). */
+    int[] idsDueBy(long atMs) {
+        final ArrayList<Entry> due = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().atMs <= atMs) due.add(queue.poll());
+        queue.addAll(due);
+        final int[] ids = new int[due.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = due.get(i).requestId;
+        return ids;
+    }
+
+    /**
+     * Removes and returns everything due at nowMs plus the coalesced early entries, in fire-time
+     * order (due first, then early). earlyOut (optional) receives the number of early entries.
+     */
+    ArrayList<Entry> popDue(long nowMs, int[] earlyOut) {
+        final ArrayList<Entry> due = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().atMs <= nowMs) {
+            final Entry e = queue.poll();
+            byId.remove(e.requestId);
+            due.add(e);
+        }
+
+        int early = 0;
+        if (!due.isEmpty() && maxToleranceMs > 0L) {
+            // in order up to the widest tolerance: take what is within its own, put the rest back
+            final long limit = nowMs + maxToleranceMs;
+            ArrayList<Entry> keep = null;
+            while (!queue.isEmpty() && queue.peek().atMs <= limit) {
+                final Entry e = queue.poll();
+                if (e.toleranceMs > 0L && e.atMs - e.toleranceMs <= nowMs) {
+                    byId.remove(e.requestId);
+                    due.add(e);
+                    early++;
+                } else {
+                    if (keep == null) keep = new ArrayList<>();
+                    keep.add(e);
+                }
+            }
+            if (keep != null) queue.addAll(keep);
+        }
+        if (queue.isEmpty()) maxToleranceMs = 0L;
+        if (earlyOut != null && earlyOut.length > 0) earlyOut[0] = early;
+        return due;
+    }
+}
@@ -0,0 +1,92 @@
+package org.dailyactions;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * WavData
+ * - Minimal RIFF/WAVE parser for the sounds in res/raw (PCM, 8/16 bit, mono/stereo)
+ * - pcm is a read-only view on the "data" chunk (little endian, no copy;
+ *   duplicate()/slice() of it are big endian again, set the order when reading samples);
+ *   parsed from a mapped resource it points straight into the APK mapping
+ *
+ * Returns null for anything else (compressed formats, broken headers); callers fall back
+ * to MediaPlayer then.
+ */
+final class WavData {
+
+    final int sampleRate;
+    final int channels;
+    final int bitsPerSample;
+    final ByteBuffer pcm;
+
+    private WavData(int sampleRate, int channels, int bitsPerSample, ByteBuffer pcm) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bitsPerSample = bitsPerSample;
+        this.pcm = pcm;
+    }
+
+    int bytesPerFrame() {
+        return channels * (bitsPerSample / 8);
+    }
+
+    int frames() {
+        return pcm.remaining() / bytesPerFrame();
+    }
+
+    long durationMs() {
+        return (frames() * 1000L) / sampleRate;
+    }
+
+    static WavData parse(byte[] file) {
+        return (file == null) ? null : parse(ByteBuffer.wrap(file));
+    }
+
+    static WavData parse(ByteBuffer file) {
+        if (file == null) return null;
+        final ByteBuffer b = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final int base = b.position();
+        final int end = b.limit();
+        if (end - base < 12) return null;
+        if (b.getInt(base) != 0x46464952 /* "RIFF" */ || b.getInt(base + 8) != 0x45564157 /* "WAVE" */) {
+            return null;
+        }
+
+        int format = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        int bits = 0;
+
+        int p = base + 12;
+        while (p + 8 <= end) {
+            final int id = b.getInt(p);
+            final long size = b.getInt(p + 4) & 0xFFFFFFFFL;
+            final int body = p + 8;
+
+            if (id == 0x20746D66 /* "fmt " */) {
+                if (size < 16 || body + 16 > end) return null;
+                format = b.getShort(body) & 0xFFFF;
+                channels = b.getShort(body + 2) & 0xFFFF;
+                sampleRate = b.getInt(body + 4);
+                bits = b.getShort(body + 14) & 0xFFFF;
+            } else if (id == 0x61746164 /* "data" */) {
+                if (format != 1 /* PCM */ || (bits != 8 && bits != 16)
+                        || channels < 1 || channels > 2 || sampleRate <= 0) {
+                    return null;
+                }
+                final int len = (int) Math.min(size, end - body);
+                final ByteBuffer pcm = b.duplicate();
+                pcm.position(body);
+                pcm.limit(body + len - (len % (channels * (bits / 8))));
+                return new WavData(sampleRate, channels, bits,
+                        pcm.slice().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN));
+            }
+
+            final long next = body + size + (size & 1L);
+            if (next > end) break;
+            p = (int) next;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,164 @@
+package org.dailyactions;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * ZoneTable
+ * - UTC offsets and DST transitions of one time zone as sorted primitive arrays
+ * - offset lookups are a binary search: no Calendar, no locks, no allocation
+ * - wall time -> UTC resolves gaps/overlaps exactly like java.util.GregorianCalendar
+ *   (a wall time belongs to a transition only from "transition + new offset" on)
+ *
+ * Built once per zone for [built - PAST_MS, built + FUTURE_MS]; outside of that range
+ * the TimeZone itself is asked (still Calendar-free, but not allocation-free).
+ */
+final class ZoneTable {
+
+    static final long DAY_MS = 24L * 60L * 60L * 1000L;
+
+    private static final long PAST_MS = 2L * 366L * DAY_MS;
+    private static final long FUTURE_MS = 6L * 366L * DAY_MS;
+
+    // default zone (SchedulerClock.zone()) is re-checked at most this often (TimeZone.getDefault() clones)
+    private static final long RECHECK_MS = 60L * 1000L;
+
+    private static volatile ZoneTable s_default = null;
+    private static volatile long s_checkedAtMs = 0L;
+
+    final String zoneId;
+    private final TimeZone tz;
+    private final long fromMs;
+    private final long toMs;
+    private final int offsetBeforeFirst;
+    // transition instants (UTC) and the total offset valid from that instant on
+    private final long[] transUtc;
+    private final int[] offsetAfter;
+    // wall time from which the transition applies (transUtc + offsetAfter)
+    private final long[] transWall;
+
+    private ZoneTable(TimeZone tz, long centerMs) {
+        this.tz = tz;
+        this.zoneId = tz.getID();
+        this.fromMs = centerMs - PAST_MS;
+        this.toMs = centerMs + FUTURE_MS;
+
+        ZoneRules rules = null;
+        try {
+            rules = ZoneId.of(zoneId).getRules();
+        } catch (Throwable ignored) {
+            // custom/unknown id (e.g. "GMT+05:30" variants): fixed offset below
+        }
+
+        if (rules == null || rules.isFixedOffset()) {
+            this.offsetBeforeFirst = tz.getOffset(centerMs);
+            this.transUtc = new long[0];
+            this.offsetAfter = new int[0];
+            this.transWall = new long[0];
+            return;
+        }
+
+        final Instant from = Instant.ofEpochMilli(fromMs);
+        this.offsetBeforeFirst = rules.getOffset(from).getTotalSeconds() * 1000;
+
+        int n = 0;
+        long[] t = new long[32];
+        int[] o = new int[32];
+        ZoneOffsetTransition tr = rules.nextTransition(from);
+        while (tr != null && tr.toEpochSecond() * 1000L <= toMs) {
+            if (n == t.length) {
+                t = Arrays.copyOf(t, n * 2);
+                o = Arrays.copyOf(o, n * 2);
+            }
+            t[n] = tr.toEpochSecond() * 1000L;
+            o[n] = tr.getOffsetAfter().getTotalSeconds() * 1000;
+            n++;
+            tr = rules.nextTransition(tr.getInstant());
+        }
+
+        this.transUtc = Arrays.copyOf(t, n);
+        this.offsetAfter = Arrays.copyOf(o, n);
+        this.transWall = new long[n];
+        for (int i = 0; i < n; i++) transWall[i] = transUtc[i] + offsetAfter[i];
+    }
+
+    static ZoneTable of(TimeZone tz, long centerMs) {
+        return new ZoneTable(tz, centerMs);
+    }
+
+    /**
+     * Table of the current default zone. Re-validated at most once per RECHECK_MS;
+     * call {@link #invalidate()} on ACTION_TIMEZONE_CHANGED for an immediate switch.
+     */
+    static ZoneTable forDefault(long nowMs) {
+        ZoneTable zt = s_default;
+        if (zt != null && nowMs >= zt.fromMs && nowMs <= zt.toMs
+                && Math.abs(nowMs - s_checkedAtMs) < RECHECK_MS) {
+            return zt;
+        }
+
+        final TimeZone def = SchedulerClock.zone();
+        if (zt == null || !zt.zoneId.equals(def.getID()) || nowMs < zt.fromMs || nowMs > zt.toMs) {
+            zt = new ZoneTable(def, nowMs);
+            s_default = zt;
+        }
+        s_checkedAtMs = nowMs;
+        return zt;
+    }
+
+    static void invalidate() {
+        s_default = null;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Lookups
+    // --------------------------------------------------------------------------------------------
+
+    /** Total UTC offset (raw + DST) at the given instant. */
+    int offsetAtUtc(long utcMs) {
+        if (utcMs < fromMs || utcMs > toMs) return tz.getOffset(utcMs);
+
+        int lo = 0;
+        int hi = transUtc.length - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (transUtc[mid] <= utcMs) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return (hi < 0) ? offsetBeforeFirst : offsetAfter[hi];
+    }
+
+    /** Offset used to turn a local wall time into UTC (GregorianCalendar semantics). */
+    int offsetAtWall(long wallMs) {
+        if (wallMs < fromMs || wallMs > toMs) {
+            // far outside of the table (rare): temporary table around that date
+            return new ZoneTable(tz, wallMs).offsetAtWall(wallMs);
+        }
+
+        int lo = 0;
+        int hi = transWall.length - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (transWall[mid] <= wallMs) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        return (hi < 0) ? offsetBeforeFirst : offsetAfter[hi];
+    }
+
+    /** Local midnight (00:00:00.000 of the local date of utcMs) as UTC millis. */
+    long localMidnightUtc(long utcMs) {
+        final long wall = utcMs + offsetAtUtc(utcMs);
+        final long wallMidnight = Math.floorDiv(wall, DAY_MS) * DAY_MS;
+        return wallMidnight - offsetAtWall(wallMidnight);
+    }
+
+    /** Local minute of day (0..1439) of utcMs. */
+    int minuteOfDay(long utcMs) {
+        final long wall = utcMs + offsetAtUtc(utcMs);
+        return (int) (Math.floorMod(wall, DAY_MS) / 60000L);
+    }
+}
@@ -0,0 +1,114 @@
+package org.dailyactions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScheduleMathBenchmark
+ * - The per-alarm math of AlarmScheduler, one benchmark per function
+ * - Every invocation handles ALL actions once (score / actions = cost per action)
+ * - "now" of the actions is spread over one day, so all window branches are hit
+ *
+ * Window shapes: normal (08:00-20:00), empty (no start/end), midnight (22:00-06:00).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScheduleMathBenchmark {
+
+    @Param({"60", "900", "3600"})
+    public int intervalSec;
+
+    @Param({"normal", "empty", "midnight"})
+    public String window;
+
+    @Param({"1", "16", "128"})
+    public int actions;
+
+    private ZoneTable zt;
+
+    private String startTime;
+    private String endTime;
+    private int startMin;
+    private int endMin;
+
+    private long[] nowMs;
+    private long[] phaseMs;
+    private String[] anchors;
+
+    @Setup
+    public void setup() {
+        // fixed zone with DST, fixed date: results do not depend on the machine
+        final TimeZone tz = TimeZone.getTimeZone("Europe/Berlin");
+        final long base = 1743379200000L; // 2025-03-31T00:00Z, right after the spring switch
+        zt = ZoneTable.of(tz, base);
+
+        switch (window) {
+            case "normal":   startTime = "08:00"; endTime = "20:00"; break;
+            case "midnight": startTime = "22:00"; endTime = "06:00"; break;
+            default:         startTime = "";      endTime = "";      break;
+        }
+        startMin = ScheduleMath.parseHHMMToMinutes(startTime);
+        endMin = ScheduleMath.parseHHMMToMinutes(endTime);
+
+        nowMs = new long[actions];
+        phaseMs = new long[actions];
+        anchors = new String[actions];
+
+        final long step = ZoneTable.DAY_MS / actions;
+        for (int i = 0; i < actions; i++) {
+            nowMs[i] = base + i * step + 12345L;
+
+            final int anchorMin = (i * 37) % (24 * 60);
+            anchors[i] = String.format("%02d:%02d", anchorMin / 60, anchorMin % 60);
+            phaseMs[i] = ScheduleMath.phaseFromStartAnchorMs(zt, nowMs[i], anchors[i], startTime, endTime);
+        }
+    }
+
+    @Benchmark
+    public void computeNextIntervalFireMs(Blackhole bh) {
+        for (int i = 0; i < actions; i++) {
+            bh.consume(ScheduleMath.computeNextIntervalFireMs(zt, nowMs[i], startMin, endMin, phaseMs[i], intervalSec));
+        }
+    }
+
+    /** Like a reschedule from the Intent: start/end still as "HH:mm", default zone. */
+    @Benchmark
+    public void computeNextIntervalFireMsFromStrings(Blackhole bh) {
+        for (int i = 0; i < actions; i++) {
+            bh.consume(ScheduleMath.computeNextIntervalFireMs(nowMs[i], startTime, endTime, phaseMs[i], intervalSec));
+        }
+    }
+
+    @Benchmark
+    public void computeNextFromPhase(Blackhole bh) {
+        final long stepMs = intervalSec * 1000L;
+        for (int i = 0; i < actions; i++) {
+            bh.consume(ScheduleMath.computeNextFromPhase(nowMs[i], phaseMs[i], stepMs));
+        }
+    }
+
+    @Benchmark
+    public void phaseFromStartAnchorMs(Blackhole bh) {
+        for (int i = 0; i < actions; i++) {
+            bh.consume(ScheduleMath.phaseFromStartAnchorMs(zt, nowMs[i], anchors[i], startTime, endTime));
+        }
+    }
+
+    @Benchmark
+    public void parseHHMMToMinutes(Blackhole bh) {
+        for (int i = 0; i < actions; i++) {
+            bh.consume(ScheduleMath.parseHHMMToMinutes(anchors[i]));
+        }
+    }
+}
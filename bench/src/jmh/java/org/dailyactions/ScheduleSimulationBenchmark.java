@@ -0,0 +1,48 @@
+package org.dailyactions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScheduleSimulationBenchmark
+ * - One complete ScheduleSimulator run per invocation (actions x days on the virtual clock)
+ * - Score = wall time of the whole run; the simulator's own report is printed by the
+ *   "simulate" task (../android/gradlew -p bench simulate)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScheduleSimulationBenchmark {
+
+    @Param({"100", "1000"})
+    public int actions;
+
+    @Param({"90"})
+    public int days;
+
+    @Param({"0.05"})
+    public double late;
+
+    private ScheduleSimulator.Config cfg;
+
+    @Setup
+    public void setup() {
+        cfg = new ScheduleSimulator.Config();
+        cfg.actions = actions;
+        cfg.days = days;
+        cfg.lateProbability = late;
+    }
+
+    @Benchmark
+    public ScheduleSimulator.Report simulate() {
+        return ScheduleSimulator.run(cfg);
+    }
+}
@@ -0,0 +1,262 @@
+package org.dailyactions;
+
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * ScheduleSimulator
+ * - Deterministic time warp: runs a synthetic set of actions for months on a virtual
+ *   SchedulerClock, driving the real ScheduleRule arithmetic and the real WakeupQueue
+ *   (coalescing) the way AlarmMultiplexer/AlarmReceiver do in multiplex mode
+ * - Late delivery is injected per wakeup (Doze / batching); the catch-up is FIRE_ONCE:
+ *   the late fire plays, the chain resyncs via nextFutureAfter
+ * - Same seed = same actions, same deliveries, same report (no wall clock involved)
+ *
+ * Report: wakeups per local day (avg/max), drift delivered-vs-planned (p50/p99/max, early
+ * coalesced fires separately), overlapping wakeups (>= 2 actions in one dispatch), resyncs,
+ * fixed-time fires off their wall-clock minute, interval fires outside their window, compute time.
+ *
+ * Ausführen: ../android/gradlew -p bench simulate -Pargs="actions=5000 days=240 late=0.1"
+ */
+public final class ScheduleSimulator {
+
+    public static final class Config {
+        public int actions = 1000;
+        public int days = 240;
+        public long seed = 42L;
+        public String zone = "Europe/Berlin";
+        public long startMs = 1741993200000L; // 2025-03-15T00:00+01:00, spans both DST switches
+        public double lateProbability = 0.05; // per wakeup
+        public long maxLateMs = 10L * 60L * 1000L;
+        public long jitterMs = 1500L;         // normal delivery jitter
+
+        static Config parse(String[] args) {
+            final Config c = new Config();
+            for (String a : args) {
+                final int eq = a.indexOf('=');
+                if (eq <= 0) throw new IllegalArgumentException("expected key=value: " + a);
+                final String k = a.substring(0, eq);
+                final String v = a.substring(eq + 1);
+                switch (k) {
+                    case "actions": c.actions = Integer.parseInt(v); break;
+                    case "days":    c.days = Integer.parseInt(v); break;
+                    case "seed":    c.seed = Long.parseLong(v); break;
+                    case "zone":    c.zone = v; break;
+                    case "start":   c.startMs = Long.parseLong(v); break;
+                    case "late":    c.lateProbability = Double.parseDouble(v); break;
+                    case "maxLate": c.maxLateMs = Long.parseLong(v) * 1000L; break;
+                    case "jitter":  c.jitterMs = Long.parseLong(v); break;
+                    default: throw new IllegalArgumentException("unknown key: " + k);
+                }
+            }
+            return c;
+        }
+    }
+
+    public static final class Report {
+        public long fires;
+        public long wakeups;
+        public long overlaps;
+        public long coalesced;
+        public long resyncs;
+        public long lateFires;        // later than CatchUpPolicy.LATE_TOLERANCE_MS
+        public long fixedOffClock;
+        public long outOfWindow;
+        public double wakeupsPerDayAvg;
+        public int wakeupsPerDayMax;
+        public long driftP50Ms;
+        public long driftP99Ms;
+        public long driftMaxMs;
+        public long earlyMaxMs;       // coalesced fires: how far before their planned time
+        public long computeNanos;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "fires=%d wakeups=%d (per day avg=%.1f max=%d) overlaps=%d coalesced=%d%n"
+                    + "drift p50=%dms p99=%dms max=%dms earlyMax=%dms late>%ds=%d resyncs=%d%n"
+                    + "fixedOffClock=%d outOfWindow=%d compute=%.1fms (%.0f ns/fire)",
+                    fires, wakeups, wakeupsPerDayAvg, wakeupsPerDayMax, overlaps, coalesced,
+                    driftP50Ms, driftP99Ms, driftMaxMs, earlyMaxMs,
+                    CatchUpPolicy.LATE_TOLERANCE_MS / 1000L, lateFires, resyncs,
+                    fixedOffClock, outOfWindow, computeNanos / 1e6,
+                    fires > 0 ? (double) computeNanos / fires : 0.0);
+        }
+    }
+
+    /** Virtual clock; only the simulator moves it. */
+    static final class SimClock implements SchedulerClock.Source {
+        private final TimeZone tz;
+        long nowMs;
+
+        SimClock(TimeZone tz, long nowMs) {
+            this.tz = tz;
+            this.nowMs = nowMs;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return nowMs;
+        }
+
+        @Override
+        public TimeZone timeZone() {
+            return tz;
+        }
+    }
+
+    private static final int[] INTERVALS_SEC = {300, 900, 1800, 3600, 7200, 14400};
+    private static final int[] COALESCE_SEC = {0, 0, 30, 120};
+
+    // drift histogram: 100 ms buckets up to 1 h, the rest in the last bucket
+    private static final long BUCKET_MS = 100L;
+    private static final int BUCKETS = 36_000 + 1;
+
+    private final Config cfg;
+    private final SimClock clock;
+
+    private final ScheduleRule[] rules;
+    private final long[] phase;
+    private final long[] toleranceMs;
+
+    ScheduleSimulator(Config cfg) {
+        this.cfg = cfg;
+        this.clock = new SimClock(TimeZone.getTimeZone(cfg.zone), cfg.startMs);
+        this.rules = new ScheduleRule[cfg.actions];
+        this.phase = new long[cfg.actions];
+        this.toleranceMs = new long[cfg.actions];
+    }
+
+    /** Installs the virtual clock, runs, restores SYSTEM. */
+    public static Report run(Config cfg) {
+        final ScheduleSimulator sim = new ScheduleSimulator(cfg);
+        SchedulerClock.set(sim.clock);
+        try {
+            return sim.simulate();
+        } finally {
+            SchedulerClock.set(null);
+        }
+    }
+
+    private Report simulate() {
+        final Random rnd = new Random(cfg.seed);
+        final Random delivery = new Random(cfg.seed * 31L + 7L);
+        final Report r = new Report();
+        final long endMs = cfg.startMs + cfg.days * ZoneTable.DAY_MS;
+        final long t0 = System.nanoTime();
+
+        // ---- actions, first fires (like scheduleAll with an empty store)
+        final WakeupQueue queue = new WakeupQueue();
+        for (int i = 0; i < cfg.actions; i++) {
+            rules[i] = randomRule(rnd);
+            toleranceMs[i] = COALESCE_SEC[rnd.nextInt(COALESCE_SEC.length)] * 1000L;
+            phase[i] = rules[i].phaseAt(clock.nowMs);
+            final long first = rules[i].firstAfter(clock.nowMs, phase[i]);
+            if (first > 0L) queue.put(i + 1, first, toleranceMs[i]);
+        }
+
+        // ---- time warp: jump from wakeup to wakeup
+        final long[] drift = new long[BUCKETS];
+        final int[] perDay = new int[cfg.days + 2];
+        while (queue.size() > 0) {
+            final long armedAt = queue.peekAt();
+            if (armedAt >= endMs) break;
+
+            long late = (cfg.jitterMs > 0L) ? (long) (delivery.nextDouble() * cfg.jitterMs) : 0L;
+            if (delivery.nextDouble() < cfg.lateProbability) {
+                late += (long) (delivery.nextDouble() * cfg.maxLateMs);
+            }
+            clock.nowMs = armedAt + late;
+            final long now = clock.nowMs;
+
+            final int[] early = new int[1];
+            final ArrayList<WakeupQueue.Entry> due = queue.popDue(now, early);
+            r.wakeups++;
+            r.coalesced += early[0];
+            if (due.size() >= 2) r.overlaps++;
+            final int day = (int) ((now - cfg.startMs) / ZoneTable.DAY_MS);
+            if (day >= 0 && day < perDay.length) perDay[day]++;
+
+            for (WakeupQueue.Entry e : due) {
+                final int i = e.requestId - 1;
+                final ScheduleRule rule = rules[i];
+                r.fires++;
+
+                final long d = now - e.atMs;
+                if (d < 0L) {
+                    r.earlyMaxMs = Math.max(r.earlyMaxMs, -d);
+                } else {
+                    drift[(int) Math.min(d / BUCKET_MS, BUCKETS - 1)]++;
+                    r.driftMaxMs = Math.max(r.driftMaxMs, d);
+                    if (d > CatchUpPolicy.LATE_TOLERANCE_MS) r.lateFires++;
+                }
+
+                // the planned time must be on the action's own wall clock / window
+                final ZoneTable atZt = ZoneTable.forDefault(e.atMs);
+                if (rule.kind == ScheduleRule.FIXED_TIME) {
+                    if (atZt.minuteOfDay(e.atMs) != rule.fixedMin) r.fixedOffClock++;
+                } else if (!ScheduleMath.isWithinWindow(atZt, e.atMs, rule.startMin, rule.endMin)) {
+                    r.outOfWindow++;
+                }
+
+                // AlarmScheduler.rescheduleNext: next slot, FIRE_ONCE resync if already missed
+                long next = rule.nextAfter(e.atMs, phase[i]);
+                if (next > 0L && next <= now) {
+                    next = rule.nextFutureAfter(e.atMs, phase[i], now);
+                    r.resyncs++;
+                }
+                if (next > 0L) queue.put(e.requestId, next, toleranceMs[i]);
+            }
+        }
+        r.computeNanos = System.nanoTime() - t0;
+
+        // ---- summary
+        long sum = 0L;
+        for (int d = 0; d < cfg.days; d++) {
+            sum += perDay[d];
+            r.wakeupsPerDayMax = Math.max(r.wakeupsPerDayMax, perDay[d]);
+        }
+        r.wakeupsPerDayAvg = (cfg.days > 0) ? (double) sum / cfg.days : 0.0;
+        r.driftP50Ms = percentile(drift, 0.50);
+        r.driftP99Ms = percentile(drift, 0.99);
+        return r;
+    }
+
+    private static ScheduleRule randomRule(Random rnd) {
+        if (rnd.nextInt(10) < 3) {
+            // fixed times outside the DST gap/overlap (02:00-03:00), quarter hours 05:00-22:45
+            final int fixedMin = 5 * 60 + rnd.nextInt(72) * 15;
+            return new ScheduleRule(ScheduleRule.FIXED_TIME, fixedMin, -1, -1, -1, 0);
+        }
+        final int interval = INTERVALS_SEC[rnd.nextInt(INTERVALS_SEC.length)];
+        final int anchorMin = rnd.nextInt(24 * 4) * 15;
+        switch (rnd.nextInt(3)) {
+            case 0:  return new ScheduleRule(ScheduleRule.INTERVAL, -1, 8 * 60, 20 * 60, anchorMin, interval);
+            case 1:  return new ScheduleRule(ScheduleRule.INTERVAL, -1, 22 * 60, 6 * 60, anchorMin, interval);
+            default: return new ScheduleRule(ScheduleRule.INTERVAL, -1, -1, -1, anchorMin, interval);
+        }
+    }
+
+    private static long percentile(long[] buckets, double q) {
+        long total = 0L;
+        for (long b : buckets) total += b;
+        if (total == 0L) return 0L;
+        final long rank = (long) Math.ceil(q * total);
+        long seen = 0L;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) return i * BUCKET_MS;
+        }
+        return (buckets.length - 1) * BUCKET_MS;
+    }
+
+    public static void main(String[] args) {
+        final Config cfg = Config.parse(args);
+        System.out.println(String.format(Locale.ROOT,
+                "simulate actions=%d days=%d seed=%d zone=%s late=%.2f maxLate=%ds",
+                cfg.actions, cfg.days, cfg.seed, cfg.zone, cfg.lateProbability, cfg.maxLateMs / 1000L));
+        System.out.println(run(cfg));
+    }
+}
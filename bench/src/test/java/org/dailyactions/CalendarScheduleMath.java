@@ -0,0 +1,228 @@
+package org.dailyactions;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * CalendarScheduleMath
+ * - The Calendar based next-fire code of AlarmScheduler as it was before ScheduleMath/ZoneTable,
+ *   kept verbatim as the oracle for ScheduleMathDifferentialTest
+ * - Only change: the zone is a parameter (Calendar.getInstance(tz) instead of the default zone),
+ *   so the test can run several zones without touching TimeZone.setDefault
+ *
+ * Do not "fix" anything here: a difference to ScheduleMath is either a bug there or a
+ * deliberate behaviour change that has to be made visible in the test. Deliberate changes get
+ * their own method at the end (old code stays next to it).
+ */
+final class CalendarScheduleMath {
+
+    private CalendarScheduleMath() {}
+
+    static long computeNextFromPhase(long now, long phase, long stepMs) {
+        if (stepMs <= 0) return now;
+        if (now <= phase) return phase;
+        long k = (now - phase + stepMs - 1) / stepMs; // ceil
+        return phase + k * stepMs;
+    }
+
+    static long phaseFromStartAnchorMs(TimeZone tz, long nowMs, String startAnchorTime) {
+        return phaseFromStartAnchorMs(tz, nowMs, startAnchorTime, "", "");
+    }
+
+    static long phaseFromStartAnchorMs(TimeZone tz, long nowMs, String startAnchorTime, String startTime, String endTime) {
+        int anchorMin = parseHHMMToMinutes(startAnchorTime);
+        if (anchorMin < 0) {
+            Calendar c = Calendar.getInstance(tz);
+            c.setTimeInMillis(nowMs);
+            anchorMin = c.get(Calendar.HOUR_OF_DAY) * 60 + c.get(Calendar.MINUTE);
+        }
+        long phase = dateAtMinutes(tz, nowMs, anchorMin);
+
+        final int startMin = parseHHMMToMinutes(startTime);
+        final int endMin = parseHHMMToMinutes(endTime);
+        if (startMin >= 0 && endMin >= 0 && endMin < startMin) {
+            Calendar c = Calendar.getInstance(tz);
+            c.setTimeInMillis(nowMs);
+            final int currentMin = c.get(Calendar.HOUR_OF_DAY) * 60 + c.get(Calendar.MINUTE);
+            if (currentMin < endMin && anchorMin >= startMin)
+                phase -= 24L * 60L * 60L * 1000L;
+        }
+
+        return phase;
+    }
+
+    static boolean isWithinWindow(TimeZone tz, long tMs, int startMin, int endMin) {
+        if (startMin < 0 && endMin < 0) return true;
+
+        java.util.Calendar c = java.util.Calendar.getInstance(tz);
+        c.setTimeInMillis(tMs);
+        int curMin = c.get(java.util.Calendar.HOUR_OF_DAY) * 60 + c.get(java.util.Calendar.MINUTE);
+
+        if (startMin >= 0 && endMin >= 0) {
+            if (startMin == endMin) return true; // "ganztägig" Interpretation
+            if (startMin < endMin) {
+                return curMin >= startMin && curMin < endMin;
+            } else {
+                // über Mitternacht (z.B. 22:00-06:00)
+                return (curMin >= startMin) || (curMin < endMin);
+            }
+        } else if (startMin >= 0) {
+            return curMin >= startMin;
+        } else { // endMin >= 0
+            return curMin < endMin;
+        }
+    }
+
+    static int parseHHMMToMinutes(String s) {
+        try {
+            if (s == null) return -1;
+            s = s.trim();
+            if (s.isEmpty() || !s.contains(":")) return -1;
+            String[] p = s.split(":");
+            if (p.length < 2) return -1;
+            int hh = Integer.parseInt(p[0]);
+            int mm = Integer.parseInt(p[1]);
+            if (hh == 24 && mm == 0) return 24 * 60;
+            if (hh < 0 || hh > 23 || mm < 0 || mm > 59) return -1;
+            return hh * 60 + mm;
+        } catch (Throwable t) {
+            return -1;
+        }
+    }
+
+    static long dateAtMinutes(TimeZone tz, long nowMs, int minutes) {
+        Calendar c = Calendar.getInstance(tz);
+        c.setTimeInMillis(nowMs);
+        c.set(Calendar.HOUR_OF_DAY, 0);
+        c.set(Calendar.MINUTE, 0);
+        c.set(Calendar.SECOND, 0);
+        c.set(Calendar.MILLISECOND, 0);
+        c.add(Calendar.MINUTE, minutes);
+        return c.getTimeInMillis();
+    }
+
+    /**
+     * Interval in SEKUNDEN:
+     * - vor Start -> Start
+     * - nach Ende -> nächster Tag Start
+     * - im Fenster -> now + intervalSeconds (wenn >= end -> nächster Tag Start)
+     */
+    static long computeNextIntervalFireMs(TimeZone tz, long nowMs, String startTime, String endTime, long phaseMs, int intervalSeconds) {
+        final int startMinRaw = parseHHMMToMinutes(startTime);
+        final int endMinRaw = parseHHMMToMinutes(endTime);
+        final int startMin = startMinRaw >= 0 ? startMinRaw : 0;
+        final int endMin = endMinRaw >= 0 ? endMinRaw : 24 * 60;
+
+        final long dayMs = 24L * 60L * 60L * 1000L;
+        long start = dateAtMinutes(tz, nowMs, startMin);
+        long end = dateAtMinutes(tz, nowMs, endMin);
+
+        if (endMin == startMin) {
+            end += dayMs;
+        } else if (endMin < startMin) {
+            Calendar c = Calendar.getInstance(tz);
+            c.setTimeInMillis(nowMs);
+            final int currentMin = c.get(Calendar.HOUR_OF_DAY) * 60 + c.get(Calendar.MINUTE);
+            if (currentMin < endMin) {
+                start -= dayMs;
+            } else {
+                end += dayMs;
+            }
+        }
+
+        if (nowMs >= end) {
+            start += dayMs;
+            end += dayMs;
+        }
+
+        final long intervalMs = Math.max(1, intervalSeconds) * 1000L;
+        final long phase = phaseMs > 0L ? phaseMs : phaseFromStartAnchorMs(tz, nowMs, "");
+        final long searchFrom = Math.max(nowMs, start);
+        long next = computeNextFromPhase(searchFrom, phase, intervalMs);
+
+        if (next < start) {
+            next = computeNextFromPhase(start, phase, intervalMs);
+        }
+
+        if (next >= end) {
+            start += dayMs;
+            next = computeNextFromPhase(start, phase, intervalMs);
+        }
+
+        return Math.max(next, nowMs + 1L);
+    }
+
+    /** Fixed time, next fire after a planned one (rescheduleNext: "fixedTime"). */
+    static long nextFixedFireMs(long lastPlannedTrigger) {
+        return lastPlannedTrigger + 24L * 60L * 60L * 1000L;
+    }
+
+    /** Fixed time, first fire after nowMs: today at fixedMin if still ahead, else tomorrow. */
+    static long firstFixedFireMs(TimeZone tz, long nowMs, int fixedMin) {
+        final long today = dateAtMinutes(tz, nowMs, fixedMin);
+        return (today > nowMs) ? today : dateAtMinutes(tz, nowMs + 24L * 60L * 60L * 1000L, fixedMin);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Deliberate change: window bounds are wall clock (HH:mm on the local date), not local midnight
+    // plus absolute minutes. Same algorithm as computeNextIntervalFireMs otherwise.
+    // --------------------------------------------------------------------------------------------
+
+    /** HH:mm via Calendar fields on the local date of nowMs (minutes may run into other dates). */
+    static long wallClockAt(TimeZone tz, long nowMs, int minutes) {
+        Calendar c = Calendar.getInstance(tz);
+        c.setTimeInMillis(nowMs);
+        c.add(Calendar.DATE, Math.floorDiv(minutes, 24 * 60));
+        final int m = Math.floorMod(minutes, 24 * 60);
+        c.set(Calendar.HOUR_OF_DAY, m / 60);
+        c.set(Calendar.MINUTE, m % 60);
+        c.set(Calendar.SECOND, 0);
+        c.set(Calendar.MILLISECOND, 0);
+        return c.getTimeInMillis();
+    }
+
+    static long computeNextIntervalFireMsWallClock(TimeZone tz, long nowMs, String startTime, String endTime, long phaseMs, int intervalSeconds) {
+        final int startMinRaw = parseHHMMToMinutes(startTime);
+        final int endMinRaw = parseHHMMToMinutes(endTime);
+        final int startMin = startMinRaw >= 0 ? startMinRaw : 0;
+        final int endMin = endMinRaw >= 0 ? endMinRaw : 24 * 60;
+
+        int startDay = 0;
+        int endDay = 0;
+        if (endMin == startMin) {
+            endDay = 1;
+        } else if (endMin < startMin) {
+            Calendar c = Calendar.getInstance(tz);
+            c.setTimeInMillis(nowMs);
+            final int currentMin = c.get(Calendar.HOUR_OF_DAY) * 60 + c.get(Calendar.MINUTE);
+            if (currentMin < endMin) {
+                startDay = -1;
+            } else {
+                endDay = 1;
+            }
+        }
+
+        if (nowMs >= wallClockAt(tz, nowMs, endDay * 24 * 60 + endMin)) {
+            startDay++;
+            endDay++;
+        }
+        long start = wallClockAt(tz, nowMs, startDay * 24 * 60 + startMin);
+        final long end = wallClockAt(tz, nowMs, endDay * 24 * 60 + endMin);
+
+        final long intervalMs = Math.max(1, intervalSeconds) * 1000L;
+        final long phase = phaseMs > 0L ? phaseMs : phaseFromStartAnchorMs(tz, nowMs, "");
+        final long searchFrom = Math.max(nowMs, start);
+        long next = computeNextFromPhase(searchFrom, phase, intervalMs);
+
+        if (next < start) {
+            next = computeNextFromPhase(start, phase, intervalMs);
+        }
+
+        if (next >= end) {
+            start = wallClockAt(tz, nowMs, (startDay + 1) * 24 * 60 + startMin);
+            next = computeNextFromPhase(start, phase, intervalMs);
+        }
+
+        return Math.max(next, nowMs + 1L);
+    }
+}
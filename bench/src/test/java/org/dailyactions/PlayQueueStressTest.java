@@ -0,0 +1,234 @@
+package org.dailyactions;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * PlayQueueStressTest
+ * - PlayQueue under concurrent add / acquire / pollOrRelease / removeId, the way AlarmReceiver
+ *   uses it: producers add and try to take the pump token, the pump hands itself over to another
+ *   thread after every item (finish of the previous sound), cancels drop ids at random
+ * - Checked: no lost wakeup (everything added is played or dropped, the token is free at the
+ *   end), never two pumps at once, nothing played twice, FIFO per requestId
+ * - The Playing CAS of AlarmReceiver (publish with getAndSet, end with compareAndSet from engine
+ *   end / hard stop / cancel) is rebuilt here 1:1 on top of the queue: every Playing has to run
+ *   its finish exactly once, whatever wins
+ *
+ * Stress tests cannot prove absence of races; many short rounds with shuffled timing find the
+ * usual ones within a few seconds. Ausführen: ../android/gradlew -p bench test
+ */
+public class PlayQueueStressTest {
+
+    private static final int ROUNDS = 200;
+    private static final int PRODUCERS = 4;
+    private static final int ITEMS_PER_PRODUCER = 250;
+    private static final int IDS = 16;
+    private static final long QUIESCE_MS = 10_000L;
+
+    private static final class Item {
+        final int requestId;
+        final int producer;
+        final int seq;          // per producer, increasing
+        final AtomicInteger played = new AtomicInteger();
+        Item(int requestId, int producer, int seq) {
+            this.requestId = requestId;
+            this.producer = producer;
+            this.seq = seq;
+        }
+    }
+
+    // Same shape as AlarmReceiver.Playing/endPlaying: one immutable object per sound, swapped by CAS
+    private static final class Playing {
+        final int requestId;
+        final Runnable finish;
+        final AtomicInteger finished = new AtomicInteger();
+        Playing(int requestId, Runnable finish) {
+            this.requestId = requestId;
+            this.finish = finish;
+        }
+    }
+
+    private static final Playing IDLE = new Playing(-1, null);
+
+    // one round: queue, pump state and accounting
+    private static final class Round {
+        final PlayQueue<Item> q = new PlayQueue<>();
+        final AtomicReference<Playing> playing = new AtomicReference<>(IDLE);
+        final ExecutorService audio;           // "audio thread(s)": engine end, hard stop
+        final AtomicInteger pumps = new AtomicInteger();
+        final AtomicInteger played = new AtomicInteger();
+        final AtomicInteger dropped = new AtomicInteger();
+        final ConcurrentHashMap<Long, Integer> lastSeq = new ConcurrentHashMap<>();
+        final ArrayList<Playing> started = new ArrayList<>();
+        volatile String error = null;
+
+        Round(ExecutorService audio) {
+            this.audio = audio;
+        }
+
+        void failed(String msg) {
+            if (error == null) error = msg;
+        }
+
+        // AlarmReceiver.endPlaying: only the winner of the CAS runs finish
+        boolean endPlaying(Playing p) {
+            if (p == IDLE || !playing.compareAndSet(p, IDLE)) return false;
+            if (p.finished.incrementAndGet() != 1) failed("finish twice id=" + p.requestId);
+            p.finish.run();
+            return true;
+        }
+
+        // AlarmReceiver.playNext: only while holding the token
+        void playNext() {
+            final Item it = q.pollOrRelease();
+            if (it == null) return;
+
+            if (pumps.incrementAndGet() != 1) failed("two pumps");
+            if (it.played.incrementAndGet() != 1) failed("played twice id=" + it.requestId);
+            // FIFO per requestId (and per producer, which is what lastSeq can see)
+            final long key = ((long) it.requestId << 32) | it.producer;
+            final Integer prev = lastSeq.put(key, it.seq);
+            if (prev != null && prev >= it.seq) failed("out of order id=" + it.requestId);
+            played.incrementAndGet();
+
+            final Playing p = new Playing(it.requestId, this::playNext);
+            synchronized (started) { started.add(p); }
+            pumps.decrementAndGet();
+            final Playing before = playing.getAndSet(p);
+            if (before != IDLE) failed("id=" + before.requestId + " was still current");
+
+            // engine end and hard stop race each other (and stopRequest) on other threads
+            audio.execute(() -> endPlaying(p));
+            audio.execute(() -> endPlaying(p));
+        }
+
+        // AlarmReceiver.stopRequest (queue part + current sound)
+        void stopRequest(int requestId) {
+            dropped.addAndGet(q.removeId(requestId));
+            final Playing p = playing.get();
+            if (p.requestId == requestId) endPlaying(p);
+        }
+    }
+
+    @Test(timeout = 120_000L)
+    public void noLostWakeupNoDoubleFinish() throws Exception {
+        final ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS + 1);
+        final ExecutorService audio = Executors.newFixedThreadPool(3);
+        try {
+            for (int r = 0; r < ROUNDS; r++) {
+                runRound(r, producers, audio);
+            }
+        } finally {
+            producers.shutdownNow();
+            audio.shutdownNow();
+        }
+    }
+
+    private static void runRound(int round, ExecutorService producers, ExecutorService audio) throws Exception {
+        final Round rd = new Round(audio);
+        final CountDownLatch go = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(PRODUCERS + 1);
+        final AtomicInteger added = new AtomicInteger();
+
+        for (int pi = 0; pi < PRODUCERS; pi++) {
+            final int producer = pi;
+            producers.execute(() -> {
+                final Random rnd = new Random(round * 131L + producer);
+                try {
+                    go.await();
+                    int s = 0;
+                    while (s < ITEMS_PER_PRODUCER) {
+                        // a wakeup adds a small batch, then tries to take the pump (AlarmReceiver)
+                        final int batch = 1 + rnd.nextInt(3);
+                        for (int b = 0; b < batch && s < ITEMS_PER_PRODUCER; b++, s++) {
+                            final int id = 1 + rnd.nextInt(IDS);
+                            rd.q.add(id, new Item(id, producer, s));
+                            added.incrementAndGet();
+                        }
+                        if (rd.q.acquire()) rd.playNext();
+                        if (rnd.nextInt(8) == 0) Thread.yield();
+                    }
+                } catch (Throwable t) {
+                    rd.failed("producer: " + t);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        // cancels from the UI thread
+        producers.execute(() -> {
+            final Random rnd = new Random(round);
+            try {
+                go.await();
+                for (int k = 0; k < 100; k++) {
+                    rd.stopRequest(1 + rnd.nextInt(IDS));
+                    Thread.yield();
+                }
+            } catch (Throwable t) {
+                rd.failed("cancel: " + t);
+            } finally {
+                done.countDown();
+            }
+        });
+
+        go.countDown();
+        assertTrue("round " + round + ": producers stuck", done.await(QUIESCE_MS, TimeUnit.MILLISECONDS));
+
+        // everything added must end up played or dropped without any further add (lost wakeup otherwise)
+        final long deadline = System.currentTimeMillis() + QUIESCE_MS;
+        while (rd.played.get() + rd.dropped.get() < added.get()
+                || rd.playing.get() != IDLE || rd.q.isBusy()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("round " + round + ": lost wakeup, added=" + added.get() + " played=" + rd.played.get()
+                        + " dropped=" + rd.dropped.get() + " queued=" + rd.q.size() + " busy=" + rd.q.isBusy()
+                        + " current=" + rd.playing.get().requestId);
+            }
+            Thread.sleep(1L);
+        }
+
+        if (rd.error != null) fail("round " + round + ": " + rd.error);
+        assertEquals("round " + round + ": accounted", added.get(), rd.played.get() + rd.dropped.get());
+        assertEquals("round " + round + ": queue empty", 0, rd.q.size());
+        assertFalse("round " + round + ": pump token free", rd.q.isBusy());
+        synchronized (rd.started) {
+            for (Playing p : rd.started) {
+                assertEquals("round " + round + ": finish of id=" + p.requestId, 1, p.finished.get());
+            }
+        }
+    }
+
+    @Test
+    public void removeIdKeepsOrderOfTheOthers() {
+        final PlayQueue<Integer> q = new PlayQueue<>();
+        for (int i = 0; i < 30; i++) q.add(i % 3, i);
+
+        assertEquals(10, q.removeId(1));
+        assertEquals(0, q.removeId(1));
+        assertEquals(20, q.size());
+
+        assertTrue(q.acquire());
+        assertFalse(q.acquire());
+        int expect = 0;
+        for (Integer v = q.pollOrRelease(); v != null; v = q.pollOrRelease()) {
+            if (expect % 3 == 1) expect++;
+            assertEquals(expect, (int) v);
+            expect++;
+        }
+        assertFalse("released with the last poll", q.isBusy());
+        assertTrue(q.acquire());
+    }
+}
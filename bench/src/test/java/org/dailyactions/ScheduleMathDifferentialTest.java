@@ -0,0 +1,242 @@
+package org.dailyactions;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ScheduleMathDifferentialTest
+ * - ScheduleMath/ZoneTable against the former Calendar code (CalendarScheduleMath), result for result
+ * - One year of timestamps (odd step, so seconds and millis vary) in several zones: DST north
+ *   and south, 30 min DST, DST switch at midnight, no DST, half-hour offset, UTC
+ * - Plus every minute of the hours around each transition of that year (gap and overlap)
+ * - Deliberate change: fixed times and interval window bounds are wall clock on DST switch days.
+ *   Fixed times are checked against java.time, windows against a Calendar variant that sets the
+ *   bounds by field (CalendarScheduleMath.computeNextIntervalFireMsWallClock); away from a switch
+ *   both must still equal the old Calendar code
+ *
+ * Window shapes, anchors and intervals rotate with the timestamp index instead of running the full
+ * cross product at every point: same coverage over the year, a few seconds per run.
+ *
+ * Ausführen: ../android/gradlew -p bench test
+ */
+public class ScheduleMathDifferentialTest {
+
+    private static final String[] ZONES = {
+            "Europe/Berlin",
+            "America/New_York",
+            "Australia/Sydney",
+            "Australia/Lord_Howe",  // DST shift of 30 min
+            "America/Santiago",     // switches at local midnight (midnight itself does not exist)
+            "Asia/Kolkata",         // +05:30, no DST
+            "UTC",
+    };
+
+    private static final long YEAR_START = 1735689600000L;      // 2025-01-01T00:00Z
+    private static final long YEAR_MS = 365L * ZoneTable.DAY_MS;
+    private static final long STEP_MS = 23L * 60_000L + 7_919L; // ~23 min, not minute-aligned
+    private static final long AROUND_TRANSITION_MS = 3L * 60L * 60_000L;
+    private static final long NO_SWITCH_MS = 4L * ZoneTable.DAY_MS;
+
+    // {start, end}: normal, empty, over midnight, only start, only end, all day, 24:00 end
+    private static final String[][] WINDOWS = {
+            {"08:00", "20:00"},
+            {"", ""},
+            {"22:00", "06:00"},
+            {"01:30", ""},
+            {"", "02:30"},
+            {"07:00", "07:00"},
+            {"00:00", "24:00"},
+            {"02:15", "03:15"},     // inside the European/American gap/overlap hours
+    };
+    private static final String[] ANCHORS = {"", "00:00", "02:30", "07:45", "23:10", "bogus"};
+    private static final int[] INTERVALS_SEC = {1, 59, 300, 900, 3600, 5400, 86400};
+    private static final int[] DAY_MINUTES = {0, 1, 90, 120, 150, 180, 1439, 1440};
+
+    @Test
+    public void parseMatchesCalendarCode() {
+        final String[] inputs = {
+                null, "", " ", ":", "8:00", "08:00", " 08:00 ", "08:00:30", "23:59", "24:00", "24:01",
+                "00:60", "-1:00", "+1:05", "1:5", "007:05", "08:", ":30", "ab:cd", "08-00", "08:00x",
+                "\t12:34\n", "99999999999:00", "12:34:56:78", "٠٨:٣٠", "1:-0",
+        };
+        for (String s : inputs) {
+            assertEquals("parse \"" + s + "\"",
+                    CalendarScheduleMath.parseHHMMToMinutes(s), ScheduleMath.parseHHMMToMinutes(s));
+        }
+        for (int h = -1; h <= 25; h++) {
+            for (int m = -1; m <= 61; m++) {
+                final String s = h + ":" + (m < 10 && m >= 0 ? "0" : "") + m;
+                assertEquals("parse \"" + s + "\"",
+                        CalendarScheduleMath.parseHHMMToMinutes(s), ScheduleMath.parseHHMMToMinutes(s));
+            }
+        }
+    }
+
+    @Test
+    public void yearOfTimestamps() {
+        for (String zone : ZONES) {
+            final TimeZone tz = TimeZone.getTimeZone(zone);
+            final ZoneTable zt = ZoneTable.of(tz, YEAR_START + YEAR_MS / 2);
+            int i = 0;
+            for (long t = YEAR_START; t < YEAR_START + YEAR_MS; t += STEP_MS) {
+                check(tz, zt, t, i++);
+            }
+        }
+    }
+
+    @Test
+    public void everyMinuteAroundTransitions() {
+        int transitions = 0;
+        for (String zone : ZONES) {
+            final TimeZone tz = TimeZone.getTimeZone(zone);
+            final ZoneTable zt = ZoneTable.of(tz, YEAR_START + YEAR_MS / 2);
+            for (long tr : transitionsOf(zone)) {
+                transitions++;
+                int i = 0;
+                // minute grid plus one odd millisecond offset, both sides of the switch
+                for (long t = tr - AROUND_TRANSITION_MS; t <= tr + AROUND_TRANSITION_MS; t += 60_000L) {
+                    check(tz, zt, t, i++);
+                    check(tz, zt, t + 29_999L, i++);
+                }
+            }
+        }
+        // guard against a JDK without tz data silently turning this into a no-op
+        assertTrue("transitions in " + ZONES.length + " zones: " + transitions, transitions >= 8);
+    }
+
+    /*
+     * Fixed times deliberately differ from the Calendar code: they advance by local date, not by
+     * 24h. Expected is HH:mm on every local date (java.time); a time in a gap moves forward by the
+     * gap, a time in an overlap takes the second (standard time) occurrence like GregorianCalendar.
+     * Wherever no transition lies in between (and the previous fire was not moved out of a gap),
+     * the result must still be the old lastPlanned + 24h.
+     */
+    @Test
+    public void fixedTimeRuleKeepsWallClock() {
+        final int[] fixedMins = {0, 90, 150, 480, 1439};
+        for (String zone : ZONES) {
+            final TimeZone tz = TimeZone.getTimeZone(zone);
+            final ZoneId zid = ZoneId.of(zone);
+            SchedulerClock.set(zoneOnly(tz));
+            try {
+                for (int fixedMin : fixedMins) {
+                    final ScheduleRule rule = new ScheduleRule(ScheduleRule.FIXED_TIME, fixedMin, -1, -1, -1, 0);
+                    final String what = zone + " fixed=" + fixedMin;
+
+                    long at = rule.firstAfter(YEAR_START, 0L);
+                    assertEquals("firstAfter " + what, wallClockAfter(zid, YEAR_START, fixedMin), at);
+                    for (int day = 0; day < 366; day++) {
+                        final long next = rule.nextAfter(at, 0L);
+                        final String where = what + " @ " + Instant.ofEpochMilli(at);
+                        assertEquals("nextAfter " + where, wallClockAfter(zid, at, fixedMin), next);
+                        if (tz.getOffset(at) == tz.getOffset(next) && minuteOf(zid, at) == fixedMin) {
+                            assertEquals("nextAfter off a switch " + where, CalendarScheduleMath.nextFixedFireMs(at), next);
+                        }
+                        at = next;
+                    }
+                }
+                int i = 0;
+                for (long t = YEAR_START; t < YEAR_START + YEAR_MS; t += STEP_MS) {
+                    final int fixedMin = fixedMins[i++ % fixedMins.length];
+                    final ScheduleRule rule = new ScheduleRule(ScheduleRule.FIXED_TIME, fixedMin, -1, -1, -1, 0);
+                    assertEquals("firstAfter " + zone + " fixed=" + fixedMin + " @ " + Instant.ofEpochMilli(t),
+                            wallClockAfter(zid, t, fixedMin), rule.firstAfter(t, 0L));
+                }
+            } finally {
+                SchedulerClock.set(null);
+            }
+        }
+    }
+
+    private static int minuteOf(ZoneId zone, long tMs) {
+        final LocalTime lt = Instant.ofEpochMilli(tMs).atZone(zone).toLocalTime();
+        return lt.getHour() * 60 + lt.getMinute();
+    }
+
+    // first instant after tMs whose local time is fixedMin (gap: shifted forward, overlap: later offset)
+    private static long wallClockAfter(ZoneId zone, long tMs, int fixedMin) {
+        final LocalDate date = Instant.ofEpochMilli(tMs).atZone(zone).toLocalDate();
+        for (int d = 0; ; d++) {
+            final long at = ZonedDateTime.of(date.plusDays(d), LocalTime.of(fixedMin / 60, fixedMin % 60), zone)
+                    .withLaterOffsetAtOverlap()
+                    .toInstant().toEpochMilli();
+            if (at > tMs) return at;
+        }
+    }
+
+    // ScheduleRule reads the zone through SchedulerClock (ZoneTable.forDefault)
+    private static SchedulerClock.Source zoneOnly(TimeZone tz) {
+        return new SchedulerClock.Source() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public TimeZone timeZone() {
+                return tz;
+            }
+        };
+    }
+
+    // All functions at one instant; the parameter combination rotates with i.
+    private static void check(TimeZone tz, ZoneTable zt, long now, int i) {
+        final String at = tz.getID() + " " + Instant.ofEpochMilli(now);
+
+        for (int min : DAY_MINUTES) {
+            assertEquals("dateAtMinutes " + min + " @ " + at,
+                    CalendarScheduleMath.dateAtMinutes(tz, now, min), ScheduleMath.dateAtMinutes(zt, now, min));
+        }
+
+        final String[] w = WINDOWS[i % WINDOWS.length];
+        final int startMin = ScheduleMath.parseHHMMToMinutes(w[0]);
+        final int endMin = ScheduleMath.parseHHMMToMinutes(w[1]);
+        final String anchor = ANCHORS[(i / WINDOWS.length) % ANCHORS.length];
+        final int interval = INTERVALS_SEC[(i / 3) % INTERVALS_SEC.length];
+        final String args = String.format(Locale.ROOT, " [%s-%s anchor=%s interval=%ds] @ %s",
+                w[0], w[1], anchor, interval, at);
+
+        assertEquals("isWithinWindow" + args,
+                CalendarScheduleMath.isWithinWindow(tz, now, startMin, endMin),
+                ScheduleMath.isWithinWindow(zt, now, startMin, endMin));
+
+        final long phase = CalendarScheduleMath.phaseFromStartAnchorMs(tz, now, anchor, w[0], w[1]);
+        assertEquals("phaseFromStartAnchorMs" + args,
+                phase, ScheduleMath.phaseFromStartAnchorMs(zt, now, anchor, w[0], w[1]));
+
+        // stored phase (as AlarmScheduler passes it) and "no phase yet" (0 -> now's minute)
+        final long phaseMs = ((i & 1) == 0) ? phase : 0L;
+        final long wallClock = CalendarScheduleMath.computeNextIntervalFireMsWallClock(tz, now, w[0], w[1], phaseMs, interval);
+        assertEquals("computeNextIntervalFireMs phase=" + phaseMs + args,
+                wallClock, ScheduleMath.computeNextIntervalFireMs(zt, now, startMin, endMin, phaseMs, interval));
+        // the bounds reach from the day before to three days after now
+        if (tz.getOffset(now - NO_SWITCH_MS) == tz.getOffset(now + NO_SWITCH_MS)) {
+            assertEquals("computeNextIntervalFireMs off a switch phase=" + phaseMs + args,
+                    CalendarScheduleMath.computeNextIntervalFireMs(tz, now, w[0], w[1], phaseMs, interval), wallClock);
+        }
+    }
+
+    private static ArrayList<Long> transitionsOf(String zone) {
+        final ArrayList<Long> out = new ArrayList<>();
+        final ZoneRules rules = ZoneId.of(zone).getRules();
+        ZoneOffsetTransition tr = rules.nextTransition(Instant.ofEpochMilli(YEAR_START));
+        while (tr != null && tr.toEpochSecond() * 1000L < YEAR_START + YEAR_MS) {
+            out.add(tr.toEpochSecond() * 1000L);
+            tr = rules.nextTransition(tr.getInstant());
+        }
+        return out;
+    }
+}
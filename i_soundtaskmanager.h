@@ -1,6 +1,8 @@
 #pragma once
 #include <QObject>
 #include <QString>
+#include <QVariantList>
+#include <QVariantMap>
 
 class ISoundTaskManager : public QObject {
     Q_OBJECT
@@ -48,6 +50,127 @@ public:
     virtual bool isScheduled(int alarmId) const = 0;
     virtual qint64 getNextAtMs(int alarmId) const = 0;
 
+    // Nächste Fires ALLER Actions ab fromMs: Liste von { requestId, atMs } (sortiert).
+    // Default: nicht unterstützt (leer).
+    virtual QVariantList upcomingFires(qint64 fromMs, int count) const
+    {
+        Q_UNUSED(fromMs)
+        Q_UNUSED(count)
+        return {};
+    }
+
+    // Latenz-Histogramme + Zähler der Alarm-Pipeline (persistiert, siehe AlarmMetrics.java):
+    // { sinceMs, counters:{fires,...}, histograms:{lateness:{count,p50Us,...},...}, boundsUs:[...] }
+    // Default: nicht unterstützt (leer).
+    virtual QVariantMap alarmMetrics() const { return {}; }
+    virtual void resetAlarmMetrics() {}
+
+    // Bulk: scheduleWithParams()/cancel() zwischen beginBatch() und commitBatch() werden gesammelt
+    // und in EINEM Aufruf übergeben (Android: ein JNI-Call mit gepacktem ByteBuffer).
+    // Default: jeder Aufruf geht sofort durch, beginBatch/commitBatch sind no-ops.
+    virtual void beginBatch() {}
+    virtual bool commitBatch() { return true; }
+
+    // getNextAtMs / isScheduled für viele ids; Default: Einzelaufrufe
+    virtual QList<qint64> getNextAtMsAll(const QList<int> &ids) const
+    {
+        QList<qint64> out;
+        out.reserve(ids.size());
+        for (int id : ids) out.push_back(getNextAtMs(id));
+        return out;
+    }
+
+    virtual QList<bool> isScheduledAll(const QList<int> &ids) const
+    {
+        QList<bool> out;
+        out.reserve(ids.size());
+        for (int id : ids) out.push_back(isScheduled(id));
+        return out;
+    }
+
+    // Gewünschter Zustand mehrerer Actions; pro Eintrag eine Map wie die start...SoundTask-Parameter:
+    // { requestId (0 = neu), enabled, mode: "fixed"|"interval", rawSound, text, fixedTimeMs,
+    //   startTimeMs, endTimeMs, startAnchorTimeMs, intervalSecs, volume01, durationSound,
+    //   coalesceSeconds (optional, Default 0 = exakt; nur im Multiplexer-Modus wirksam) }
+    // enabled=false entfernt die Action. Rückgabe: requestId pro Eintrag (positionsgleich, 0 = keiner).
+    // Android: requestIds bleiben erhalten, nur die Differenz zum letzten Stand wird angewandt
+    // (unverändert = kein Systemaufruf, nur Inhalt geändert = Phase/nächster Fire bleiben).
+    // Default: cancel + neu starten (neue requestId).
+    virtual QList<int> reconcile(const QVariantList &desired)
+    {
+        QList<int> ids;
+        ids.reserve(desired.size());
+        for (const QVariant &v : desired) {
+            const QVariantMap a = v.toMap();
+            const int oldId = a.value(QStringLiteral("requestId")).toInt();
+            if (oldId > 0)
+                cancelAlarmTask(oldId);
+
+            int id = 0;
+            if (a.value(QStringLiteral("enabled")).toBool()) {
+                const QString rawSound = a.value(QStringLiteral("rawSound")).toString();
+                const QString text = a.value(QStringLiteral("text")).toString();
+                const float vol = a.value(QStringLiteral("volume01")).toFloat();
+                const int duration = a.value(QStringLiteral("durationSound")).toInt();
+                if (a.value(QStringLiteral("mode")).toString() == QLatin1String("interval")) {
+                    id = startIntervalSoundTask(rawSound, text,
+                                                a.value(QStringLiteral("startTimeMs")).toLongLong(),
+                                                a.value(QStringLiteral("endTimeMs")).toLongLong(),
+                                                a.value(QStringLiteral("startAnchorTimeMs")).toLongLong(),
+                                                a.value(QStringLiteral("intervalSecs")).toInt(),
+                                                vol, duration);
+                } else {
+                    id = startFixedSoundTask(rawSound, text,
+                                             a.value(QStringLiteral("fixedTimeMs")).toLongLong(),
+                                             vol, duration);
+                }
+            }
+            ids.push_back(id > 0 ? id : 0);
+        }
+        return ids;
+    }
+
+    // Verhalten bei zu später Zustellung (Doze, Reboot): "fireOnce" (Default), "skip" oder
+    // "replay" (max. maxReplays verpasste Slots). Bleibt über Reschedules erhalten, cancel() löscht es.
+    // Default: nicht unterstützt.
+    virtual bool setCatchUpPolicy(int requestId, const QString &policy, int maxReplays)
+    {
+        Q_UNUSED(requestId)
+        Q_UNUSED(policy)
+        Q_UNUSED(maxReplays)
+        return false;
+    }
+
+    // Ein System-Alarm für alle Actions (Android: AlarmMultiplexer) statt einem pro Action.
+    // Opt-in, Default aus; bereits geplante Actions wechseln bei ihrem nächsten Reschedule.
+    // Default: nicht unterstützt.
+    virtual bool multiplexMode() const { return false; }
+    virtual bool setMultiplexMode(bool enabled)
+    {
+        Q_UNUSED(enabled)
+        return false;
+    }
+
+    // Gleichzeitige Erinnerungen gemischt in einem Stream (Android: AudioMixer) statt nacheinander.
+    // Opt-in, Default aus; gilt ab dem nächsten Fire, ein laufender Sound bleibt unberührt.
+    // Default: nicht unterstützt.
+    virtual bool mixPlayback() const { return false; }
+    virtual bool setMixPlayback(bool enabled)
+    {
+        Q_UNUSED(enabled)
+        return false;
+    }
+
+    // System-Alarm eine gelernte Vorlaufzeit vor dem Fire, Sound startet zur geplanten Millisekunde.
+    // Opt-in, Default aus; gilt für ab jetzt gesetzte Alarme.
+    // Default: nicht unterstützt.
+    virtual bool preRoll() const { return false; }
+    virtual bool setPreRoll(bool enabled)
+    {
+        Q_UNUSED(enabled)
+        return false;
+    }
+
 
 signals:
     void logLine(const QString &line) const ;
@@ -77,6 +77,80 @@ bool SoundTaskManager::cancelAll(const QVariantList &ids)
     return m_impl->cancelAll(list);
 }
 
+// ungültige ids bleiben als 0 drin, damit die Ergebnisse positionsgleich zu ids sind
+static QList<int> toIdList(const QVariantList &ids)
+{
+    QList<int> list;
+    list.reserve(ids.size());
+    for (const QVariant &v : ids) {
+        bool ok = false;
+        const int id = v.toInt(&ok);
+        list.push_back((ok && id > 0) ? id : 0);
+    }
+    return list;
+}
+
+void SoundTaskManager::beginBatch()
+{
+    m_impl->beginBatch();
+}
+
+bool SoundTaskManager::commitBatch()
+{
+    return m_impl->commitBatch();
+}
+
+bool SoundTaskManager::scheduleAll(const QVariantList &actions)
+{
+    bool ok = true;
+    m_impl->beginBatch();
+    for (const QVariant &v : actions) {
+        const QVariantMap a = v.toMap();
+        ok = m_impl->scheduleWithParams(a.value(QStringLiteral("triggerAtMillis")).toLongLong(),
+                                        a.value(QStringLiteral("soundName")).toString(),
+                                        a.value(QStringLiteral("requestId")).toInt(),
+                                        a.value(QStringLiteral("title")).toString(),
+                                        a.value(QStringLiteral("text")).toString(),
+                                        a.value(QStringLiteral("mode")).toString(),
+                                        a.value(QStringLiteral("fixedTime")).toString(),
+                                        a.value(QStringLiteral("startTime")).toString(),
+                                        a.value(QStringLiteral("endTime")).toString(),
+                                        a.value(QStringLiteral("startAnchorTime")).toString(),
+                                        a.value(QStringLiteral("intervalSeconds")).toInt(),
+                                        a.value(QStringLiteral("volume01")).toFloat(),
+                                        a.value(QStringLiteral("durationSound")).toInt())
+             && ok;
+    }
+    return m_impl->commitBatch() && ok;
+}
+
+QVariantList SoundTaskManager::reconcile(const QVariantList &desired)
+{
+    QVariantList out;
+    const QList<int> ids = m_impl->reconcile(desired);
+    out.reserve(ids.size());
+    for (int id : ids) out.push_back(id);
+    return out;
+}
+
+QVariantList SoundTaskManager::getNextAtMsAll(const QVariantList &ids)
+{
+    QVariantList out;
+    const QList<qint64> at = m_impl->getNextAtMsAll(toIdList(ids));
+    out.reserve(at.size());
+    for (qint64 ms : at) out.push_back(ms);
+    return out;
+}
+
+QVariantList SoundTaskManager::isScheduledAll(const QVariantList &ids)
+{
+    QVariantList out;
+    const QList<bool> scheduled = m_impl->isScheduledAll(toIdList(ids));
+    out.reserve(scheduled.size());
+    for (bool b : scheduled) out.push_back(b);
+    return out;
+}
+
 bool SoundTaskManager::isScheduled(int alarmId)
 {
     return m_impl->isScheduled(alarmId);
@@ -86,3 +160,53 @@ qint64 SoundTaskManager::getNextAtMs(int alarmId)
 {
     return m_impl->getNextAtMs(alarmId);
 }
+
+QVariantList SoundTaskManager::upcomingFires(qint64 fromMs, int count)
+{
+    return m_impl->upcomingFires(fromMs, count);
+}
+
+QVariantMap SoundTaskManager::alarmMetrics()
+{
+    return m_impl->alarmMetrics();
+}
+
+void SoundTaskManager::resetAlarmMetrics()
+{
+    m_impl->resetAlarmMetrics();
+}
+
+bool SoundTaskManager::setCatchUpPolicy(int requestId, const QString &policy, int maxReplays)
+{
+    return m_impl->setCatchUpPolicy(requestId, policy, maxReplays);
+}
+
+bool SoundTaskManager::multiplexMode()
+{
+    return m_impl->multiplexMode();
+}
+
+bool SoundTaskManager::setMultiplexMode(bool enabled)
+{
+    return m_impl->setMultiplexMode(enabled);
+}
+
+bool SoundTaskManager::mixPlayback()
+{
+    return m_impl->mixPlayback();
+}
+
+bool SoundTaskManager::setMixPlayback(bool enabled)
+{
+    return m_impl->setMixPlayback(enabled);
+}
+
+bool SoundTaskManager::preRoll()
+{
+    return m_impl->preRoll();
+}
+
+bool SoundTaskManager::setPreRoll(bool enabled)
+{
+    return m_impl->setPreRoll(enabled);
+}
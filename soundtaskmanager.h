@@ -52,6 +52,46 @@ public:
 
     Q_INVOKABLE qint64 getNextAtMs(int alarmId);
 
+    // [{ requestId, atMs }, ...] – nächste Fires aller Actions in einem Aufruf
+    Q_INVOKABLE QVariantList upcomingFires(qint64 fromMs, int count);
+
+    // Bulk: alle scheduleWithParams/cancel dazwischen gehen als EIN Aufruf raus (Android: ein JNI-Call)
+    Q_INVOKABLE void beginBatch();
+    Q_INVOKABLE bool commitBatch();
+
+    // [{ triggerAtMillis, soundName, requestId, title, text, mode, fixedTime, startTime, endTime,
+    //    startAnchorTime, intervalSeconds, volume01, durationSound }, ...] – in einem Batch
+    Q_INVOKABLE bool scheduleAll(const QVariantList &actions);
+
+    // Gewünschter Zustand: [{ requestId, enabled, mode, rawSound, text, fixedTimeMs, startTimeMs,
+    // endTimeMs, startAnchorTimeMs, intervalSecs, volume01, durationSound, coalesceSeconds }, ...]
+    // -> [requestId, ...]
+    // nur die Differenz wird angewandt (siehe ISoundTaskManager::reconcile)
+    Q_INVOKABLE QVariantList reconcile(const QVariantList &desired);
+
+    // [nextAtMs, ...] bzw. [bool, ...] in derselben Reihenfolge wie ids
+    Q_INVOKABLE QVariantList getNextAtMsAll(const QVariantList &ids);
+    Q_INVOKABLE QVariantList isScheduledAll(const QVariantList &ids);
+
+    // Feld-Latenzen der Alarm-Pipeline (Histogramme + Zähler), leer auf Desktop/iOS
+    Q_INVOKABLE QVariantMap alarmMetrics();
+    Q_INVOKABLE void resetAlarmMetrics();
+
+    // Catch-up nach verspäteter Zustellung: "fireOnce" | "skip" | "replay" (nach scheduleWithParams setzen)
+    Q_INVOKABLE bool setCatchUpPolicy(int requestId, const QString &policy, int maxReplays = 0);
+
+    // Ein System-Alarm für alle Actions (nur Android, Default aus)
+    Q_INVOKABLE bool multiplexMode();
+    Q_INVOKABLE bool setMultiplexMode(bool enabled);
+
+    // Überlappende Sounds mischen statt nacheinander spielen (nur Android, Default aus)
+    Q_INVOKABLE bool mixPlayback();
+    Q_INVOKABLE bool setMixPlayback(bool enabled);
+
+    // Alarm mit Vorlauf, Sound exakt zur geplanten Zeit (nur Android, Default aus)
+    Q_INVOKABLE bool preRoll();
+    Q_INVOKABLE bool setPreRoll(bool enabled);
+
 
 signals:
     void logLine(const QString &line);
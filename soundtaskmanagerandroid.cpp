@@ -14,6 +14,11 @@
 #include <cstdarg>
 
 #include <QSettings>
+#include <QVariantMap>
+#include <QVector>
+#include <QJsonDocument>
+#include <QtEndian>
+#include <cstring>
 
 static int parseHHMMToMinutes(const QString &time)
 {
@@ -151,6 +156,443 @@ qint64 SoundTaskManagerAndroid::getNextAtMs(int requestId) const
     return ok ? (qint64)ms : 0;
 }
 
+QVariantList SoundTaskManagerAndroid::upcomingFires(qint64 fromMs, int count) const
+{
+    QVariantList out;
+    if (count <= 0)
+        return out;
+
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("upcomingFires(): QtNative.activity() invalid");
+        return out;
+    }
+
+    // long[] packed as [at0, id0, at1, id1, ...]
+    QJniObject arr = QJniObject::callStaticObjectMethod(
+        "org/dailyactions/AlarmScheduler",
+        "getUpcoming",
+        "(Landroid/content/Context;JI)[J",
+        activity.object<jobject>(),
+        (jlong)fromMs,
+        (jint)count
+        );
+
+    if (!clearJniException("getUpcoming") || !arr.isValid())
+        return out;
+
+    QJniEnvironment env;
+    const jlongArray jArr = arr.object<jlongArray>();
+    const jsize n = env->GetArrayLength(jArr);
+    QVector<jlong> tmp(n);
+    if (n > 0)
+        env->GetLongArrayRegion(jArr, 0, n, tmp.data());
+
+    out.reserve(n / 2);
+    for (jsize i = 0; i + 1 < n; i += 2) {
+        QVariantMap m;
+        m.insert(QStringLiteral("atMs"), (qint64)tmp[i]);
+        m.insert(QStringLiteral("requestId"), (int)tmp[i + 1]);
+        out.push_back(m);
+    }
+    return out;
+}
+
+QVariantMap SoundTaskManagerAndroid::alarmMetrics() const
+{
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("alarmMetrics(): QtNative.activity() invalid");
+        return {};
+    }
+
+    // ganzer Snapshot als ein JSON-String (ein JNI-Aufruf)
+    const QJniObject json = QJniObject::callStaticObjectMethod(
+        "org/dailyactions/AlarmScheduler",
+        "getMetricsJson",
+        "(Landroid/content/Context;)Ljava/lang/String;",
+        activity.object<jobject>()
+        );
+
+    if (!clearJniException("getMetricsJson") || !json.isValid())
+        return {};
+
+    return QJsonDocument::fromJson(json.toString().toUtf8()).toVariant().toMap();
+}
+
+void SoundTaskManagerAndroid::resetAlarmMetrics()
+{
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("resetAlarmMetrics(): QtNative.activity() invalid");
+        return;
+    }
+
+    QJniObject::callStaticMethod<void>(
+        "org/dailyactions/AlarmScheduler",
+        "resetMetrics",
+        "(Landroid/content/Context;)V",
+        activity.object<jobject>()
+        );
+    clearJniException("resetMetrics");
+}
+
+bool SoundTaskManagerAndroid::setCatchUpPolicy(int requestId, const QString &policy, int maxReplays)
+{
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("setCatchUpPolicy(): QtNative.activity() invalid");
+        return false;
+    }
+
+    const QJniObject jPolicy = QJniObject::fromString(policy);
+    QJniObject::callStaticMethod<void>(
+        "org/dailyactions/AlarmScheduler",
+        "setCatchUpPolicy",
+        "(Landroid/content/Context;ILjava/lang/String;I)V",
+        activity.object<jobject>(),
+        (jint)requestId,
+        jPolicy.object<jstring>(),
+        (jint)maxReplays
+        );
+    return clearJniException("setCatchUpPolicy");
+}
+
+bool SoundTaskManagerAndroid::multiplexMode() const
+{
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("multiplexMode(): QtNative.activity() invalid");
+        return false;
+    }
+
+    const jboolean on = QJniObject::callStaticMethod<jboolean>(
+        "org/dailyactions/AlarmScheduler",
+        "isMultiplexMode",
+        "(Landroid/content/Context;)Z",
+        activity.object<jobject>()
+        );
+    return clearJniException("isMultiplexMode") && on;
+}
+
+bool SoundTaskManagerAndroid::setMultiplexMode(bool enabled)
+{
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("setMultiplexMode(): QtNative.activity() invalid");
+        return false;
+    }
+
+    QJniObject::callStaticMethod<void>(
+        "org/dailyactions/AlarmScheduler",
+        "setMultiplexMode",
+        "(Landroid/content/Context;Z)V",
+        activity.object<jobject>(),
+        (jboolean)enabled
+        );
+    return clearJniException("setMultiplexMode");
+}
+
+bool SoundTaskManagerAndroid::mixPlayback() const
+{
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("mixPlayback(): QtNative.activity() invalid");
+        return false;
+    }
+
+    const jboolean on = QJniObject::callStaticMethod<jboolean>(
+        "org/dailyactions/AlarmScheduler",
+        "isMixPlayback",
+        "(Landroid/content/Context;)Z",
+        activity.object<jobject>()
+        );
+    return clearJniException("isMixPlayback") && on;
+}
+
+bool SoundTaskManagerAndroid::setMixPlayback(bool enabled)
+{
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("setMixPlayback(): QtNative.activity() invalid");
+        return false;
+    }
+
+    QJniObject::callStaticMethod<void>(
+        "org/dailyactions/AlarmScheduler",
+        "setMixPlayback",
+        "(Landroid/content/Context;Z)V",
+        activity.object<jobject>(),
+        (jboolean)enabled
+        );
+    return clearJniException("setMixPlayback");
+}
+
+bool SoundTaskManagerAndroid::preRoll() const
+{
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("preRoll(): QtNative.activity() invalid");
+        return false;
+    }
+
+    const jboolean on = QJniObject::callStaticMethod<jboolean>(
+        "org/dailyactions/AlarmScheduler",
+        "isPreRoll",
+        "(Landroid/content/Context;)Z",
+        activity.object<jobject>()
+        );
+    return clearJniException("isPreRoll") && on;
+}
+
+bool SoundTaskManagerAndroid::setPreRoll(bool enabled)
+{
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("setPreRoll(): QtNative.activity() invalid");
+        return false;
+    }
+
+    QJniObject::callStaticMethod<void>(
+        "org/dailyactions/AlarmScheduler",
+        "setPreRoll",
+        "(Landroid/content/Context;Z)V",
+        activity.object<jobject>(),
+        (jboolean)enabled
+        );
+    return clearJniException("setPreRoll");
+}
+
+// -------------------- Bulk (ein JNI-Aufruf statt einem pro Action) --------------------
+
+void SoundTaskManagerAndroid::beginBatch()
+{
+    ++m_batchDepth;
+}
+
+bool SoundTaskManagerAndroid::commitBatch()
+{
+    if (m_batchDepth <= 0)
+        return true;
+    if (--m_batchDepth > 0)
+        return true;
+    return flushBatch();
+}
+
+template <typename T>
+static void putLE(QByteArray &buf, int off, T v)
+{
+    qToLittleEndian<T>(v, buf.data() + off);
+}
+
+static void putFloatLE(QByteArray &buf, int off, float v)
+{
+    quint32 bits;
+    static_assert(sizeof(bits) == sizeof(v), "float must be 32 bit");
+    std::memcpy(&bits, &v, sizeof(bits));
+    putLE<quint32>(buf, off, bits);
+}
+
+bool SoundTaskManagerAndroid::flushBatch()
+{
+    const QVector<PackedAction> actions = m_batchActions;
+    const QList<int> cancels = m_batchCancels;
+    m_batchActions.clear();
+    m_batchCancels.clear();
+    if (actions.isEmpty() && cancels.isEmpty())
+        return true;
+    return sendPacked(actions, cancels, false);
+}
+
+bool SoundTaskManagerAndroid::sendPacked(const QVector<PackedAction> &actions,
+                                         const QList<int> &cancels,
+                                         bool reconcile)
+{
+    const char *what = reconcile ? "reconcile" : "commitBatch";
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        alogW("%s(): QtNative.activity() invalid", what);
+        return false;
+    }
+
+    // Layout: PackedActions.java (Header, Cancel-ids, Records fester Größe, UTF-8-Strings)
+    constexpr int kMagic = 0x41504144; // "DAPA"
+    constexpr int kVersion = 1;
+    constexpr int kHeaderSize = 24;
+    constexpr int kRecordSize = 64;
+
+    const int recordsOffset = kHeaderSize + int(cancels.size()) * 4;
+    const int stringsOffset = recordsOffset + int(actions.size()) * kRecordSize;
+
+    QByteArray strings;
+    QByteArray buf(stringsOffset, '\0');
+    putLE<qint32>(buf, 0, kMagic);
+    putLE<qint32>(buf, 4, kVersion);
+    putLE<qint32>(buf, 8, kRecordSize);
+    putLE<qint32>(buf, 12, qint32(cancels.size()));
+    putLE<qint32>(buf, 16, qint32(actions.size()));
+    putLE<qint32>(buf, 20, stringsOffset);
+
+    for (int k = 0; k < cancels.size(); ++k)
+        putLE<qint32>(buf, kHeaderSize + k * 4, cancels[k]);
+
+    auto putString = [&](int off, const QByteArray &s) {
+        putLE<qint32>(buf, off, qint32(strings.size()));
+        putLE<qint32>(buf, off + 4, qint32(s.size()));
+        strings.append(s);
+    };
+
+    for (int k = 0; k < actions.size(); ++k) {
+        const PackedAction &a = actions[k];
+        const int r = recordsOffset + k * kRecordSize;
+        putLE<qint64>(buf, r + 0, a.triggerAtMillis);
+        putLE<qint32>(buf, r + 8, a.requestId);
+        putLE<qint32>(buf, r + 12, a.mode);
+        putLE<qint16>(buf, r + 16, qint16(a.fixedMin));
+        putLE<qint16>(buf, r + 18, qint16(a.startMin));
+        putLE<qint16>(buf, r + 20, qint16(a.endMin));
+        putLE<qint16>(buf, r + 22, qint16(a.anchorMin));
+        putLE<qint32>(buf, r + 24, a.intervalSeconds);
+        putFloatLE(buf, r + 28, a.volume01);
+        putLE<qint32>(buf, r + 32, a.durationSound);
+        putLE<qint32>(buf, r + 36, a.coalesceSeconds);
+        putString(r + 40, a.sound);
+        putString(r + 48, a.title);
+        putString(r + 56, a.text);
+    }
+    buf.append(strings);
+
+    QJniEnvironment env;
+    jobject jBuf = env->NewDirectByteBuffer(buf.data(), buf.size());
+    if (!jBuf) {
+        clearJniException("NewDirectByteBuffer");
+        alogW("%s(): NewDirectByteBuffer failed", what);
+        return false;
+    }
+
+    if (reconcile) {
+        // int[] { added, retimed, updated, unchanged, removed } (AlarmScheduler.RC_*)
+        QJniObject arr = QJniObject::callStaticObjectMethod(
+            "org/dailyactions/AlarmScheduler",
+            "reconcile",
+            "(Landroid/content/Context;Ljava/nio/ByteBuffer;)[I",
+            activity.object<jobject>(),
+            jBuf
+            );
+        env->DeleteLocalRef(jBuf);
+
+        if (!clearJniException("reconcile") || !arr.isValid()) {
+            alogW("reconcile(): records=%d cancels=%d FAILED", int(actions.size()), int(cancels.size()));
+            return false;
+        }
+        jint n[5] = {0, 0, 0, 0, 0};
+        const jintArray jArr = arr.object<jintArray>();
+        env->GetIntArrayRegion(jArr, 0, qMin<jsize>(5, env->GetArrayLength(jArr)), n);
+        alogW("reconcile(): records=%d added=%d retimed=%d updated=%d unchanged=%d removed=%d bytes=%d",
+              int(actions.size()), int(n[0]), int(n[1]), int(n[2]), int(n[3]), int(n[4]), int(buf.size()));
+        return true;
+    }
+
+    const jint scheduled = QJniObject::callStaticMethod<jint>(
+        "org/dailyactions/AlarmScheduler",
+        "scheduleAll",
+        "(Landroid/content/Context;Ljava/nio/ByteBuffer;)I",
+        activity.object<jobject>(),
+        jBuf
+        );
+    env->DeleteLocalRef(jBuf);
+
+    const bool ok = clearJniException("scheduleAll") && scheduled == jint(actions.size());
+    alogW("commitBatch(): cancels=%d records=%d scheduled=%d bytes=%d %s",
+          int(cancels.size()), int(actions.size()), int(scheduled), int(buf.size()), ok ? "OK" : "FAILED");
+    return ok;
+}
+
+static jintArray newIntArray(QJniEnvironment &env, const QList<int> &ids)
+{
+    jintArray jIds = env->NewIntArray(ids.size());
+    if (jIds && ids.size() > 0) {
+        QVector<jint> tmp;
+        tmp.reserve(ids.size());
+        for (int id : ids) tmp.push_back((jint)id);
+        env->SetIntArrayRegion(jIds, 0, tmp.size(), tmp.constData());
+    }
+    return jIds;
+}
+
+QList<qint64> SoundTaskManagerAndroid::getNextAtMsAll(const QList<int> &ids) const
+{
+    QList<qint64> out;
+    if (ids.isEmpty())
+        return out;
+
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("getNextAtMsAll(): QtNative.activity() invalid");
+        return out;
+    }
+
+    QJniEnvironment env;
+    jintArray jIds = newIntArray(env, ids);
+    QJniObject arr = QJniObject::callStaticObjectMethod(
+        "org/dailyactions/AlarmScheduler",
+        "getNextAtMsAll",
+        "(Landroid/content/Context;[I)[J",
+        activity.object<jobject>(),
+        jIds
+        );
+    if (jIds) env->DeleteLocalRef(jIds);
+
+    if (!clearJniException("getNextAtMsAll") || !arr.isValid())
+        return out;
+
+    const jlongArray jArr = arr.object<jlongArray>();
+    const jsize n = env->GetArrayLength(jArr);
+    QVector<jlong> tmp(n);
+    if (n > 0)
+        env->GetLongArrayRegion(jArr, 0, n, tmp.data());
+
+    out.reserve(n);
+    for (jlong ms : tmp) out.push_back((qint64)ms);
+    return out;
+}
+
+QList<bool> SoundTaskManagerAndroid::isScheduledAll(const QList<int> &ids) const
+{
+    QList<bool> out;
+    if (ids.isEmpty())
+        return out;
+
+    QJniObject activity = getQtActivity();
+    if (!activity.isValid()) {
+        emit logLine("isScheduledAll(): QtNative.activity() invalid");
+        return out;
+    }
+
+    QJniEnvironment env;
+    jintArray jIds = newIntArray(env, ids);
+    QJniObject arr = QJniObject::callStaticObjectMethod(
+        "org/dailyactions/AlarmScheduler",
+        "isScheduledAll",
+        "(Landroid/content/Context;[I)[Z",
+        activity.object<jobject>(),
+        jIds
+        );
+    if (jIds) env->DeleteLocalRef(jIds);
+
+    if (!clearJniException("isScheduledAll") || !arr.isValid())
+        return out;
+
+    const jbooleanArray jArr = arr.object<jbooleanArray>();
+    const jsize n = env->GetArrayLength(jArr);
+    QVector<jboolean> tmp(n);
+    if (n > 0)
+        env->GetBooleanArrayRegion(jArr, 0, n, tmp.data());
+
+    out.reserve(n);
+    for (jboolean b : tmp) out.push_back(b == JNI_TRUE);
+    return out;
+}
 
 SoundTaskManagerAndroid::SoundTaskManagerAndroid(QObject *parent)
     : ISoundTaskManager(parent) {}
@@ -233,6 +675,18 @@ void SoundTaskManagerAndroid::freeId(int id)
     freeId_locked(id);
 }
 
+// bestehende requestId (aus dem Modell) wieder als aktiv führen; m_nextId bleibt dahinter
+void SoundTaskManagerAndroid::adoptId(int id)
+{
+    QMutexLocker lk(&m_mutex);
+    m_activeIds.insert(id);
+    if (id >= m_nextId) {
+        m_nextId = id + 1;
+        QSettings s;
+        s.setValue(QStringLiteral("SoundTaskManagerAndroid/nextId"), m_nextId);
+    }
+}
+
 bool SoundTaskManagerAndroid::scheduleWithParams(qint64 triggerAtMillis,
                                                  const QString &soundName,
                                                  int requestId,
@@ -247,14 +701,42 @@ bool SoundTaskManagerAndroid::scheduleWithParams(qint64 triggerAtMillis,
                                                  float volume01,
                                                  int durationSound)
 {
+    const float v = std::max(0.0f, std::min(1.0f, volume01));
+
+    if (m_batchDepth > 0) {
+        // nur sammeln; commitBatch() übergibt alles mit einem JNI-Aufruf
+        PackedAction a;
+        a.triggerAtMillis = triggerAtMillis;
+        a.requestId = requestId;
+        a.mode = (mode == QLatin1String("fixedTime")) ? 0 : (mode == QLatin1String("interval")) ? 1 : 2;
+        a.fixedMin = parseHHMMToMinutes(fixedTime);
+        a.startMin = parseHHMMToMinutes(startTime);
+        a.endMin = parseHHMMToMinutes(endTime);
+        a.anchorMin = parseHHMMToMinutes(startAnchorTime);
+        a.intervalSeconds = intervalSeconds;
+        a.volume01 = v;
+        a.durationSound = durationSound;
+        a.sound = soundName.toUtf8();
+        a.title = title.toUtf8();
+        a.text = text.toUtf8();
+
+        // derselbe requestId zweimal im Batch: der letzte gewinnt
+        for (int i = m_batchActions.size() - 1; i >= 0; --i) {
+            if (m_batchActions[i].requestId == requestId)
+                m_batchActions.remove(i);
+        }
+        m_batchActions.push_back(a);
+        alogW("scheduleWithParams(): batched id=%d at=%lld mode=%s", requestId,
+              (long long)triggerAtMillis, mode.toUtf8().constData());
+        return true;
+    }
+
     QJniObject activity = getQtActivity();
     if (!activity.isValid()) {
         emit logLine("scheduleWithParams(): QtNative.activity() invalid");
         return false;
     }
 
-    const float v = std::max(0.0f, std::min(1.0f, volume01));
-
     const char *sig =
         "(Landroid/content/Context;JLjava/lang/String;ILjava/lang/String;Ljava/lang/String;"
         "Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;IFI)V";
@@ -311,36 +793,41 @@ bool SoundTaskManagerAndroid::scheduleWithParams(qint64 triggerAtMillis,
 
 bool SoundTaskManagerAndroid::cancelAll(const QList<int> &ids)
 {
-    QJniObject activity = getQtActivity();
-    if (!activity.isValid()) {
-        alogW("cancelAll(): QtNative.activity() invalid");
-        return false;
-    }
-
-    alogW("cancelAll(): calling AlarmScheduler.cancelAll(ctx, ids) count=%d", ids.size());
+    bool ok = true;
+    if (m_batchDepth > 0) {
+        // im Batch: zusammen mit den Records in commitBatch() (Reihenfolge bleibt erhalten)
+        for (int id : ids) cancel(id);
+    } else {
+        QJniObject activity = getQtActivity();
+        if (!activity.isValid()) {
+            alogW("cancelAll(): QtNative.activity() invalid");
+            return false;
+        }
 
-    // jintArray bauen
-    QJniEnvironment env;
-    jintArray jIds = env->NewIntArray(ids.size());
-    if (jIds && ids.size() > 0) {
-        QVector<jint> tmp;
-        tmp.reserve(ids.size());
-        for (int id : ids) tmp.push_back((jint)id);
-        env->SetIntArrayRegion(jIds, 0, tmp.size(), tmp.constData());
-    }
+        alogW("cancelAll(): calling AlarmScheduler.cancelAll(ctx, ids) count=%d", ids.size());
 
-    QJniObject::callStaticMethod<void>(
-        "org/dailyactions/AlarmScheduler",
-        "cancelAll",
-        "(Landroid/content/Context;[I)V",
-        activity.object<jobject>(),
-        jIds
-        );
+        // jintArray bauen
+        QJniEnvironment env;
+        jintArray jIds = env->NewIntArray(ids.size());
+        if (jIds && ids.size() > 0) {
+            QVector<jint> tmp;
+            tmp.reserve(ids.size());
+            for (int id : ids) tmp.push_back((jint)id);
+            env->SetIntArrayRegion(jIds, 0, tmp.size(), tmp.constData());
+        }
 
-    if (jIds) env->DeleteLocalRef(jIds);
+        QJniObject::callStaticMethod<void>(
+            "org/dailyactions/AlarmScheduler",
+            "cancelAll",
+            "(Landroid/content/Context;[I)V",
+            activity.object<jobject>(),
+            jIds
+            );
 
+        if (jIds) env->DeleteLocalRef(jIds);
 
-    const bool ok = clearJniException("cancelAll");
+        ok = clearJniException("cancelAll");
+    }
 
     // C++-seitigen Zustand komplett leeren
     {
@@ -367,6 +854,17 @@ bool SoundTaskManagerAndroid::cancelAll(const QList<int> &ids)
 bool SoundTaskManagerAndroid::cancel(int requestId)
 {
     alogW("start cancel reqId=%d",requestId);
+    if (m_batchDepth > 0) {
+        // ein im selben Batch geplanter Record wäre sofort wieder weg -> gar nicht erst senden
+        for (int i = m_batchActions.size() - 1; i >= 0; --i) {
+            if (m_batchActions[i].requestId == requestId)
+                m_batchActions.remove(i);
+        }
+        if (!m_batchCancels.contains(requestId))
+            m_batchCancels.push_back(requestId);
+        return true;
+    }
+
     QJniObject activity = getQtActivity();
     if (!activity.isValid()) {
         alogW("cancel(): QtNative.activity() invalid");
@@ -395,7 +893,20 @@ int SoundTaskManagerAndroid::startFixedSoundTask(const QString &rawSound,
                                                  int durationSound)
 {
     const int id = allocId();
+    if (!scheduleFixed(id, rawSound, notificationTxt, fixedTimeMs, volume01, durationSound)) {
+        freeId(id);
+        return -1;
+    }
+    return id;
+}
 
+bool SoundTaskManagerAndroid::scheduleFixed(int id,
+                                            const QString &rawSound,
+                                            const QString &notificationTxt,
+                                            qint64 fixedTimeMs,
+                                            float volume01,
+                                            int durationSound)
+{
     const QDateTime dt = QDateTime::fromMSecsSinceEpoch(fixedTimeMs);
     const QString fixedStr = dt.time().toString("HH:mm");
 
@@ -415,11 +926,11 @@ int SoundTaskManagerAndroid::startFixedSoundTask(const QString &rawSound,
         durationSound
         );
 
-    if (!ok) {
-        freeId(id);
-        return -1;
+    if (ok) {
+        QMutexLocker lk(&m_mutex);
+        m_intervalIds.remove(id);
     }
-    return id;
+    return ok;
 }
 
 int SoundTaskManagerAndroid::startIntervalSoundTask(const QString &rawSound,
@@ -433,6 +944,28 @@ int SoundTaskManagerAndroid::startIntervalSoundTask(const QString &rawSound,
 {
     if (intervalSecs <= 0) return -1;
 
+    // --- ID holen & schedulen ---
+    const int id = allocId();
+    if (!scheduleInterval(id, rawSound, notificationTxt, startTimeMs, endTimeMs, startAnchorTimeMs,
+                          intervalSecs, volume01, durationSound)) {
+        freeId(id);
+        return -1;
+    }
+    return id;
+}
+
+bool SoundTaskManagerAndroid::scheduleInterval(int id,
+                                               const QString &rawSound,
+                                               const QString &notificationTxt,
+                                               qint64 startTimeMs,
+                                               qint64 endTimeMs,
+                                               qint64 startAnchorTimeMs,
+                                               int intervalSecs,
+                                               float volume01,
+                                               int durationSound)
+{
+    if (intervalSecs <= 0) return false;
+
     // --- Hilfswerte fürs Zeitfenster (nur Zeitanteil zählt) ---
     const bool hasStart = (startTimeMs > 0);
     const bool hasEnd   = (endTimeMs > 0);
@@ -456,9 +989,6 @@ int SoundTaskManagerAndroid::startIntervalSoundTask(const QString &rawSound,
                                                      startAnchorTimeMs,
                                                      intervalSecs);
 
-    // --- ID holen & schedulen ---
-    const int id = allocId();
-
     alogW("startIntervalSoundTask() start id=%d durationSound = %d ",id , durationSound);
     const bool ok = scheduleWithParams(
         firstAt,
@@ -476,17 +1006,80 @@ int SoundTaskManagerAndroid::startIntervalSoundTask(const QString &rawSound,
         durationSound
         );
 
-    if (!ok) {
-        freeId(id);
-        return -1;
-    }
-
-    {
+    if (ok) {
         QMutexLocker lk(&m_mutex);
         m_intervalIds.insert(id);
     }
+    return ok;
+}
 
-    return id;
+QList<int> SoundTaskManagerAndroid::reconcile(const QVariantList &desired)
+{
+    QList<int> ids;
+    ids.reserve(desired.size());
+
+    // eigener Batch: ein offener beginBatch() (scheduleAll-Semantik) bleibt davon getrennt
+    QVector<PackedAction> outerActions;
+    QList<int> outerCancels;
+    outerActions.swap(m_batchActions);
+    outerCancels.swap(m_batchCancels);
+    ++m_batchDepth;
+
+    for (const QVariant &v : desired) {
+        const QVariantMap a = v.toMap();
+        int id = a.value(QStringLiteral("requestId")).toInt();
+
+        if (!a.value(QStringLiteral("enabled")).toBool()) {
+            if (id > 0) {
+                cancel(id);
+                freeId(id);
+            }
+            ids.push_back(0);
+            continue;
+        }
+
+        // requestId bleibt über Änderungen gleich -> Java vergleicht mit dem zuletzt angewandten Stand
+        if (id > 0) adoptId(id);
+        else id = allocId();
+
+        const QString rawSound = a.value(QStringLiteral("rawSound")).toString();
+        const QString text = a.value(QStringLiteral("text")).toString();
+        const float vol = a.value(QStringLiteral("volume01")).toFloat();
+        const int duration = a.value(QStringLiteral("durationSound")).toInt();
+        const bool ok = (a.value(QStringLiteral("mode")).toString() == QLatin1String("interval"))
+                ? scheduleInterval(id, rawSound, text,
+                                   a.value(QStringLiteral("startTimeMs")).toLongLong(),
+                                   a.value(QStringLiteral("endTimeMs")).toLongLong(),
+                                   a.value(QStringLiteral("startAnchorTimeMs")).toLongLong(),
+                                   a.value(QStringLiteral("intervalSecs")).toInt(),
+                                   vol, duration)
+                : scheduleFixed(id, rawSound, text,
+                                a.value(QStringLiteral("fixedTimeMs")).toLongLong(),
+                                vol, duration);
+        if (!ok) {
+            cancel(id);
+            freeId(id);
+            id = 0;
+        } else if (a.contains(QStringLiteral("coalesceSeconds"))) {
+            // Toleranz pro Action (Multiplexer darf bis zu so viel früher auslösen), fehlt = exakt
+            const int coalesce = qMax(0, a.value(QStringLiteral("coalesceSeconds")).toInt());
+            for (PackedAction &p : m_batchActions) {
+                if (p.requestId == id)
+                    p.coalesceSeconds = coalesce;
+            }
+        }
+        ids.push_back(id);
+    }
+
+    --m_batchDepth;
+    const QVector<PackedAction> actions = m_batchActions;
+    const QList<int> cancels = m_batchCancels;
+    m_batchActions.swap(outerActions);
+    m_batchCancels.swap(outerCancels);
+
+    if (!actions.isEmpty() || !cancels.isEmpty())
+        sendPacked(actions, cancels, true);
+    return ids;
 }
 
 void SoundTaskManagerAndroid::cancelAlarmTask(int alarmId)
@@ -6,6 +6,7 @@
 #include <QHash>
 #include <QSet>
 #include <QMutex>
+#include <QVector>
 
 #include "logqml.h"
 
@@ -59,6 +60,28 @@ public:
 
     qint64 getNextAtMs(int alarmId) const override;
 
+    QVariantList upcomingFires(qint64 fromMs, int count) const override;
+
+    QVariantMap alarmMetrics() const override;
+    void resetAlarmMetrics() override;
+
+    bool setCatchUpPolicy(int requestId, const QString &policy, int maxReplays) override;
+
+    bool multiplexMode() const override;
+    bool setMultiplexMode(bool enabled) override;
+
+    bool mixPlayback() const override;
+    bool setMixPlayback(bool enabled) override;
+
+    bool preRoll() const override;
+    bool setPreRoll(bool enabled) override;
+
+    void beginBatch() override;
+    bool commitBatch() override;
+    QList<qint64> getNextAtMsAll(const QList<int> &ids) const override;
+    QList<bool> isScheduledAll(const QList<int> &ids) const override;
+    QList<int> reconcile(const QVariantList &desired) override;
+
 
 private:
     int allocId_locked();
@@ -66,6 +89,39 @@ private:
 
     int allocId();
     void freeId(int id);
+    void adoptId(int id);
+
+    // planen unter einer gegebenen requestId (start...SoundTask und reconcile)
+    bool scheduleFixed(int id, const QString &rawSound, const QString &notificationTxt,
+                       qint64 fixedTimeMs, float volume01, int durationSound);
+    bool scheduleInterval(int id, const QString &rawSound, const QString &notificationTxt,
+                          qint64 startTimeMs, qint64 endTimeMs, qint64 startAnchorTimeMs,
+                          int intervalSecs, float volume01, int durationSound);
+
+    // Batch: Records für AlarmScheduler.scheduleAll (Layout siehe PackedActions.java)
+    struct PackedAction {
+        qint64 triggerAtMillis = 0;
+        int requestId = 0;
+        int mode = 2;          // ScheduleSpec.Mode ordinal: 0 fixedTime, 1 interval, 2 unknown
+        int fixedMin = -1;
+        int startMin = -1;
+        int endMin = -1;
+        int anchorMin = -1;
+        int intervalSeconds = 0;
+        float volume01 = 0.0f;
+        int durationSound = 0;
+        int coalesceSeconds = -1; // -1 = Java-Default (0, exakt)
+        QByteArray sound;
+        QByteArray title;
+        QByteArray text;
+    };
+    bool flushBatch();
+    // packt Records + Cancels und ruft AlarmScheduler.scheduleAll bzw. .reconcile auf
+    bool sendPacked(const QVector<PackedAction> &actions, const QList<int> &cancels, bool reconcile);
+
+    int m_batchDepth = 0;
+    QVector<PackedAction> m_batchActions;
+    QList<int> m_batchCancels;
 
     LogQML *logInst = new LogQML();
     void alogW(const char* fmt, ...);